@@ -28,7 +28,9 @@ private JdoColumnLength(){}
         public static final int CATEGORY_REFERENCE = 24;
         public static final int CATEGORY_NAME = 100;
         public static final int CATEGORY_FQNAME = 254;
-        public static final int CATEGORY_FQORDINAL = 50;
+        public static final int CATEGORY_FQORDINAL = 252; // 36 levels, see OrdinalKey
+        public static final int CATEGORY_PATH = 255;
+        public static final int CATEGORY_RANK = 64; // see FractionalKey
 
         public static final int APPLICABILITY_DOMAIN_TYPE = 255;
 
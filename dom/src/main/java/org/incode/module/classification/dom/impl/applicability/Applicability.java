@@ -1,5 +1,7 @@
 package org.incode.module.classification.dom.impl.applicability;
 
+import java.util.Comparator;
+
 import javax.jdo.annotations.IdGeneratorStrategy;
 import javax.jdo.annotations.IdentityType;
 import javax.jdo.annotations.VersionStrategy;
@@ -16,7 +18,6 @@
 import org.apache.isis.applib.annotation.NatureOfService;
 import org.apache.isis.applib.annotation.Property;
 import org.apache.isis.applib.annotation.PropertyLayout;
-import org.apache.isis.applib.util.ObjectContracts;
 import org.apache.isis.applib.util.TitleBuffer;
 
 import org.incode.module.classification.dom.ClassificationModule;
@@ -190,14 +191,31 @@ public static class DomainTypeDomainEvent extends PropertyDomainEvent<String> {
 
     //region > toString, compareTo
 
+    /**
+     * By taxonomy, then {@link #getAtPath() path}, then {@link #getDomainType() domain type} (nulls first); as did
+     * <tt>ObjectContracts.compare(...)</tt>, a <tt>null</tt> applicability is treated as one with none of these.
+     */
+    public static final Comparator<Applicability> COMPARATOR = Comparator
+            .comparing(
+                    (Applicability applicability) -> applicability != null ? applicability.getTaxonomy() : null,
+                    Comparator.nullsFirst(Comparator.<Category>naturalOrder()))
+            .thenComparing(
+                    applicability -> applicability != null ? applicability.getAtPath() : null,
+                    Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(
+                    applicability -> applicability != null ? applicability.getDomainType() : null,
+                    Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
     @Override
     public String toString() {
-        return ObjectContracts.toString(this, "taxonomy", "atPath", "domainType");
+        return "Applicability{taxonomy=" + getTaxonomy()
+                + ", atPath=" + getAtPath()
+                + ", domainType=" + getDomainType() + "}";
     }
 
     @Override
     public int compareTo(final Applicability other) {
-        return ObjectContracts.compare(this, other, "taxonomy", "atPath", "domainType");
+        return COMPARATOR.compare(this, other);
     }
 
     //endregion
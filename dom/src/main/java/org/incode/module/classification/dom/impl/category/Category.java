@@ -1,11 +1,12 @@
 package org.incode.module.classification.dom.impl.category;
 
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -16,6 +17,8 @@
 import javax.jdo.annotations.Persistent;
 import javax.jdo.annotations.VersionStrategy;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.Subscribe;
 
 import org.axonframework.eventhandling.annotation.EventHandler;
@@ -34,12 +37,13 @@
 import org.apache.isis.applib.annotation.Property;
 import org.apache.isis.applib.annotation.PropertyLayout;
 import org.apache.isis.applib.annotation.SemanticsOf;
+import org.apache.isis.applib.annotation.Where;
 import org.apache.isis.applib.services.i18n.TranslatableString;
 import org.apache.isis.applib.services.repository.RepositoryService;
-import org.apache.isis.applib.util.ObjectContracts;
 
 import org.incode.module.classification.dom.ClassificationModule;
 import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshotService;
 import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
 
 import lombok.Getter;
@@ -66,6 +70,34 @@
                         + "FROM org.incode.module.classification.dom.impl.category.Category "
                         + "WHERE taxonomy == :taxonomy "
                         + "ORDER BY fullyQualifiedOrdinal "),
+        @javax.jdo.annotations.Query(
+                name = "findLeavesByTaxonomy", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE taxonomy == :taxonomy "
+                        + "&&    leaf == true "
+                        + "ORDER BY fullyQualifiedOrdinal "),
+        @javax.jdo.annotations.Query(
+                name = "findByTaxonomyAndDepth", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE taxonomy == :taxonomy "
+                        + "&&    depth == :depth "
+                        + "ORDER BY fullyQualifiedOrdinal "),
+        @javax.jdo.annotations.Query(
+                name = "findByTaxonomyAndPath", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE taxonomy == :taxonomy "
+                        + "&&    fullyQualifiedNameHash == :fullyQualifiedNameHash "
+                        + "&&    fullyQualifiedName == :fullyQualifiedName "),
+        @javax.jdo.annotations.Query(
+                name = "findByTaxonomyAndPathHashes", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE taxonomy == :taxonomy "
+                        + "&&    :fullyQualifiedNameHashes.contains(fullyQualifiedNameHash) "
+                        + "&&    :fullyQualifiedNames.contains(fullyQualifiedName) "),
         @javax.jdo.annotations.Query(
                 name = "findByTaxonomyAndReference", language = "JDOQL",
                 value = "SELECT "
@@ -73,12 +105,65 @@
                         + "WHERE taxonomy == :taxonomy "
                         + "&&    reference == :reference "
                         + "ORDER BY fullyQualifiedOrdinal "),
+        @javax.jdo.annotations.Query(
+                name = "findByTaxonomyAndReferences", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE taxonomy == :taxonomy "
+                        + "&&    :references.contains(reference) "),
         @javax.jdo.annotations.Query(
                 name = "findByParent", language = "JDOQL",
                 value = "SELECT "
                         + "FROM org.incode.module.classification.dom.impl.category.Category "
                         + "WHERE parent == :parent "
-                        + "ORDER BY fullyQualifiedOrdinal "),
+                        + "ORDER BY rank, fullyQualifiedName "),
+        @javax.jdo.annotations.Query(
+                name = "findByParentInPages", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE parent == :parent "
+                        + "ORDER BY rank, fullyQualifiedName "),
+        @javax.jdo.annotations.Query(
+                name = "findByParentAfter", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE parent == :parent "
+                        + "&&    (rank > :rank "
+                        + "       || (rank == :rank "
+                        + "           && fullyQualifiedName > :fullyQualifiedName)) "
+                        + "ORDER BY rank, fullyQualifiedName "),
+        @javax.jdo.annotations.Query(
+                name = "findByParentAndNameStartsWith", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE parent == :parent "
+                        + "&&    name.startsWith(:prefix) "
+                        + "ORDER BY rank, fullyQualifiedName "),
+        @javax.jdo.annotations.Query(
+                name = "findByParentBefore", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE parent == :parent "
+                        + "&&    this != :excluding "
+                        + "&&    (rank < :rank "
+                        + "       || (rank == :rank "
+                        + "           && fullyQualifiedName < :fullyQualifiedName)) "
+                        + "ORDER BY rank DESC, fullyQualifiedName DESC "),
+        @javax.jdo.annotations.Query(
+                name = "findByParentDescending", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE parent == :parent "
+                        + "&&    this != :excluding "
+                        + "ORDER BY rank DESC, fullyQualifiedName DESC "),
+        @javax.jdo.annotations.Query(
+                name = "findByParentAndOrdinalAbove", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE parent == :parent "
+                        + "&&    this != :excluding "
+                        + "&&    ordinal > :ordinal "
+                        + "ORDER BY rank, fullyQualifiedName "),
         @javax.jdo.annotations.Query(
                 name = "findByReference", language = "JDOQL",
                 value = "SELECT "
@@ -99,6 +184,65 @@
                         + "WHERE parent == :parent "
                         + "&&    reference == :reference "
                         + "ORDER BY fullyQualifiedOrdinal "),
+        @javax.jdo.annotations.Query(
+                name = "findByAncestor", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE ca.ancestor == :ancestor "
+                        + "&&    ca.descendant == this "
+                        + "&&    ca.depth > 0 "
+                        + "VARIABLES org.incode.module.classification.dom.impl.category.CategoryAncestor ca "
+                        + "ORDER BY fullyQualifiedOrdinal "),
+        @javax.jdo.annotations.Query(
+                name = "findByPathPrefix", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE path.startsWith(:path) "
+                        + "&&    path != :path "
+                        + "ORDER BY fullyQualifiedOrdinal "),
+        @javax.jdo.annotations.Query(
+                name = "findByTaxonomyAndWithinInterval", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE taxonomy == :taxonomy "
+                        + "&&    lft > :lft "
+                        + "&&    rgt < :rgt "
+                        + "ORDER BY fullyQualifiedOrdinal "),
+})
+@javax.jdo.annotations.Indices({
+        @javax.jdo.annotations.Index(
+                name = "Category_taxonomy_fullyQualifiedOrdinal_IDX",
+                members = { "taxonomy", "fullyQualifiedOrdinal" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_parent_fullyQualifiedOrdinal_IDX",
+                members = { "parent", "fullyQualifiedOrdinal" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_parent_rank_fullyQualifiedName_IDX",
+                members = { "parent", "rank", "fullyQualifiedName" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_taxonomy_leaf_fullyQualifiedOrdinal_IDX",
+                members = { "taxonomy", "leaf", "fullyQualifiedOrdinal" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_taxonomy_depth_fullyQualifiedOrdinal_IDX",
+                members = { "taxonomy", "depth", "fullyQualifiedOrdinal" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_taxonomy_fullyQualifiedNameHash_IDX",
+                members = { "taxonomy", "fullyQualifiedNameHash" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_path_IDX",
+                members = { "path" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_taxonomy_lft_IDX",
+                members = { "taxonomy", "lft" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_taxonomy_reference_IDX",
+                members = { "taxonomy", "reference" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_parent_reference_IDX",
+                members = { "parent", "reference" }),
+        @javax.jdo.annotations.Index(
+                name = "Category_reference_IDX",
+                members = { "reference" })
 })
 @javax.jdo.annotations.Uniques({
         @javax.jdo.annotations.Unique(
@@ -202,6 +346,12 @@ protected Category(
         setName(name);
         setReference(reference);
         setOrdinal(ordinal != null ? ordinal : 0);
+        setRank(FractionalKey.of(getOrdinal()));
+        setDepth(parent == null ? Integer.valueOf(0) : parent.getDepth() != null ? parent.getDepth() + 1 : null);
+        setLeaf(true);
+        if (parent != null && !Boolean.FALSE.equals(parent.getLeaf())) {
+            parent.setLeaf(false);
+        }
 
         deriveFullyQualifiedName();
         deriveFullyQualifiedOrdinal();
@@ -210,47 +360,36 @@ protected Category(
     public Category refreshDerivedValues() {
         deriveFullyQualifiedName();
         deriveFullyQualifiedOrdinal();
+        if (getRank() == null) {
+            // created before ranks were introduced
+            setRank(FractionalKey.of(getOrdinal() != null ? getOrdinal() : 0));
+        }
         return this;
     }
 
+    /**
+     * Derived from the parent's (already derived) fully qualified name, so is independent of the depth of the tree.
+     */
     private void deriveFullyQualifiedName() {
-        StringBuilder buf = new StringBuilder();
-        prependName(this, buf);
-        setFullyQualifiedName(buf.toString());
-    }
-
-    private static void prependName(Category category, final StringBuilder buf) {
-        while (category != null) {
-            prependNameOf(category, buf);
-            category = category.getParent();
-        }
-    }
-
-    private static void prependNameOf(final Category category, final StringBuilder buf) {
-        if (buf.length() > 0) {
-            buf.insert(0, "/");
-        }
-        buf.insert(0, category.getName());
+        final Category parent = getParent();
+        setFullyQualifiedName(
+                parent != null
+                        ? parent.getFullyQualifiedName() + "/" + getName()
+                        : getName());
+        setFullyQualifiedNameHash(PathHash.of(getFullyQualifiedName()));
     }
 
+    /**
+     * As for {@link #deriveFullyQualifiedName()}, derived from the parent's (already derived) value.
+     *
+     * @see OrdinalKey
+     */
     private void deriveFullyQualifiedOrdinal() {
-        StringBuilder buf = new StringBuilder();
-        prependOrdinal(this, buf);
-        setFullyQualifiedOrdinal(buf.toString());
-    }
-
-    private static void prependOrdinal(Category category, final StringBuilder buf) {
-        while (category != null) {
-            prependOrdinalOf(category, buf);
-            category = category.getParent();
-        }
-    }
-
-    private static void prependOrdinalOf(final Category category, final StringBuilder buf) {
-        if (buf.length() > 0) {
-            buf.insert(0, ".");
-        }
-        buf.insert(0, category.getOrdinal());
+        final Category parent = getParent();
+        setFullyQualifiedOrdinal(
+                OrdinalKey.append(
+                        parent != null ? parent.getFullyQualifiedOrdinal() : null,
+                        getOrdinal() != null ? getOrdinal() : 0));
     }
     //endregion
 
@@ -278,6 +417,90 @@ public static class FullyQualifiedNameDomainEvent extends PropertyDomainEvent<St
             editing = Editing.DISABLED
     )
     private String fullyQualifiedName;
+
+    public static class FullyQualifiedNameHashDomainEvent extends PropertyDomainEvent<Long> {
+    }
+
+    /**
+     * {@link PathHash} of the last part of the {@link #getFullyQualifiedName() fully qualified name}, indexed (whereas
+     * the name itself is too wide to index efficiently) so that categories can be
+     * {@link CategoryRepository#findByTaxonomyAndPath(Taxonomy, String) looked up by path}.  Being independent of the
+     * category's ancestors, it is unaffected by renaming or moving them.
+     *
+     * <p>
+     *     Maintained along with the fully qualified name; <tt>null</tt> for categories created before this column was
+     *     introduced, until the taxonomy's {@link CategoryRepository#rebuildHierarchy(Taxonomy) hierarchy is rebuilt}.
+     * </p>
+     */
+    @Getter @Setter
+    @javax.jdo.annotations.Column(allowsNull = "true")
+    @Property(
+            domainEvent = FullyQualifiedNameHashDomainEvent.class,
+            editing = Editing.DISABLED,
+            hidden = Where.EVERYWHERE
+    )
+    private Long fullyQualifiedNameHash;
+    //endregion
+
+    //region > path (derived property, persisted)
+    public static class PathDomainEvent extends PropertyDomainEvent<String> {
+    }
+
+    /**
+     * Materialized path of the ids of this category and all its ancestors, eg "/12/57/301/".
+     *
+     * <p>
+     *     Maintained by {@link CategoryRepository}, allowing descendants to be found by a prefix (range) query and
+     *     ancestry to be tested by a simple string comparison.  Conceptually not-null, but can only be derived once
+     *     the id of the category has been assigned.
+     * </p>
+     */
+    @Getter @Setter
+    @javax.jdo.annotations.Column(allowsNull = "true", length = ClassificationModule.JdoColumnLength.CATEGORY_PATH)
+    @Property(
+            domainEvent = PathDomainEvent.class,
+            editing = Editing.DISABLED,
+            hidden = Where.EVERYWHERE
+    )
+    private String path;
+    //endregion
+
+    //region > lft, rgt (derived properties, persisted)
+    public static class LftDomainEvent extends PropertyDomainEvent<Long> {
+    }
+
+    /**
+     * Lower bound of the nested-set interval of this category, see {@link NestedSetInterval}.
+     *
+     * <p>
+     *     Maintained by {@link CategoryRepository}, allowing descendants (and the objects classified by them) to be
+     *     found with a simple range predicate.  <tt>null</tt> for categories created before intervals were introduced,
+     *     until the taxonomy is {@link CategoryRepository#rebalance(Taxonomy) rebalanced}.
+     * </p>
+     */
+    @Getter @Setter
+    @javax.jdo.annotations.Column(allowsNull = "true")
+    @Property(
+            domainEvent = LftDomainEvent.class,
+            editing = Editing.DISABLED,
+            hidden = Where.EVERYWHERE
+    )
+    private Long lft;
+
+    public static class RgtDomainEvent extends PropertyDomainEvent<Long> {
+    }
+
+    /**
+     * Upper bound of the nested-set interval of this category, see {@link #getLft()}.
+     */
+    @Getter @Setter
+    @javax.jdo.annotations.Column(allowsNull = "true")
+    @Property(
+            domainEvent = RgtDomainEvent.class,
+            editing = Editing.DISABLED,
+            hidden = Where.EVERYWHERE
+    )
+    private Long rgt;
     //endregion
 
     //region > parent (property)
@@ -309,6 +532,10 @@ public static class NameDomainEvent extends PropertyDomainEvent<String> {
     public TranslatableString validateName(final String name) {
         if (name == null)
             return null;
+        final TranslatableString noPathReason = categoryRepository.validateHasPath(this);
+        if (noPathReason != null) {
+            return noPathReason;
+        }
         final Category existingCategoryIfAny = categoryRepository.findByParentAndName(getParent(), name);
         return existingCategoryIfAny != null
                 ? TranslatableString.tr("A category with name '{name}' already exists (under this parent)", "name", name)
@@ -316,12 +543,11 @@ public TranslatableString validateName(final String name) {
     }
 
     public void modifyName(final String name) {
+        final String previousFullyQualifiedName = getFullyQualifiedName();
         setName(name);
         deriveFullyQualifiedName();
-        List<Category> childCategories = categoryRepository.findByParentCascade(this);
-        for (Category childCategory : childCategories) {
-            childCategory.deriveFullyQualifiedName();
-        }
+        categoryRepository.propagateFullyQualifiedName(this, previousFullyQualifiedName);
+        taxonomySnapshotService.invalidate(getTaxonomy());
     }
 
     public void clearName() {
@@ -353,6 +579,7 @@ public TranslatableString validateReference(final String reference) {
 
     public void modifyReference(final String reference) {
         setReference(reference);
+        taxonomySnapshotService.invalidate(getTaxonomy());
     }
 
     //endregion
@@ -361,6 +588,16 @@ public void modifyReference(final String reference) {
     public static class FullyQualifiedOrdinalDomainEvent extends PropertyDomainEvent<String> {
     }
 
+    /**
+     * Sort key encoding the ordinals of this category and of all its ancestors, see {@link OrdinalKey}.
+     *
+     * <p>
+     *     Lists every category after its parent and keeps each subtree together, so is used to order the depth-first
+     *     listings made by the database (of leaves, of a given depth, of descendants, and for export).  Within such
+     *     listings siblings are in ordinal order, which is not necessarily their {@link #getRank() rank} order; see
+     *     {@link #getOrdinal()}.
+     * </p>
+     */
     @Getter @Setter
     @javax.jdo.annotations.Column(allowsNull = "false", length = ClassificationModule.JdoColumnLength.CATEGORY_FQORDINAL)
     @Property(
@@ -375,7 +612,15 @@ public static class OrdinalDomainEvent extends PropertyDomainEvent<Integer> {
     }
 
     /**
-     * Optional ordinal.
+     * Optional ordinal, as entered by the user.
+     *
+     * <p>
+     *     The order of siblings is that of their {@link #getRank() rank}s; the ordinal is not itself a position.
+     *     Setting the ordinal moves the category to just before the first of its siblings (in rank order) with a
+     *     greater ordinal (or last, if none), changing only the category's own rank; siblings that have been
+     *     {@link #placeAfter(Category) placed} elsewhere stay where they are.  Placing a category, conversely, leaves
+     *     its ordinal unchanged.  So siblings that have never been placed remain in ordinal order.
+     * </p>
      */
     @Getter @Setter
     @javax.jdo.annotations.Column(allowsNull = "true")
@@ -388,13 +633,17 @@ public static class OrdinalDomainEvent extends PropertyDomainEvent<Integer> {
     )
     private Integer ordinal;
 
+    public TranslatableString validateOrdinal(final Integer ordinal) {
+        return categoryRepository.validateHasPath(this);
+    }
+
     public void modifyOrdinal(final Integer ordinal) {
+        final String previousFullyQualifiedOrdinal = getFullyQualifiedOrdinal();
         setOrdinal(ordinal != null ? ordinal : 0);
         deriveFullyQualifiedOrdinal();
-        List<Category> childCategories = categoryRepository.findByParentCascade(this);
-        for (Category childCategory : childCategories) {
-            childCategory.deriveFullyQualifiedOrdinal();
-        }
+        categoryRepository.propagateFullyQualifiedOrdinal(this, previousFullyQualifiedOrdinal);
+        categoryRepository.placeByOrdinal(this);
+        taxonomySnapshotService.invalidate(getTaxonomy());
     }
 
     public void clearOrdinal() {
@@ -403,13 +652,163 @@ public void clearOrdinal() {
 
     //endregion
 
+    //region > rank (derived property, persisted)
+    public static class RankDomainEvent extends PropertyDomainEvent<String> {
+    }
+
+    /**
+     * The position of this category amongst its siblings, as a {@link FractionalKey}; the one source of truth for the
+     * order of siblings, as listed by {@link CategoryRepository#findByParent(Category)} and by the taxonomy's
+     * {@link org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshot snapshot}.
+     *
+     * <p>
+     *     Initially derived from the {@link #getOrdinal() ordinal}, then changed (without affecting any other category)
+     *     whenever the category is {@link #placeAfter(Category) placed} elsewhere amongst its siblings or given a new
+     *     ordinal.  Ranks lengthen as categories are placed, and are shortened again when the taxonomy's ranks are
+     *     {@link CategoryRepository#compactRanks(Taxonomy) compacted}, which changes no ordinal.
+     * </p>
+     *
+     * <p>
+     *     <tt>null</tt> for categories created before ranks were introduced, until the taxonomy's
+     *     {@link CategoryRepository#rebuildHierarchy(Taxonomy) hierarchy is rebuilt}.
+     * </p>
+     */
+    @Getter @Setter
+    @javax.jdo.annotations.Column(allowsNull = "true", length = ClassificationModule.JdoColumnLength.CATEGORY_RANK)
+    @Property(
+            domainEvent = RankDomainEvent.class,
+            editing = Editing.DISABLED,
+            hidden = Where.EVERYWHERE
+    )
+    private String rank;
+    //endregion
+
+    //region > depth, leaf (derived properties, persisted)
+    public static class DepthDomainEvent extends PropertyDomainEvent<Integer> {
+    }
+
+    /**
+     * The number of ancestors of this category (0 for a {@link Taxonomy}, 1 for its immediate children, and so on).
+     *
+     * <p>
+     *     Maintained by {@link CategoryRepository}.  <tt>null</tt> for categories created before depths were
+     *     introduced, until the taxonomy's {@link CategoryRepository#rebuildHierarchy(Taxonomy) hierarchy is rebuilt}.
+     * </p>
+     */
+    @Getter @Setter
+    @javax.jdo.annotations.Column(allowsNull = "true")
+    @Property(
+            domainEvent = DepthDomainEvent.class,
+            editing = Editing.DISABLED,
+            hidden = Where.EVERYWHERE
+    )
+    private Integer depth;
+
+    public static class LeafDomainEvent extends PropertyDomainEvent<Boolean> {
+    }
+
+    /**
+     * Whether this category has no children, so that leaf categories can be found (see
+     * {@link CategoryRepository#findLeavesByTaxonomy(Taxonomy)}) without loading any {@link #getChildren() children}.
+     *
+     * <p>
+     *     Maintained by {@link CategoryRepository}; as for {@link #getDepth()}, <tt>null</tt> for categories created
+     *     before this flag was introduced.
+     * </p>
+     */
+    @Getter @Setter
+    @javax.jdo.annotations.Column(allowsNull = "true")
+    @Property(
+            domainEvent = LeafDomainEvent.class,
+            editing = Editing.DISABLED,
+            hidden = Where.EVERYWHERE
+    )
+    private Boolean leaf;
+    //endregion
+
     //region > children (property)
+
+    /**
+     * All of the children, loaded in one go; hidden because a category may have tens of thousands of them (see instead
+     * {@link #getFirstChildren()} and {@link CategoryRepository#findChildren(Category, int, int)}).
+     */
     @Persistent(mappedBy = "parent", dependentElement = "false")
-    @Collection(editing = Editing.DISABLED)
+    @Collection(editing = Editing.DISABLED, hidden = Where.EVERYWHERE)
     @Getter @Setter
     private SortedSet<Category> children = new TreeSet<>();
     //endregion
 
+    //region > childCount (derived property)
+    public static class ChildCountDomainEvent extends PropertyDomainEvent<Integer> {
+    }
+
+    @javax.jdo.annotations.NotPersistent
+    @Property(
+            domainEvent = ChildCountDomainEvent.class,
+            notPersisted = true
+    )
+    public int getChildCount() {
+        return categoryRepository.countChildren(this);
+    }
+    //endregion
+
+    //region > firstChildren (derived collection)
+    public static class FirstChildrenDomainEvent extends CollectionDomainEvent<Category> {
+    }
+
+    /**
+     * The number of children shown by {@link #getFirstChildren()}.
+     */
+    public static final int CHILDREN_PAGE_SIZE = 100;
+
+    /**
+     * The first {@link #CHILDREN_PAGE_SIZE} children (in rank order), read with a single ranged query; the rest are
+     * reached with {@link #childrenFrom(Category)}.
+     */
+    @javax.jdo.annotations.NotPersistent
+    @Collection(
+            domainEvent = FirstChildrenDomainEvent.class,
+            notPersisted = true,
+            editing = Editing.DISABLED
+    )
+    public List<Category> getFirstChildren() {
+        return categoryRepository.findChildren(this, 0, CHILDREN_PAGE_SIZE);
+    }
+    //endregion
+
+    //region > childrenFrom (action)
+
+    /**
+     * The next {@link #CHILDREN_PAGE_SIZE} children, starting with the one provided (as found by name or reference);
+     * the way to page through the children beyond the {@link #getFirstChildren() first}.  Each page is a single
+     * keyset query, see {@link CategoryRepository#findChildrenAfter(Category, Category, int)}.
+     */
+    @Action(semantics = SemanticsOf.SAFE)
+    @ActionLayout(
+            cssClassFa = "fa-forward",
+            named = "From"
+    )
+    @MemberOrder(name = "firstChildren", sequence = "3")
+    public List<Category> childrenFrom(
+            @ParameterLayout(named = "First child")
+            final Category child) {
+        final List<Category> children = Lists.newArrayList(child);
+        children.addAll(categoryRepository.findChildrenAfter(this, child, CHILDREN_PAGE_SIZE - 1));
+        return children;
+    }
+
+    public List<Category> autoComplete0ChildrenFrom(final String search) {
+        return findChildren(search);
+    }
+
+    public TranslatableString validate0ChildrenFrom(final Category child) {
+        return child.getParent() != this
+                ? TranslatableString.tr("'{child}' is not a child", "child", child.getName())
+                : null;
+    }
+
+    // endregion
+
     //region > addChild (action)
 
     @Action()
@@ -417,7 +816,7 @@ public void clearOrdinal() {
             cssClassFa = "fa-plus",
             named = "Add"
     )
-    @MemberOrder(name = "children", sequence = "1")
+    @MemberOrder(name = "firstChildren", sequence = "1")
     public Category addChild(
             @ParameterLayout(named = "Name")
             final String name,
@@ -430,10 +829,15 @@ public Category addChild(
         return categoryRepository.createChild(this, name, reference, ordinal);
     }
 
+    public TranslatableString validateAddChild(final String name, final String reference, final Integer ordinal) {
+        return categoryRepository.validateHasPath(this);
+    }
+
+    /**
+     * Checked with an (indexed) query for the one clashing child, rather than by loading all of the children.
+     */
     public TranslatableString validate0AddChild(final String name) {
-        final Optional<Category> any =
-                new ArrayList<>(getChildren()).stream().filter(x -> Objects.equals(x.getName(), name)).findAny();
-        return any.isPresent()
+        return categoryRepository.findByParentAndName(this, name) != null
                 ? TranslatableString.tr(
                 "There is already a child classification with the name of '{name}'",
                 "name", name)
@@ -444,10 +848,7 @@ public TranslatableString validate1AddChild(final String reference) {
         if (reference == null) {
             return null;
         }
-
-        final Optional<Category> any =
-                new ArrayList<>(getChildren()).stream().filter(x -> Objects.equals(x.getReference(), reference)).findAny();
-        return any.isPresent()
+        return categoryRepository.findByParentAndReference(this, reference) != null
                 ? TranslatableString.tr(
                 "There is already a child classification with the reference of '{reference}'",
                 "reference", reference)
@@ -462,28 +863,182 @@ public TranslatableString validate1AddChild(final String reference) {
             cssClassFa = "fa-minus",
             named = "Remove"
     )
-    @MemberOrder(name = "children", sequence = "2")
+    @MemberOrder(name = "firstChildren", sequence = "2")
     public Category removeChild(final Category category) {
         categoryRepository.removeCascade(category);
         return this;
     }
 
-    public java.util.Collection<Category> choices0RemoveChild() {
-        return getChildren();
+    public List<Category> autoComplete0RemoveChild(final String search) {
+        return findChildren(search);
     }
 
     public TranslatableString validateRemoveChild(final Category category) {
+        final TranslatableString noPathReason = categoryRepository.validateHasPath(category);
+        if (noPathReason != null) {
+            return noPathReason;
+        }
         return categoryRepository.validateRemoveCascade(category);
     }
 
     // endregion
 
+    //region > placeAfter (action)
+
+    /**
+     * Moves this category amongst its siblings, to just after the one provided (or first, if none), by changing only
+     * its own {@link #getRank() rank}; see {@link CategoryRepository#placeAfter(Category, Category)}.
+     */
+    @Action(semantics = SemanticsOf.IDEMPOTENT)
+    @ActionLayout(
+            cssClassFa = "fa-sort",
+            named = "Place after"
+    )
+    public Category placeAfter(
+            @Nullable
+            @ParameterLayout(named = "Sibling (none for first)")
+            final Category sibling) {
+        categoryRepository.placeAfter(this, sibling);
+        return this;
+    }
+
+    public boolean hidePlaceAfter() {
+        return getParent() == null;
+    }
+
+    public List<Category> autoComplete0PlaceAfter(final String search) {
+        return getParent().findChildren(search).stream()
+                .filter(x -> x != this)
+                .collect(Collectors.toList());
+    }
+
+    public TranslatableString validatePlaceAfter(final Category sibling) {
+        return sibling != null && sibling.getParent() != getParent()
+                ? TranslatableString.tr("'{sibling}' is not a sibling", "sibling", sibling.getName())
+                : null;
+    }
+
+    // endregion
+
+    //region > moveTo (action)
+
+    /**
+     * Moves this category, along with all of its descendants (and their classifications), under a different parent
+     * within the same taxonomy; see {@link CategoryRepository#moveSubtree(Category, Category)}.
+     */
+    @Action(semantics = SemanticsOf.IDEMPOTENT)
+    @ActionLayout(
+            cssClassFa = "fa-share",
+            named = "Move"
+    )
+    public Category moveTo(
+            @ParameterLayout(named = "New parent")
+            final Category newParent) {
+        categoryRepository.moveSubtree(this, newParent);
+        return this;
+    }
+
+    public boolean hideMoveTo() {
+        return getParent() == null;
+    }
+
+    public List<Category> autoComplete0MoveTo(final String search) {
+        return findInTaxonomy(search).stream()
+                .filter(x -> x != getParent() && !isWithinSubtree(x))
+                .collect(Collectors.toList());
+    }
+
+    public TranslatableString validateMoveTo(final Category newParent) {
+        return categoryRepository.validateMoveSubtree(this, newParent);
+    }
+
+    // endregion
+
+    //region > mergeInto (action)
+
+    /**
+     * Merges this category into another of the same taxonomy, which takes over all of this category's classifications
+     * and children; this category is then removed.  See {@link CategoryRepository#mergeInto(Category, Category)}.
+     */
+    @Action(semantics = SemanticsOf.NON_IDEMPOTENT)
+    @ActionLayout(
+            cssClassFa = "fa-compress",
+            named = "Merge into"
+    )
+    public Category mergeInto(
+            @ParameterLayout(named = "Target")
+            final Category target) {
+        return categoryRepository.mergeInto(this, target);
+    }
+
+    public boolean hideMergeInto() {
+        return getParent() == null;
+    }
+
+    public List<Category> autoComplete0MergeInto(final String search) {
+        return findInTaxonomy(search).stream()
+                .filter(x -> !isWithinSubtree(x))
+                .collect(Collectors.toList());
+    }
+
+    public TranslatableString validateMergeInto(final Category target) {
+        return categoryRepository.validateMergeInto(this, target);
+    }
+
+    // endregion
+
+    //region > helpers (for autoComplete)
+
+    /**
+     * The categories of this taxonomy with the reference or the fully qualified name (eg "Sizes/Large") searched for;
+     * with indexed queries rather than by loading the whole taxonomy.
+     */
+    private List<Category> findInTaxonomy(final String search) {
+        final Set<Category> matches = Sets.newLinkedHashSet();
+        matches.addAll(categoryRepository.findAllByTaxonomyAndReference(getTaxonomy(), search));
+        addIfNotNull(matches, categoryRepository.findByTaxonomyAndPath(getTaxonomy(), search));
+        return Lists.newArrayList(matches);
+    }
+
+    /**
+     * The child with the reference or name searched for, and then (up to {@link #CHILDREN_PAGE_SIZE} of) those whose
+     * names start with it, amongst all of the children; with indexed queries rather than by loading the children.
+     */
+    private List<Category> findChildren(final String search) {
+        final Set<Category> matches = Sets.newLinkedHashSet();
+        addIfNotNull(matches, categoryRepository.findByParentAndReference(this, search));
+        addIfNotNull(matches, categoryRepository.findByParentAndName(this, search));
+        matches.addAll(categoryRepository.findChildrenByNamePrefix(this, search, CHILDREN_PAGE_SIZE));
+        return Lists.newArrayList(matches);
+    }
+
+    private boolean isWithinSubtree(final Category category) {
+        return category == this || categoryRepository.isDescendantOf(category, this);
+    }
+
+    private static void addIfNotNull(final Set<Category> categories, final Category category) {
+        if (category != null) {
+            categories.add(category);
+        }
+    }
+
+    //endregion
+
     //region > all (derived collection)
     public static class AllDomainEvent extends CollectionDomainEvent<Category> {
     }
 
+    /**
+     * All descendants, as per {@link CategoryRepository#findByParentCascade(Category)}; hidden because a category may
+     * have tens of thousands of them (see instead {@link #getFirstChildren()}).
+     */
     @javax.jdo.annotations.NotPersistent
-    @Collection(notPersisted = true, editing = Editing.DISABLED)
+    @Collection(
+            domainEvent = AllDomainEvent.class,
+            notPersisted = true,
+            editing = Editing.DISABLED,
+            hidden = Where.EVERYWHERE
+    )
     public List<Category> getAll() {
         return categoryRepository.findByParentCascade(this);
     }
@@ -491,14 +1046,24 @@ public List<Category> getAll() {
 
     //region > toString, compareTo
 
+    /**
+     * By {@link #getFullyQualifiedName() fully qualified name} (nulls first); used for every insertion into a
+     * sorted set of categories (eg {@link #getChildren() children}), so compares the property directly rather than
+     * reflectively.  Orders exactly as did <tt>ObjectContracts.compare(..., "fullyQualifiedName")</tt>, which treated
+     * a <tt>null</tt> category as one whose name is <tt>null</tt>.
+     */
+    public static final Comparator<Category> COMPARATOR = Comparator.comparing(
+            (Category category) -> category != null ? category.getFullyQualifiedName() : null,
+            Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
     @Override
     public String toString() {
-        return ObjectContracts.toString(this, "fullyQualifiedName");
+        return getClass().getSimpleName() + "{fullyQualifiedName=" + getFullyQualifiedName() + "}";
     }
 
     @Override
     public int compareTo(final Category other) {
-        return ObjectContracts.compare(this, other, "fullyQualifiedName");
+        return COMPARATOR.compare(this, other);
     }
 
     //endregion
@@ -511,6 +1076,8 @@ public int compareTo(final Category other) {
     protected CategoryRepository categoryRepository;
     @Inject
     protected ClassificationRepository classificationRepository;
+    @Inject
+    protected TaxonomySnapshotService taxonomySnapshotService;
 
     //endregion
 
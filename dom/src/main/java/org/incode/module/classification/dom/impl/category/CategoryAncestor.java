@@ -0,0 +1,118 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+import javax.jdo.annotations.IdGeneratorStrategy;
+import javax.jdo.annotations.IdentityType;
+
+import org.apache.isis.applib.annotation.DomainObject;
+import org.apache.isis.applib.annotation.Editing;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Closure table for the {@link Category} hierarchy: one row for every (ancestor, descendant) pair, including the
+ * pair of each category with itself (at depth 0).
+ *
+ * <p>
+ *     Maintained by {@link CategoryRepository}; allows all descendants of a category to be fetched in a single
+ *     (indexed) query rather than one query per node.
+ * </p>
+ */
+@javax.jdo.annotations.PersistenceCapable(
+        schema = "incodeClassification",
+        table = "CategoryAncestor",
+        identityType = IdentityType.DATASTORE)
+@javax.jdo.annotations.DatastoreIdentity(
+        strategy = IdGeneratorStrategy.IDENTITY,
+        column = "id")
+@javax.jdo.annotations.Queries({
+        @javax.jdo.annotations.Query(
+                name = "findByDescendant", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.CategoryAncestor "
+                        + "WHERE descendant == :descendant "
+                        + "ORDER BY depth DESC "),
+        @javax.jdo.annotations.Query(
+                name = "findByTaxonomy", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.category.CategoryAncestor "
+                        + "WHERE descendant.taxonomy == :taxonomy ")
+})
+@javax.jdo.annotations.Indices({
+        @javax.jdo.annotations.Index(
+                name = "CategoryAncestor_ancestor_depth_IDX",
+                members = { "ancestor", "depth" }),
+        @javax.jdo.annotations.Index(
+                name = "CategoryAncestor_descendant_IDX",
+                members = { "descendant" })
+})
+@javax.jdo.annotations.Uniques({
+        @javax.jdo.annotations.Unique(
+                name = "CategoryAncestor_ancestor_descendant_UNQ",
+                members = { "ancestor", "descendant" })
+})
+@DomainObject(
+        editing = Editing.DISABLED
+)
+public class CategoryAncestor {
+
+    //region > constructor
+    public CategoryAncestor(final Category ancestor, final Category descendant, final int depth) {
+        setAncestor(ancestor);
+        setDescendant(descendant);
+        setDepth(depth);
+    }
+    //endregion
+
+    //region > ancestor (property)
+    @javax.jdo.annotations.Column(allowsNull = "false", name = "ancestorId")
+    @Getter @Setter
+    private Category ancestor;
+    //endregion
+
+    //region > descendant (property)
+    @javax.jdo.annotations.Column(allowsNull = "false", name = "descendantId")
+    @Getter @Setter
+    private Category descendant;
+    //endregion
+
+    //region > depth (property)
+    /**
+     * Number of levels between the {@link #getAncestor() ancestor} and the {@link #getDescendant() descendant}; 0
+     * for the row relating a category to itself.
+     */
+    @javax.jdo.annotations.Column(allowsNull = "false")
+    @Getter @Setter
+    private int depth;
+    //endregion
+
+    //region > toString
+
+    @Override
+    public String toString() {
+        return "CategoryAncestor{ancestor=" + getAncestor()
+                + ", descendant=" + getDescendant()
+                + ", depth=" + getDepth() + "}";
+    }
+
+    //endregion
+
+}
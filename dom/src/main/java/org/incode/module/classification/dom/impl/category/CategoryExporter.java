@@ -0,0 +1,191 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.jdo.PersistenceManager;
+import javax.jdo.Query;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.NatureOfService;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
+
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+
+/**
+ * Exports the categories of a {@link Taxonomy} as <tt>(path, reference, ordinal)</tt> rows, in the formats read by
+ * {@link CategoryImporter}.
+ *
+ * <p>
+ *     The rows are read with a projection (so no {@link Category} is instantiated) through a forward-only cursor with
+ *     result caching disabled, {@link #FETCH_SIZE} at a time, in
+ *     {@link Category#getFullyQualifiedOrdinal() fully qualified ordinal} order (so every category follows its parent).
+ *     Each row is written straight to the provided {@link Writer}, so heap usage does not depend on the size of the
+ *     taxonomy.
+ * </p>
+ */
+@DomainService(
+        nature = NatureOfService.DOMAIN
+)
+public class CategoryExporter {
+
+    /**
+     * Number of rows fetched from the database at a time.
+     */
+    public static final int FETCH_SIZE = 1000;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    //region > export (programmatic)
+
+    /**
+     * @return the number of categories exported.
+     */
+    @Programmatic
+    public int export(final Taxonomy taxonomy, final Writer writer, final CategoryImporter.Format format) {
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        pm.flush();
+
+        final Query query = pm.newQuery(
+                "SELECT fullyQualifiedName, reference, ordinal "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE taxonomy == :taxonomy "
+                        + "&&    parent != null "
+                        + "ORDER BY fullyQualifiedOrdinal, fullyQualifiedName");
+        query.getFetchPlan().setFetchSize(FETCH_SIZE);
+        query.addExtension("datanucleus.query.resultCacheType", "none");
+        query.addExtension("datanucleus.query.loadResultsAtCommit", "false");
+        query.addExtension("datanucleus.rdbms.query.resultSetType", "forward-only");
+        query.addExtension("datanucleus.rdbms.query.fetchDirection", "forward");
+
+        final int prefixLength = taxonomy.getFullyQualifiedName().length() + 1;
+        try (RowWriter rowWriter = format == CategoryImporter.Format.JSON
+                ? new JsonRowWriter(writer)
+                : new CsvRowWriter(writer)) {
+            int count = 0;
+            @SuppressWarnings("unchecked")
+            final List<Object[]> rows = (List<Object[]>) query.execute(taxonomy);
+            for (final Object[] row : rows) {
+                rowWriter.write(
+                        ((String) row[0]).substring(prefixLength),
+                        (String) row[1],
+                        (Integer) row[2]);
+                count++;
+            }
+            return count;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            query.closeAll();
+        }
+    }
+
+    //endregion
+
+    //region > row writers
+
+    interface RowWriter extends AutoCloseable {
+        void write(String path, String reference, Integer ordinal) throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    static class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(final Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write("path,reference,ordinal\n");
+        }
+
+        @Override
+        public void write(final String path, final String reference, final Integer ordinal) throws IOException {
+            writer.write(quoted(path));
+            writer.write(',');
+            writer.write(reference != null ? quoted(reference) : "");
+            writer.write(',');
+            writer.write(ordinal != null ? ordinal.toString() : "");
+            writer.write('\n');
+        }
+
+        private static String quoted(final String field) {
+            if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+                return field;
+            }
+            return '"' + field.replace("\"", "\"\"") + '"';
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    static class JsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+
+        JsonRowWriter(final Writer writer) throws IOException {
+            this.generator = JSON_FACTORY.createGenerator(writer);
+            // leave the writer open for the caller
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+        }
+
+        @Override
+        public void write(final String path, final String reference, final Integer ordinal) throws IOException {
+            generator.writeRaw('\n');
+            generator.writeStartObject();
+            generator.writeStringField("path", path);
+            if (reference != null) {
+                generator.writeStringField("reference", reference);
+            }
+            if (ordinal != null) {
+                generator.writeNumberField("ordinal", ordinal);
+            }
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeRaw('\n');
+            generator.writeEndArray();
+            generator.close();
+        }
+    }
+
+    //endregion
+
+    //region > injected
+    @Inject
+    IsisJdoSupport isisJdoSupport;
+    //endregion
+
+}
@@ -0,0 +1,694 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.CharSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.NatureOfService;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.ClassificationModule;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshot;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshotService;
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
+
+import lombok.Getter;
+
+/**
+ * Imports the categories of a {@link Taxonomy} from a CSV or JSON file of <tt>(path, reference, ordinal)</tt> rows,
+ * where <tt>path</tt> is the names of the category and of its ancestors below the taxonomy, separated by "/" (eg
+ * "Large/Largest").  A category's parent must either already exist or appear in an earlier row.
+ *
+ * <p>
+ *     CSV files have a header row naming the columns; JSON files are either an array of objects or a sequence of
+ *     objects (one per line), eg <tt>{"path": "Large/Largest", "reference": "XXL", "ordinal": 1}</tt>.
+ * </p>
+ *
+ * <p>
+ *     The file is read twice, streaming each time.  The first pass validates every row (unknown parents, duplicate
+ *     names and references under the same parent, names, references, fully qualified names and paths too long for
+ *     their columns, and categories nested too deeply) using in-memory hash maps, with a single query; nothing is
+ *     written if any row is invalid.  The second pass writes the categories in chunks of {@link #CHUNK_SIZE}, each in
+ *     its own transaction, so only the paths and ids of the categories (rather than the categories themselves) are
+ *     held in memory.  The {@link Category#getLft() nested-set intervals} are then numbered in one go, by
+ *     {@link CategoryRepository#rebalance(Taxonomy)}.
+ * </p>
+ *
+ * <p>
+ *     Validation cannot foresee every failure to write (eg a concurrent change), so the import is not atomic: if a
+ *     chunk fails to be written, those already committed are kept (and made usable, by numbering their intervals and
+ *     discarding the cached snapshot), and the {@link Result} reports the failure along with the
+ *     {@link Result#getResumeAfterRow() last row committed}.  Importing the same file again, resuming after that row,
+ *     then skips the rows already imported.
+ * </p>
+ */
+@DomainService(
+        nature = NatureOfService.DOMAIN
+)
+public class CategoryImporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CategoryImporter.class);
+
+    /**
+     * Number of rows written per transaction.
+     */
+    public static final int CHUNK_SIZE = 1000;
+
+    /**
+     * Maximum number of validation errors reported.
+     */
+    public static final int MAX_ERRORS = 100;
+
+    public enum Format {
+        CSV,
+        JSON;
+
+        /**
+         * The format implied by the extension of the file name, defaulting to {@link #CSV}.
+         */
+        public static Format of(final String fileName) {
+            return fileName != null && fileName.toLowerCase().endsWith(".json") ? JSON : CSV;
+        }
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    public static class Result {
+
+        @Getter
+        private final int rowsRead;
+        @Getter
+        private final int rowsImported;
+        @Getter
+        private final List<String> errors;
+        @Getter
+        private final long elapsedMillis;
+        /**
+         * The (1-based) number of the last row committed if writing failed part-way, to resume after when importing
+         * the same file again; else <tt>null</tt>.
+         */
+        @Getter
+        private final Integer resumeAfterRow;
+
+        Result(final int rowsRead, final int rowsImported, final List<String> errors, final long elapsedMillis) {
+            this(rowsRead, rowsImported, errors, elapsedMillis, null);
+        }
+
+        Result(
+                final int rowsRead,
+                final int rowsImported,
+                final List<String> errors,
+                final long elapsedMillis,
+                final Integer resumeAfterRow) {
+            this.rowsRead = rowsRead;
+            this.rowsImported = rowsImported;
+            this.errors = Collections.unmodifiableList(errors);
+            this.elapsedMillis = elapsedMillis;
+            this.resumeAfterRow = resumeAfterRow;
+        }
+
+        public boolean isValid() {
+            return errors.isEmpty();
+        }
+
+        public long getRowsPerSecond() {
+            return elapsedMillis > 0 ? rowsImported * 1000L / elapsedMillis : rowsImported;
+        }
+
+        @Override
+        public String toString() {
+            if (isValid()) {
+                return String.format("Imported %d rows in %d ms (%d rows/sec)", rowsImported, elapsedMillis, getRowsPerSecond());
+            }
+            return resumeAfterRow != null
+                    ? String.format("Imported %d rows, then failed: %s; import the file again resuming after row %d",
+                            rowsImported, errors.get(0), resumeAfterRow)
+                    : String.format("Rejected %d rows: %d error(s), eg %s", rowsRead, errors.size(), errors.get(0));
+        }
+    }
+
+    //region > importCategories (programmatic)
+
+    /**
+     * @throws IllegalStateException if the taxonomy's hierarchy has yet to be
+     * {@link CategoryRepository#rebuildHierarchy(Taxonomy) rebuilt}.
+     */
+    @Programmatic
+    public Result importCategories(final Taxonomy taxonomy, final CharSource source, final Format format) {
+        return importCategories(taxonomy, source, format, 0);
+    }
+
+    /**
+     * As {@link #importCategories(Taxonomy, CharSource, Format)}, but skipping (neither validating nor writing) the
+     * rows up to and including <tt>resumeAfterRow</tt>, as committed by an earlier import of the same file that
+     * failed part-way (see {@link Result#getResumeAfterRow()}).
+     */
+    @Programmatic
+    public Result importCategories(
+            final Taxonomy taxonomy,
+            final CharSource source,
+            final Format format,
+            final int resumeAfterRow) {
+        final long start = System.currentTimeMillis();
+
+        categoryRepository.requireHierarchy(taxonomy);
+        final TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(taxonomy);
+        final List<String> errors = Lists.newArrayList();
+        final int rowsRead = validate(snapshot, source, format, resumeAfterRow, errors);
+        if (!errors.isEmpty()) {
+            return new Result(rowsRead, 0, errors, System.currentTimeMillis() - start);
+        }
+
+        final int[] lastRowCommitted = { resumeAfterRow };
+        int rowsImported;
+        Integer resumeAfter = null;
+        try {
+            rowsImported = write(taxonomy, snapshot, source, format, lastRowCommitted);
+        } catch (RuntimeException ex) {
+            LOG.error(String.format("Failed to import into '%s' after row %d", taxonomy.getName(), lastRowCommitted[0]), ex);
+            // discard the failed chunk, keeping those already committed
+            transactionService.nextTransaction();
+            errors.add(String.format("Row %d onwards: %s", lastRowCommitted[0] + 1, ex.getMessage()));
+            rowsImported = lastRowCommitted[0] - resumeAfterRow;
+            resumeAfter = lastRowCommitted[0];
+        }
+        categoryRepository.rebalance(taxonomy);
+        taxonomySnapshotService.invalidate(taxonomy);
+        if (resumeAfter != null) {
+            // commit the intervals of the chunks already committed, as reporting the failure may abort the transaction
+            transactionService.nextTransaction();
+        }
+
+        final Result result =
+                new Result(rowsRead, rowsImported, errors, System.currentTimeMillis() - start, resumeAfter);
+        LOG.info("{} into '{}'", result, taxonomy.getName());
+        return result;
+    }
+
+    //endregion
+
+    //region > readTree (programmatic)
+
+    /**
+     * Reads the whole file into a {@link TaxonomyBuilder} (rather than writing it to a taxonomy), eg as the master copy
+     * to {@link TaxonomySynchronizer#sync(Taxonomy, TaxonomyBuilder) synchronize} a taxonomy against.
+     *
+     * @throws IllegalArgumentException if any row is invalid, or the file cannot be read.
+     */
+    @Programmatic
+    public TaxonomyBuilder readTree(final String name, final CharSource source, final Format format) {
+        final TaxonomyBuilder builder = new TaxonomyBuilder(name);
+        final Map<String, TaxonomyBuilder.Node> nodeByPath = Maps.newHashMap();
+        try (RowReader reader = open(source, format)) {
+            for (Row row = reader.next(); row != null; row = reader.next()) {
+                final String parentPath = parentPathOf(row.path);
+                final TaxonomyBuilder.Node parent = parentPath == null ? builder.getRoot() : nodeByPath.get(parentPath);
+                if (parent == null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Row %d ('%s'): parent does not exist", reader.getRowNumber(), row.path));
+                }
+                try {
+                    nodeByPath.put(row.path, parent.addChild(nameOf(row.path), row.reference, row.ordinal));
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException(String.format(
+                            "Row %d ('%s'): %s", reader.getRowNumber(), row.path, ex.getMessage()), ex);
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(String.format("Unable to read %s: %s", format, ex.getMessage()), ex);
+        }
+        return builder;
+    }
+
+    //endregion
+
+    //region > validate (first pass)
+
+    private int validate(
+            final TaxonomySnapshot snapshot,
+            final CharSource source,
+            final Format format,
+            final int resumeAfterRow,
+            final List<String> errors) {
+
+        // keyed by path, and by parent path + reference
+        final Map<String, PathLength> pathLengthByPath = Maps.newHashMap();
+        final Set<String> references = Sets.newHashSet();
+        final Map<Long, Integer> pathLengthById = Maps.newHashMap();
+        final TaxonomySnapshot.Node root = snapshot.getRoot();
+        final PathLength rootPathLength = new PathLength(1 + digitsOf(root.getId()) + 1, 0);
+        pathLengthById.put(root.getId(), rootPathLength.existing);
+        for (final TaxonomySnapshot.Node node : snapshot.getDescendants(root)) {
+            // depth-first, so the parent's path length is already known
+            final int pathLength = pathLengthById.get(snapshot.getParent(node).getId()) + digitsOf(node.getId()) + 1;
+            pathLengthById.put(node.getId(), pathLength);
+            final String path = pathOf(snapshot, node);
+            pathLengthByPath.put(path, new PathLength(pathLength, 0));
+            if (node.getReference() != null) {
+                references.add(referenceKey(parentPathOf(path), node.getReference()));
+            }
+        }
+        final int fullyQualifiedNamePrefixLength = root.getFullyQualifiedName().length() + 1;
+
+        // the ids of the new categories are not known until written, so the longest paths are checked at the end
+        final PathLength[] longestByNewLevels = new PathLength[OrdinalKey.MAX_DEPTH + 1];
+        final String[] longestRowByNewLevels = new String[OrdinalKey.MAX_DEPTH + 1];
+
+        int rowsRead = 0;
+        try (RowReader reader = open(source, format)) {
+            for (Row row = reader.next(); row != null; row = reader.next()) {
+                if (reader.getRowNumber() <= resumeAfterRow) {
+                    // written by an earlier import, so now within the snapshot
+                    continue;
+                }
+                rowsRead++;
+                final String rowDescription = String.format("Row %d ('%s')", reader.getRowNumber(), row.path);
+                final String error = validate(
+                        row, rootPathLength, pathLengthByPath, references, fullyQualifiedNamePrefixLength);
+                if (error != null) {
+                    if (errors.size() < MAX_ERRORS) {
+                        errors.add(rowDescription + ": " + error);
+                    }
+                    continue;
+                }
+                final PathLength pathLength = pathLengthByPath.get(row.path);
+                final PathLength longest = longestByNewLevels[pathLength.newLevels];
+                if (longest == null || pathLength.existing > longest.existing) {
+                    longestByNewLevels[pathLength.newLevels] = pathLength;
+                    longestRowByNewLevels[pathLength.newLevels] = rowDescription;
+                }
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            errors.add(String.format("Unable to read %s: %s", format, ex.getMessage()));
+        }
+
+        final int idDigits = digitsOf(maxCategoryId() + rowsRead);
+        for (int newLevels = 1; newLevels < longestByNewLevels.length; newLevels++) {
+            final PathLength longest = longestByNewLevels[newLevels];
+            if (longest != null && longest.lengthWith(idDigits) > ClassificationModule.JdoColumnLength.CATEGORY_PATH
+                    && errors.size() < MAX_ERRORS) {
+                errors.add(longestRowByNewLevels[newLevels] + ": nested too deeply (path too long)");
+            }
+        }
+        return rowsRead;
+    }
+
+    private static String validate(
+            final Row row,
+            final PathLength rootPathLength,
+            final Map<String, PathLength> pathLengthByPath,
+            final Set<String> references,
+            final int fullyQualifiedNamePrefixLength) {
+        if (Strings.isNullOrEmpty(row.path) || row.path.startsWith("/") || row.path.endsWith("/")
+                || row.path.contains("//")) {
+            return "invalid path";
+        }
+        final String parentPath = parentPathOf(row.path);
+        final PathLength parentPathLength = parentPath != null ? pathLengthByPath.get(parentPath) : rootPathLength;
+        if (parentPathLength == null) {
+            return "parent does not exist";
+        }
+        if (nameOf(row.path).length() > ClassificationModule.JdoColumnLength.CATEGORY_NAME) {
+            return String.format("name is longer than %d characters", ClassificationModule.JdoColumnLength.CATEGORY_NAME);
+        }
+        if (row.reference != null && row.reference.length() > ClassificationModule.JdoColumnLength.CATEGORY_REFERENCE) {
+            return String.format("reference is longer than %d characters",
+                    ClassificationModule.JdoColumnLength.CATEGORY_REFERENCE);
+        }
+        if (fullyQualifiedNamePrefixLength + row.path.length() > ClassificationModule.JdoColumnLength.CATEGORY_FQNAME) {
+            return String.format("fully qualified name is longer than %d characters",
+                    ClassificationModule.JdoColumnLength.CATEGORY_FQNAME);
+        }
+        // the taxonomy's own ordinal key is the first level
+        if (CharMatcher.is('/').countIn(row.path) + 2 > OrdinalKey.MAX_DEPTH) {
+            return String.format("cannot nest categories more than %d levels deep", OrdinalKey.MAX_DEPTH);
+        }
+        if (pathLengthByPath.containsKey(row.path)) {
+            return "there is already a category with this name (under this parent)";
+        }
+        if (row.reference != null && !references.add(referenceKey(parentPath, row.reference))) {
+            return String.format("there is already a category with reference '%s' (under this parent)", row.reference);
+        }
+        pathLengthByPath.put(row.path, parentPathLength.child());
+        return null;
+    }
+
+    private long maxCategoryId() {
+        final Long maxId = jdbcSupport.executeQuery(
+                "SELECT MAX(\"id\") FROM " + JdbcSupport.CATEGORY,
+                rs -> {
+                    final long id = rs.getLong(1);
+                    return rs.wasNull() ? null : id;
+                }).get(0);
+        return maxId != null ? maxId : 0L;
+    }
+
+    private static int digitsOf(final long id) {
+        return Long.toString(id).length();
+    }
+
+    /**
+     * The length of the {@link Category#getPath() path} of a category, as the length of that of its nearest existing
+     * ancestor plus the number of new levels below it (the ids of new categories not being known until written).
+     */
+    private static final class PathLength {
+
+        final int existing;
+        final int newLevels;
+
+        PathLength(final int existing, final int newLevels) {
+            this.existing = existing;
+            this.newLevels = newLevels;
+        }
+
+        PathLength child() {
+            return new PathLength(existing, newLevels + 1);
+        }
+
+        int lengthWith(final int idDigits) {
+            return existing + newLevels * (idDigits + 1);
+        }
+    }
+
+    //endregion
+
+    //region > write (second pass)
+
+    /**
+     * @param lastRowCommitted - holds the number of the last row committed, updated as each chunk is committed.
+     */
+    private int write(
+            final Taxonomy taxonomy,
+            final TaxonomySnapshot snapshot,
+            final CharSource source,
+            final Format format,
+            final int[] lastRowCommitted) {
+
+        final Map<String, Long> idByPath = Maps.newHashMap();
+        for (final TaxonomySnapshot.Node node : snapshot.getDescendants(snapshot.getRoot())) {
+            idByPath.put(pathOf(snapshot, node), node.getId());
+        }
+
+        int rowsImported = 0;
+        try (RowReader reader = open(source, format)) {
+            final Map<String, Category> categoryByPath = Maps.newHashMap();
+            final List<Object[]> ancestorRows = Lists.newArrayList();
+            for (Row row = reader.next(); row != null; row = reader.next()) {
+                if (reader.getRowNumber() <= lastRowCommitted[0]) {
+                    continue;
+                }
+                final String parentPath = parentPathOf(row.path);
+                final Category parent = parentPath == null
+                        ? taxonomy
+                        : categoryByPath.computeIfAbsent(parentPath,
+                                x -> jdbcSupport.findById(Category.class, idByPath.get(x)));
+
+                final Category category = new Category(parent, nameOf(row.path), row.reference, row.ordinal);
+                categoryRepository.persistChild(category, ancestorRows);
+                categoryByPath.put(row.path, category);
+                idByPath.put(row.path, jdbcSupport.idOf(category));
+
+                if (++rowsImported % CHUNK_SIZE == 0) {
+                    categoryRepository.insertAncestors(ancestorRows);
+                    ancestorRows.clear();
+                    categoryByPath.clear();
+                    transactionService.nextTransaction();
+                    lastRowCommitted[0] = reader.getRowNumber();
+                }
+            }
+            if (!ancestorRows.isEmpty()) {
+                categoryRepository.insertAncestors(ancestorRows);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(String.format("Unable to read %s", format), ex);
+        }
+        return rowsImported;
+    }
+
+    //endregion
+
+    //region > paths
+
+    /**
+     * The path of the node below the taxonomy, eg "Large/Largest" for "Sizes/Large/Largest".
+     */
+    private static String pathOf(final TaxonomySnapshot snapshot, final TaxonomySnapshot.Node node) {
+        return node.getFullyQualifiedName().substring(snapshot.getRoot().getFullyQualifiedName().length() + 1);
+    }
+
+    private static String parentPathOf(final String path) {
+        final int slash = path.lastIndexOf('/');
+        return slash >= 0 ? path.substring(0, slash) : null;
+    }
+
+    private static String nameOf(final String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static String referenceKey(final String parentPath, final String reference) {
+        return (parentPath != null ? parentPath : "") + '\u0000' + reference;
+    }
+
+    //endregion
+
+    //region > rows
+
+    static class Row {
+        final String path;
+        final String reference;
+        final Integer ordinal;
+
+        Row(final String path, final String reference, final Integer ordinal) {
+            this.path = path;
+            this.reference = reference;
+            this.ordinal = ordinal;
+        }
+    }
+
+    interface RowReader extends Closeable {
+        /**
+         * @return the next row, or <tt>null</tt> if there are no more.
+         */
+        Row next() throws IOException;
+
+        /**
+         * The (1-based) number of the row last returned, excluding any header.
+         */
+        int getRowNumber();
+    }
+
+    private static RowReader open(final CharSource source, final Format format) throws IOException {
+        final Reader reader = source.openBufferedStream();
+        return format == Format.JSON ? new JsonRowReader(reader) : new CsvRowReader(reader);
+    }
+
+    /**
+     * Reads a header row naming the columns (in any order), then one row per line; fields may be double-quoted (with
+     * embedded quotes doubled), but not span lines.
+     */
+    static class CsvRowReader implements RowReader {
+
+        private final BufferedReader reader;
+        private final int pathColumn;
+        private final int referenceColumn;
+        private final int ordinalColumn;
+        @Getter
+        private int rowNumber;
+
+        CsvRowReader(final Reader reader) throws IOException {
+            this.reader = new BufferedReader(reader);
+            final String header = this.reader.readLine();
+            final List<String> columns = header != null ? split(header) : Collections.emptyList();
+            this.pathColumn = columns.indexOf("path");
+            this.referenceColumn = columns.indexOf("reference");
+            this.ordinalColumn = columns.indexOf("ordinal");
+            if (pathColumn < 0) {
+                throw new IllegalArgumentException("no 'path' column");
+            }
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.trim().isEmpty());
+            rowNumber++;
+            final List<String> fields = split(line);
+            return new Row(
+                    field(fields, pathColumn),
+                    field(fields, referenceColumn),
+                    ordinalOf(field(fields, ordinalColumn)));
+        }
+
+        private static String field(final List<String> fields, final int column) {
+            return column >= 0 && column < fields.size() ? Strings.emptyToNull(fields.get(column).trim()) : null;
+        }
+
+        static List<String> split(final String line) {
+            final List<String> fields = Lists.newArrayList();
+            final StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                final char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads either an array of objects or a sequence of (top-level) objects, streaming throughout.
+     */
+    static class JsonRowReader implements RowReader {
+
+        private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+        private final JsonParser parser;
+        @Getter
+        private int rowNumber;
+
+        JsonRowReader(final Reader reader) throws IOException {
+            this.parser = JSON_FACTORY.createParser(reader);
+        }
+
+        @Override
+        public Row next() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException(String.format(
+                        "expected an object at %s", parser.getCurrentLocation()));
+            }
+            rowNumber++;
+            String path = null;
+            String reference = null;
+            Integer ordinal = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                final String text = value == JsonToken.VALUE_NULL ? null : parser.getText();
+                switch (fieldName) {
+                case "path":
+                    path = text;
+                    break;
+                case "reference":
+                    reference = Strings.emptyToNull(text);
+                    break;
+                case "ordinal":
+                    ordinal = ordinalOf(text);
+                    break;
+                default:
+                    break;
+                }
+            }
+            return new Row(path, reference, ordinal);
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+
+    private static Integer ordinalOf(final String text) {
+        if (Strings.isNullOrEmpty(text)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(text.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(String.format("invalid ordinal '%s'", text));
+        }
+    }
+
+    //endregion
+
+    //region > injected
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    TaxonomySnapshotService taxonomySnapshotService;
+    @Inject
+    JdbcSupport jdbcSupport;
+    @Inject
+    TransactionService transactionService;
+    //endregion
+
+}
@@ -18,23 +18,46 @@
  */
 package org.incode.module.classification.dom.impl.category;
 
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
-import java.util.SortedSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
+import javax.jdo.PersistenceManager;
+import javax.jdo.Query;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.apache.isis.applib.annotation.DomainService;
 import org.apache.isis.applib.annotation.NatureOfService;
 import org.apache.isis.applib.annotation.Programmatic;
 import org.apache.isis.applib.query.QueryDefault;
+import org.apache.isis.applib.services.background.BackgroundCommandService;
+import org.apache.isis.applib.services.background.BackgroundService;
 import org.apache.isis.applib.services.i18n.TranslatableString;
+import org.apache.isis.applib.services.i18n.TranslationService;
+import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
 import org.apache.isis.applib.services.repository.RepositoryService;
 
+import org.incode.module.classification.dom.ClassificationModule;
 import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshot;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshotService;
 import org.incode.module.classification.dom.impl.classification.Classification;
 import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
 
 @DomainService(
         nature = NatureOfService.DOMAIN,
@@ -42,17 +65,60 @@
 )
 public class CategoryRepository {
 
-    //region > findByTaxonomy (programmatic)
+    private static final Logger LOG = LoggerFactory.getLogger(CategoryRepository.class);
+
+    //region > findByTaxonomy, findCategoriesOf (programmatic)
+
+    /**
+     * All categories of the taxonomy (including the taxonomy itself, first), in depth-first order with siblings in
+     * {@link Category#getRank() rank} order; served from the taxonomy's {@link TaxonomySnapshot snapshot}, see
+     * {@link TaxonomySnapshotService#categoriesOf(Taxonomy, List)}.
+     */
     @Programmatic
     public List<Category> findByTaxonomy(final Taxonomy taxonomy) {
+        final TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(taxonomy);
+        return taxonomySnapshotService.categoriesOf(taxonomy, snapshot.getNodes());
+    }
+
+    /**
+     * As {@link #findByTaxonomy(Taxonomy)}, but excluding the taxonomy itself; the categories that may be chosen
+     * when classifying an object.
+     */
+    @Programmatic
+    public List<Category> findCategoriesOf(final Taxonomy taxonomy) {
+        final TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(taxonomy);
+        return taxonomySnapshotService.categoriesOf(taxonomy, snapshot.getDescendants(snapshot.getRoot()));
+    }
+    //endregion
+
+    //region > findLeavesByTaxonomy, findByTaxonomyAndDepth (programmatic)
+
+    /**
+     * The categories of the taxonomy that have no children (in depth-first order), as per {@link Category#getLeaf()}.
+     */
+    @Programmatic
+    public List<Category> findLeavesByTaxonomy(final Taxonomy taxonomy) {
         return repositoryService.allMatches(
                 new QueryDefault<>(Category.class,
-                        "findByTaxonomy",
+                        "findLeavesByTaxonomy",
                         "taxonomy", taxonomy));
     }
+
+    /**
+     * The categories of the taxonomy at the given {@link Category#getDepth() depth} (1 being the taxonomy's immediate
+     * children), in depth-first order.
+     */
+    @Programmatic
+    public List<Category> findByTaxonomyAndDepth(final Taxonomy taxonomy, final int depth) {
+        return repositoryService.allMatches(
+                new QueryDefault<>(Category.class,
+                        "findByTaxonomyAndDepth",
+                        "taxonomy", taxonomy,
+                        "depth", depth));
+    }
     //endregion
 
-    //region > findByTaxonomy (programmatic)
+    //region > findByTaxonomyAndReference, findAllByTaxonomyAndReference (programmatic)
     @Programmatic
     public Category findByTaxonomyAndReference(final Taxonomy taxonomy, final String reference) {
         return repositoryService.uniqueMatch(
@@ -61,6 +127,98 @@ public Category findByTaxonomyAndReference(final Taxonomy taxonomy, final String
                         "taxonomy", taxonomy,
                         "reference", reference));
     }
+
+    /**
+     * As {@link #findByTaxonomyAndReference(Taxonomy, String)}, but returning all matches; references need only be
+     * unique amongst siblings.
+     */
+    @Programmatic
+    public List<Category> findAllByTaxonomyAndReference(final Taxonomy taxonomy, final String reference) {
+        return repositoryService.allMatches(
+                new QueryDefault<>(Category.class,
+                        "findByTaxonomyAndReference",
+                        "taxonomy", taxonomy,
+                        "reference", reference));
+    }
+    //endregion
+
+    //region > findByTaxonomyAndPath, findByTaxonomyAndPaths (programmatic)
+
+    /**
+     * The category of the taxonomy with the given path, that is, {@link Category#getFullyQualifiedName() fully qualified
+     * name} (eg "Sizes/Large/Larger"), looked up by the {@link Category#getFullyQualifiedNameHash() hash} of its last
+     * part (and then matched on the whole name by the database).
+     */
+    @Programmatic
+    public Category findByTaxonomyAndPath(final Taxonomy taxonomy, final String path) {
+        return repositoryService.uniqueMatch(
+                new QueryDefault<>(Category.class,
+                        "findByTaxonomyAndPath",
+                        "taxonomy", taxonomy,
+                        "fullyQualifiedNameHash", PathHash.of(path),
+                        "fullyQualifiedName", path));
+    }
+
+    /**
+     * As {@link #findByTaxonomyAndPath(Taxonomy, String)}, but resolving a batch of paths using one IN query (on their
+     * hashes, and then the paths themselves) per {@link #REFERENCES_PER_QUERY} paths.
+     *
+     * @return the categories keyed by path; paths that cannot be resolved are omitted.
+     */
+    @Programmatic
+    public Map<String, Category> findByTaxonomyAndPaths(
+            final Taxonomy taxonomy,
+            final Collection<String> paths) {
+        final Map<String, Category> categoryByPath = Maps.newHashMap();
+        final List<String> distinctPaths = Lists.newArrayList(Sets.newLinkedHashSet(paths));
+        for (final List<String> chunk : Lists.partition(distinctPaths, REFERENCES_PER_QUERY)) {
+            final List<Long> hashes = chunk.stream().map(PathHash::of).distinct().collect(Collectors.toList());
+            final List<Category> categories = repositoryService.allMatches(
+                    new QueryDefault<>(Category.class,
+                            "findByTaxonomyAndPathHashes",
+                            "taxonomy", taxonomy,
+                            "fullyQualifiedNameHashes", hashes,
+                            "fullyQualifiedNames", chunk));
+            for (final Category category : categories) {
+                categoryByPath.put(category.getFullyQualifiedName(), category);
+            }
+        }
+        return categoryByPath;
+    }
+    //endregion
+
+    //region > findByTaxonomyAndReferences (programmatic)
+
+    /**
+     * Resolves a batch of references to the categories of the taxonomy, using one IN query per
+     * {@link #REFERENCES_PER_QUERY} references (rather than one query per reference).
+     *
+     * @return the categories keyed by reference; references that cannot be resolved are omitted.
+     */
+    @Programmatic
+    public Map<String, Category> findByTaxonomyAndReferences(
+            final Taxonomy taxonomy,
+            final Collection<String> references) {
+        final Map<String, Category> categoryByReference = Maps.newHashMap();
+        final List<String> distinctReferences = Lists.newArrayList(Sets.newLinkedHashSet(references));
+        for (final List<String> chunk : Lists.partition(distinctReferences, REFERENCES_PER_QUERY)) {
+            final List<Category> categories = repositoryService.allMatches(
+                    new QueryDefault<>(Category.class,
+                            "findByTaxonomyAndReferences",
+                            "taxonomy", taxonomy,
+                            "references", chunk));
+            for (final Category category : categories) {
+                categoryByReference.put(category.getReference(), category);
+            }
+        }
+        return categoryByReference;
+    }
+
+    /**
+     * Bounds the size of the IN list of {@link #findByTaxonomyAndReferences(Taxonomy, Collection)}.
+     */
+    static final int REFERENCES_PER_QUERY = 1000;
+
     //endregion
 
     //region > findByParent (programmatic)
@@ -73,6 +231,76 @@ public List<Category> findByParent(final Category parent) {
     }
     //endregion
 
+    //region > findChildren, findChildrenByNamePrefix, countChildren (programmatic)
+
+    /**
+     * A page of the children of the parent, in {@link Category#getRank() rank} (then name) order,
+     * skipping the first <tt>offset</tt>; only the requested children are read.
+     *
+     * <p>
+     *     Offsets far into very wide parents still require the database to step over the skipped rows; to page through
+     *     every child use {@link #findChildrenAfter(Category, Category, int)} instead.
+     * </p>
+     */
+    @Programmatic
+    public List<Category> findChildren(final Category parent, final int offset, final int limit) {
+        return repositoryService.allMatches(
+                new QueryDefault<>(Category.class,
+                        "findByParentInPages",
+                        "parent", parent)
+                        .withStart(offset)
+                        .withCount(limit));
+    }
+
+    /**
+     * The next page of the children of the parent after the one provided (or the first page if <tt>null</tt>), in the
+     * same order as {@link #findChildren(Category, int, int)}.
+     *
+     * <p>
+     *     Keyset pagination: each page is a range scan of the (parent, rank, fully qualified name) index starting just after the last child of the previous page, so costs the same however deep it is.
+     * </p>
+     */
+    @Programmatic
+    public List<Category> findChildrenAfter(final Category parent, final Category after, final int limit) {
+        if (after == null) {
+            return findChildren(parent, 0, limit);
+        }
+        return repositoryService.allMatches(
+                new QueryDefault<>(Category.class,
+                        "findByParentAfter",
+                        "parent", parent,
+                        "rank", after.getRank(),
+                        "fullyQualifiedName", after.getFullyQualifiedName())
+                        .withCount(limit));
+    }
+
+    /**
+     * The children of the parent whose names start with the prefix (at most <tt>limit</tt> of them), in the same order
+     * as {@link #findChildren(Category, int, int)}; a range scan of the (parent, name) index rather than reading all
+     * of the children.
+     */
+    @Programmatic
+    public List<Category> findChildrenByNamePrefix(final Category parent, final String prefix, final int limit) {
+        return repositoryService.allMatches(
+                new QueryDefault<>(Category.class,
+                        "findByParentAndNameStartsWith",
+                        "parent", parent,
+                        "prefix", prefix)
+                        .withCount(limit));
+    }
+
+    /**
+     * The number of children of the parent, counted by the database (without reading them).
+     */
+    @Programmatic
+    public int countChildren(final Category parent) {
+        return jdbcSupport.executeQuery(
+                "SELECT COUNT(*) FROM " + JdbcSupport.CATEGORY + " WHERE \"parentId\" = ?",
+                rs -> rs.getInt(1),
+                jdbcSupport.idOf(parent)).get(0);
+    }
+    //endregion
+
     //region > findByReference (programmatic)
     @Programmatic
     public Category findByReference(final String reference) {
@@ -84,11 +312,28 @@ public Category findByReference(final String reference) {
     //endregion
 
     //region > findByParentCascade (programmatic)
+
+    /**
+     * All descendants (children, grandchildren and so on) of the provided category, ordered by
+     * {@link Category#getFullyQualifiedOrdinal() fully qualified ordinal}.
+     *
+     * <p>
+     *     Resolved in a single query using the {@link CategoryAncestor} closure table; or, for a category created
+     *     before that was introduced (whose taxonomy has yet to have its {@link #rebuildHierarchy(Taxonomy) hierarchy
+     *     rebuilt}), level by level.
+     * </p>
+     */
     @Programmatic
-    public List<Category> findByParentCascade(Category category) {
-        final List<Category> allCategories = Lists.newArrayList();
-        append(category, allCategories);
-        return allCategories;
+    public List<Category> findByParentCascade(final Category category) {
+        if (category.getPath() == null) {
+            final List<Category> allCategories = Lists.newArrayList();
+            append(category, allCategories);
+            return allCategories;
+        }
+        return repositoryService.allMatches(
+                new QueryDefault<>(Category.class,
+                        "findByAncestor",
+                        "ancestor", category));
     }
 
     void append(final Category parent, final List<Category> all) {
@@ -101,6 +346,87 @@ void append(final Category parent, final List<Category> all) {
 
     //endregion
 
+    //region > findDescendants, countDescendants, isDescendantOf (programmatic)
+
+    /**
+     * All descendants of the provided category, ordered by
+     * {@link Category#getFullyQualifiedOrdinal() fully qualified ordinal}.
+     *
+     * <p>
+     *     Resolved as a single range query on the {@link Category#getLft() nested-set interval} (else, for categories
+     *     not yet numbered, on the {@link Category#getPath() materialized path}, or failing that as per
+     *     {@link #findByParentCascade(Category)}).
+     * </p>
+     */
+    @Programmatic
+    public List<Category> findDescendants(final Category category) {
+        if (category.getPath() == null) {
+            return findByParentCascade(category);
+        }
+        if (hasInterval(category)) {
+            return repositoryService.allMatches(
+                    new QueryDefault<>(Category.class,
+                            "findByTaxonomyAndWithinInterval",
+                            "taxonomy", category.getTaxonomy(),
+                            "lft", category.getLft(),
+                            "rgt", category.getRgt()));
+        }
+        return repositoryService.allMatches(
+                new QueryDefault<>(Category.class,
+                        "findByPathPrefix",
+                        "path", category.getPath()));
+    }
+
+    /**
+     * The number of descendants of the provided category, counted with a single range query on the
+     * {@link Category#getLft() nested-set interval}.
+     */
+    @Programmatic
+    public int countDescendants(final Category category) {
+        if (!hasInterval(category)) {
+            return findDescendants(category).size();
+        }
+        return jdbcSupport.executeQuery(
+                "SELECT COUNT(*) FROM " + JdbcSupport.CATEGORY + " "
+                        + "WHERE \"taxonomyId\" = ? AND \"lft\" > ? AND \"rgt\" < ?",
+                rs -> rs.getInt(1),
+                jdbcSupport.idOf(category.getTaxonomy()), category.getLft(), category.getRgt()).get(0);
+    }
+
+    /**
+     * Whether the category is a (strict) descendant of the candidate ancestor.
+     *
+     * <p>
+     *     A comparison of the {@link Category#getLft() nested-set interval}s (else of the
+     *     {@link Category#getPath() materialized path}s), so does not query the database.
+     * </p>
+     */
+    @Programmatic
+    public boolean isDescendantOf(final Category category, final Category ancestor) {
+        if (hasInterval(category) && hasInterval(ancestor)) {
+            return category.getTaxonomy() == ancestor.getTaxonomy()
+                    && category.getLft() > ancestor.getLft()
+                    && category.getRgt() < ancestor.getRgt();
+        }
+        final String path = category.getPath();
+        final String ancestorPath = ancestor.getPath();
+        if (path == null || ancestorPath == null) {
+            // not yet flushed, or created before paths were introduced
+            for (Category parent = category.getParent(); parent != null; parent = parent.getParent()) {
+                if (parent == ancestor) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return path.length() > ancestorPath.length() && path.startsWith(ancestorPath);
+    }
+
+    private static boolean hasInterval(final Category category) {
+        return category.getLft() != null && category.getRgt() != null;
+    }
+    //endregion
+
     //region > findByParentAndName (programmatic)
     @Programmatic
     public Category findByParentAndName(final Category parent, final String name) {
@@ -127,51 +453,1357 @@ public Category findByParentAndReference(final Category parent, final String ref
     @Programmatic
     public Taxonomy createTaxonomy(final String name) {
         final Taxonomy taxonomy = new Taxonomy(name);
+        taxonomy.setLft(NestedSetInterval.ROOT_LFT);
+        taxonomy.setRgt(NestedSetInterval.ROOT_RGT);
         repositoryService.persistAndFlush(taxonomy);
         taxonomy.setTaxonomy(taxonomy);
+        derivePath(taxonomy);
+        appendAncestors(taxonomy);
+        return taxonomy;
+    }
+    //endregion
+
+    //region > createTaxonomy (from builder, programmatic)
+
+    /**
+     * Creates the taxonomy and all categories assembled by the builder, equivalent to
+     * {@link #createTaxonomy(String)} followed by {@link #createChild(Category, String, String, Integer)} for each
+     * category, but without a round-trip per category.
+     *
+     * <p>
+     *     The derived values (fully qualified name and ordinal, {@link Category#getLft() nested-set interval} and,
+     *     once each id has been allocated, {@link Category#getPath() path}) are set in a single pass before anything is
+     *     written.  The categories are then written in a single flush (batched by DataNucleus, where the id strategy
+     *     allows), and the {@link CategoryAncestor} rows with batched inserts.
+     * </p>
+     */
+    @Programmatic
+    public Taxonomy createTaxonomy(final TaxonomyBuilder builder) {
+        final Taxonomy taxonomy = new Taxonomy(builder.getName());
+        taxonomy.setTaxonomy(taxonomy);
+        taxonomy.setLft(NestedSetInterval.ROOT_LFT);
+        taxonomy.setRgt(NestedSetInterval.ROOT_RGT);
+        repositoryService.persist(taxonomy);
+        derivePath(taxonomy);
+
+        final long taxonomyId = jdbcSupport.idOf(taxonomy);
+        final List<Object[]> ancestorRows = Lists.newArrayListWithCapacity(builder.getSize() * 4);
+        ancestorRows.add(new Object[] { taxonomyId, taxonomyId, 0 });
+
+        final Deque<Long> ancestorIds = new ArrayDeque<>();
+        ancestorIds.push(taxonomyId);
+        final long gap = NestedSetInterval.gapFor(builder.getSize());
+        final long[] counter = { 0 };
+        for (final TaxonomyBuilder.Node child : builder.getRoot().getChildren()) {
+            createDepthFirst(child, taxonomy, ancestorIds, NestedSetInterval.ROOT_LFT, gap, counter, ancestorRows);
+        }
+
+        insertAncestors(ancestorRows);
         return taxonomy;
     }
+
+    private Category createDepthFirst(
+            final TaxonomyBuilder.Node node,
+            final Category parent,
+            final Deque<Long> ancestorIds,
+            final long base,
+            final long gap,
+            final long[] counter,
+            final List<Object[]> ancestorRows) {
+        final Category category = new Category(parent, node.getName(), node.getReference(), node.getOrdinal());
+        // numbered as per rebalance(...): the subtree occupies the next 2 * (1 + descendants) bounds
+        final long lftBound = ++counter[0];
+        final long rgtBound = lftBound + 2L * node.getDescendantCount() + 1;
+        category.setLft(base + gap * lftBound);
+        category.setRgt(base + gap * rgtBound);
+        repositoryService.persist(category);
+        derivePath(category);
+
+        final long id = jdbcSupport.idOf(category);
+        ancestorRows.add(new Object[] { id, id, 0 });
+        int depth = 0;
+        for (final Long ancestorId : ancestorIds) {
+            ancestorRows.add(new Object[] { ancestorId, id, ++depth });
+        }
+
+        ancestorIds.push(id);
+        for (final TaxonomyBuilder.Node child : node.getChildren()) {
+            createDepthFirst(child, category, ancestorIds, base, gap, counter, ancestorRows);
+        }
+        ancestorIds.pop();
+        counter[0] = rgtBound;
+        return category;
+    }
+
     //endregion
 
     //region > createChild (programmatic)
     @Programmatic
     public Category createChild(Category parent, String name, String reference, Integer ordinal) {
+        requireHierarchy(parent);
         final Category category = new Category(parent, name, reference, ordinal);
+        allocateInterval(category);
         repositoryService.persistAndFlush(category);
+        derivePath(category);
+        appendAncestors(category);
+        taxonomySnapshotService.invalidate(category.getTaxonomy());
         return category;
 
     }
     //endregion
 
     //region > removeCascade (programmatic)
+
+    /**
+     * Removes the category and all of its descendants (along with their {@link CategoryAncestor} rows) using a
+     * constant number of set-based statements, locating the subtree by its {@link Category#getPath() path}.
+     *
+     * <p>
+     *     The <tt>parentId</tt> and <tt>taxonomyId</tt> foreign keys within the subtree are cleared first, so that all
+     *     rows can then be deleted in a single statement irrespective of the order in which the database visits them.
+     *     Any affected instances already loaded are evicted from the persistence manager afterwards, and the parent
+     *     becomes a {@link Category#getLeaf() leaf} if it has no other children.
+     * </p>
+     *
+     * @throws IllegalStateException if the category has no path, see {@link #requireHierarchy(Category)}.
+     */
     @Programmatic
     public void removeCascade(final Category category) {
-        SortedSet<Category> children = category.getChildren();
-        for (final Category child : children) {
-            removeCascade(child);
+        requireHierarchy(category);
+        final String path = category.getPath();
+        final String pathPrefix = path + "%";
+        final Category parent = category.getParent();
+        final Taxonomy taxonomy = category.getTaxonomy();
+
+        jdbcSupport.executeUpdate(
+                "DELETE FROM " + JdbcSupport.CATEGORY_ANCESTOR + " "
+                        + "WHERE \"descendantId\" IN ("
+                        + "    SELECT \"id\" FROM " + JdbcSupport.CATEGORY + " WHERE \"path\" LIKE ?)",
+                pathPrefix);
+        if (category instanceof Taxonomy) {
+            jdbcSupport.executeUpdate(
+                    "DELETE FROM " + JdbcSupport.APPLICABILITY + " WHERE \"taxonomyId\" = ?",
+                    jdbcSupport.idOf(category));
+        }
+        jdbcSupport.executeUpdate(
+                "UPDATE " + JdbcSupport.CATEGORY + " "
+                        + "SET \"parentId\" = NULL, \"taxonomyId\" = NULL "
+                        + "WHERE \"path\" LIKE ?",
+                pathPrefix);
+        jdbcSupport.executeUpdate(
+                "DELETE FROM " + JdbcSupport.CATEGORY + " WHERE \"path\" LIKE ?",
+                pathPrefix);
+        if (parent != null) {
+            updateLeaf(parent);
+        }
+
+        jdbcSupport.evictCached(CategoryAncestor.class,
+                x -> x.getDescendant().getPath() != null && x.getDescendant().getPath().startsWith(path));
+        jdbcSupport.evictCached(Category.class,
+                x -> x.getPath() != null && x.getPath().startsWith(path));
+        if (parent != null) {
+            // reload the parent's children
+            jdbcSupport.refreshCached(Category.class, x -> x == parent);
         }
-        repositoryService.remove(category);
+        taxonomySnapshotService.invalidate(taxonomy);
+    }
+
+    /**
+     * Sets the {@link Category#getLeaf() leaf} flag of the category according to whether it (still) has any children,
+     * with a single UPDATE; the category itself is not refreshed.
+     */
+    private void updateLeaf(final Category category) {
+        final long id = jdbcSupport.idOf(category);
+        jdbcSupport.executeUpdate(
+                "UPDATE " + JdbcSupport.CATEGORY + " "
+                        + "SET \"leaf\" = NOT EXISTS ("
+                        + "        SELECT 1 FROM " + JdbcSupport.CATEGORY + " WHERE \"parentId\" = ?), "
+                        + "    \"version\" = \"version\" + 1 "
+                        + "WHERE \"id\" = ?",
+                id, id);
     }
     //endregion
 
-    //region > validateRemoveCascade (programmatic)
+    //region > propagateFullyQualifiedName, propagateFullyQualifiedOrdinal (programmatic)
+
+    /**
+     * Rewrites the {@link Category#getFullyQualifiedName() fully qualified name} of all descendants of a category
+     * whose own fully qualified name has changed (eg following a rename), in a single set-based UPDATE.
+     *
+     * <p>
+     *     Only those descendants already loaded into the persistence manager are refreshed afterwards; the rest will
+     *     pick up the new value when next loaded.  Their {@link Category#getFullyQualifiedNameHash() hash}es, being of
+     *     their own names only (see {@link PathHash}), are unchanged.
+     * </p>
+     *
+     * @throws IllegalStateException if the category has no path, see {@link #requireHierarchy(Category)}.
+     */
     @Programmatic
-    public TranslatableString validateRemoveCascade(final Category category) {
-        List<Classification> classifications = classificationRepository.findByCategory(category);
-        if (!classifications.isEmpty()) {
-            return TranslatableString.tr("Child '{child}' is classified by '{object}' and cannot be removed",
-                    "child", category.getFullyQualifiedName(), "object", classifications.get(0).getClassified().toString());
-        } else {
-            SortedSet<Category> children = category.getChildren();
-            for (final Category child : children) {
-                TranslatableString childValidation = validateRemoveCascade(child);
-                if (childValidation != null) {
-                    return childValidation;
-                }
+    public void propagateFullyQualifiedName(final Category category, final String previousFullyQualifiedName) {
+        final String fullyQualifiedName = category.getFullyQualifiedName();
+        if (Objects.equals(fullyQualifiedName, previousFullyQualifiedName)) {
+            return;
+        }
+        requireHierarchy(category);
+        replaceDescendantPrefix(category,
+                "fullyQualifiedName", ClassificationModule.JdoColumnLength.CATEGORY_FQNAME,
+                previousFullyQualifiedName, fullyQualifiedName);
+
+        final String previousPrefix = previousFullyQualifiedName + "/";
+        jdbcSupport.refreshCached(Category.class,
+                x -> x != category && x.getFullyQualifiedName().startsWith(previousPrefix));
+    }
+
+    /**
+     * As {@link #propagateFullyQualifiedName(Category, String)}, but for the
+     * {@link Category#getFullyQualifiedOrdinal() fully qualified ordinal} (eg following a change of ordinal).
+     */
+    @Programmatic
+    public void propagateFullyQualifiedOrdinal(final Category category, final String previousFullyQualifiedOrdinal) {
+        final String fullyQualifiedOrdinal = category.getFullyQualifiedOrdinal();
+        if (Objects.equals(fullyQualifiedOrdinal, previousFullyQualifiedOrdinal)) {
+            return;
+        }
+        requireHierarchy(category);
+        replaceDescendantPrefix(category,
+                "fullyQualifiedOrdinal", ClassificationModule.JdoColumnLength.CATEGORY_FQORDINAL,
+                previousFullyQualifiedOrdinal, fullyQualifiedOrdinal);
+
+        // the fully qualified name is unique (whereas the ordinal is not), so use it to identify the descendants
+        final String prefix = category.getFullyQualifiedName() + "/";
+        jdbcSupport.refreshCached(Category.class,
+                x -> x != category && x.getFullyQualifiedName().startsWith(prefix));
+    }
+
+    /**
+     * SQL assigning <tt>? || SUBSTRING(column, ?, ?)</tt> to the column; that is, replacing its leading characters
+     * (up to the position given by the second parameter) with the first parameter.
+     */
+    private static String replacePrefix(final String column) {
+        return JdbcSupport.quote(column) + " = "
+                + JdbcSupport.concat("?", JdbcSupport.substring(JdbcSupport.quote(column), "?", "?"));
+    }
+
+    /**
+     * Replaces the leading <tt>previousPrefix</tt> of the specified column with <tt>prefix</tt> for every (strict)
+     * descendant of the category, bumping the version of each row updated.
+     */
+    private void replaceDescendantPrefix(
+            final Category category,
+            final String column,
+            final int columnLength,
+            final String previousPrefix,
+            final String prefix) {
+        jdbcSupport.executeUpdate(
+                "UPDATE " + JdbcSupport.CATEGORY + " "
+                        + "SET " + replacePrefix(column) + ", "
+                        + "    \"version\" = \"version\" + 1 "
+                        + "WHERE \"id\" IN ("
+                        + "    SELECT \"descendantId\" FROM " + JdbcSupport.CATEGORY_ANCESTOR + " "
+                        + "    WHERE \"ancestorId\" = ? AND \"depth\" > 0)",
+                prefix,
+                previousPrefix.length() + 1,
+                columnLength,
+                jdbcSupport.idOf(category));
+    }
+    //endregion
+
+    //region > moveSubtree (programmatic)
+
+    /**
+     * Moves the category (along with all its descendants) under a different parent of the same taxonomy.
+     *
+     * <p>
+     *     The whole subtree is rewritten with a constant number of set-based statements: the fully qualified name,
+     *     fully qualified ordinal, {@link Category#getPath() path} and {@link Category#getLft() nested-set interval} of
+     *     every category of the subtree in a single UPDATE (replacing their common prefixes, and shifting their
+     *     {@link Category#getDepth() depth}s), and the
+     *     {@link CategoryAncestor} rows linking the subtree to its former ancestors replaced by a single
+     *     INSERT ... SELECT.  If the subtree's interval does not fit within the gap left in the new parent then the
+     *     taxonomy is {@link #rebalance(Taxonomy) rebalanced} afterwards.
+     * </p>
+     *
+     * @throws IllegalArgumentException if the move is invalid, see {@link #validateMoveSubtree(Category, Category)}.
+     */
+    @Programmatic
+    public void moveSubtree(final Category category, final Category newParent) {
+        if (!moveSubtreeWithoutRebalance(category, newParent)) {
+            rebalance(category.getTaxonomy());
+        }
+        taxonomySnapshotService.invalidate(category.getTaxonomy());
+    }
+
+    /**
+     * As {@link #moveSubtree(Category, Category)}, but leaving it to the caller to rebalance.
+     *
+     * @return whether the nested-set intervals are still valid (else the taxonomy must be rebalanced).
+     */
+    boolean moveSubtreeWithoutRebalance(final Category category, final Category newParent) {
+        final TranslatableString invalidReason = validateMoveSubtree(category, newParent);
+        if (invalidReason != null) {
+            throw new IllegalArgumentException(messageOf(invalidReason));
+        }
+        final Category previousParent = category.getParent();
+        final long id = jdbcSupport.idOf(category);
+
+        final String previousPath = category.getPath();
+        final String path = newParent.getPath() + id + "/";
+        final String previousFullyQualifiedName = category.getFullyQualifiedName();
+        final String fullyQualifiedName = newParent.getFullyQualifiedName() + "/" + category.getName();
+        final String previousFullyQualifiedOrdinal = category.getFullyQualifiedOrdinal();
+        final String fullyQualifiedOrdinal = OrdinalKey.append(
+                newParent.getFullyQualifiedOrdinal(), category.getOrdinal() != null ? category.getOrdinal() : 0);
+
+        // shift the subtree's intervals into the gap after the new parent's last child, if there is room
+        long intervalOffset = 0;
+        boolean intervalsValid = false;
+        if (hasInterval(category) && hasInterval(newParent)) {
+            final long[] interval = allocateIntervalWithin(newParent, category.getRgt() - category.getLft() + 1);
+            if (interval != null) {
+                intervalOffset = interval[0] - category.getLft();
+                intervalsValid = true;
+            }
+        }
+
+        // (depths are either known for the whole taxonomy or, until its hierarchy is rebuilt, for none of it)
+        final int depthOffset = category.getDepth() != null && newParent.getDepth() != null
+                ? newParent.getDepth() + 1 - category.getDepth()
+                : 0;
+
+        jdbcSupport.executeUpdate(
+                "UPDATE " + JdbcSupport.CATEGORY + " SET \"parentId\" = ? WHERE \"id\" = ?",
+                jdbcSupport.idOf(newParent), id);
+        updateLeaf(newParent);
+        updateLeaf(previousParent);
+        jdbcSupport.executeUpdate(
+                "UPDATE " + JdbcSupport.CATEGORY + " "
+                        + "SET " + replacePrefix("fullyQualifiedName") + ", "
+                        + "    " + replacePrefix("fullyQualifiedOrdinal") + ", "
+                        + "    " + replacePrefix("path") + ", "
+                        + "    \"lft\" = \"lft\" + ?, "
+                        + "    \"rgt\" = \"rgt\" + ?, "
+                        + "    \"depth\" = \"depth\" + ?, "
+                        + "    \"version\" = \"version\" + 1 "
+                        + "WHERE \"path\" LIKE ?",
+                fullyQualifiedName, previousFullyQualifiedName.length() + 1, ClassificationModule.JdoColumnLength.CATEGORY_FQNAME,
+                fullyQualifiedOrdinal, previousFullyQualifiedOrdinal.length() + 1, ClassificationModule.JdoColumnLength.CATEGORY_FQORDINAL,
+                path, previousPath.length() + 1, ClassificationModule.JdoColumnLength.CATEGORY_PATH,
+                intervalOffset,
+                intervalOffset,
+                depthOffset,
+                previousPath + "%");
+
+        // detach the subtree from its former ancestors, then attach it to its new ones
+        jdbcSupport.executeUpdate(
+                "DELETE FROM " + JdbcSupport.CATEGORY_ANCESTOR + " "
+                        + "WHERE \"descendantId\" IN ("
+                        + "    SELECT \"id\" FROM " + JdbcSupport.CATEGORY + " WHERE \"path\" LIKE ?) "
+                        + "AND \"ancestorId\" NOT IN ("
+                        + "    SELECT \"id\" FROM " + JdbcSupport.CATEGORY + " WHERE \"path\" LIKE ?)",
+                path + "%", path + "%");
+        jdbcSupport.executeUpdate(
+                "INSERT INTO " + JdbcSupport.CATEGORY_ANCESTOR + " "
+                        + "(\"ancestorId\", \"descendantId\", \"depth\") "
+                        + "SELECT a.\"ancestorId\", d.\"descendantId\", a.\"depth\" + d.\"depth\" + 1 "
+                        + "FROM " + JdbcSupport.CATEGORY_ANCESTOR + " a, "
+                        + "     " + JdbcSupport.CATEGORY_ANCESTOR + " d "
+                        + "WHERE a.\"descendantId\" = ? AND d.\"ancestorId\" = ?",
+                jdbcSupport.idOf(newParent), id);
+
+        jdbcSupport.evictCached(CategoryAncestor.class,
+                x -> x.getDescendant().getPath() != null && x.getDescendant().getPath().startsWith(previousPath));
+        jdbcSupport.refreshCached(Category.class,
+                x -> x == previousParent || x == newParent
+                        || x.getPath() != null && x.getPath().startsWith(previousPath));
+        return intervalsValid;
+    }
+
+    /**
+     * Whether the category can be {@link #moveSubtree(Category, Category) moved} under the new parent: it must be
+     * within the same taxonomy, not within the category's own subtree, not clash with the name of an existing child,
+     * and the resultant values of the subtree must fit within their columns.
+     */
+    @Programmatic
+    public TranslatableString validateMoveSubtree(final Category category, final Category newParent) {
+        if (category instanceof Taxonomy) {
+            return TranslatableString.tr("A taxonomy cannot be moved");
+        }
+        final TranslatableString noPathReason = validateHasPath(category, newParent);
+        if (noPathReason != null) {
+            return noPathReason;
+        }
+        if (newParent.getTaxonomy() != category.getTaxonomy()) {
+            return TranslatableString.tr("Cannot move to a different taxonomy");
+        }
+        if (newParent == category || isDescendantOf(newParent, category)) {
+            return TranslatableString.tr("Cannot move a category under itself or one of its descendants");
+        }
+        if (newParent == category.getParent()) {
+            return TranslatableString.tr("Already a child of '{parent}'", "parent", newParent.getFullyQualifiedName());
+        }
+        if (findByParentAndName(newParent, category.getName()) != null) {
+            return TranslatableString.tr(
+                    "There is already a child classification with the name of '{name}'",
+                    "name", category.getName());
+        }
+        final int[] maxLengths = maxLengthsOfSubtree(category);
+        final int parentLevelLengthDelta = newParent.getFullyQualifiedOrdinal().length() + OrdinalKey.WIDTH
+                - category.getFullyQualifiedOrdinal().length();
+        if (maxLengths[0] + newParent.getFullyQualifiedName().length() + 1 + category.getName().length()
+                        - category.getFullyQualifiedName().length() > ClassificationModule.JdoColumnLength.CATEGORY_FQNAME
+                || maxLengths[1] + parentLevelLengthDelta > ClassificationModule.JdoColumnLength.CATEGORY_FQORDINAL
+                || maxLengths[2] + newParent.getPath().length() - category.getParent().getPath().length()
+                        > ClassificationModule.JdoColumnLength.CATEGORY_PATH) {
+            return TranslatableString.tr("The categories would be nested too deeply");
+        }
+        return null;
+    }
+
+    /**
+     * The longest {@link Category#getFullyQualifiedName() fully qualified name},
+     * {@link Category#getFullyQualifiedOrdinal() fully qualified ordinal} and {@link Category#getPath() path} (in that
+     * order) within the subtree of the category, computed by the database in a single (JDOQL) query.
+     */
+    private int[] maxLengthsOfSubtree(final Category category) {
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        pm.flush();
+        final Query query = pm.newQuery(
+                "SELECT max(fullyQualifiedName.length()), max(fullyQualifiedOrdinal.length()), max(path.length()) "
+                        + "FROM org.incode.module.classification.dom.impl.category.Category "
+                        + "WHERE path.startsWith(:path)");
+        try {
+            final Object[] result = (Object[]) query.execute(category.getPath());
+            return new int[] {
+                    ((Number) result[0]).intValue(), ((Number) result[1]).intValue(), ((Number) result[2]).intValue() };
+        } finally {
+            query.closeAll();
+        }
+    }
+
+    /**
+     * Set-based operations locate subtrees by their {@link Category#getPath() path}s, so cannot be applied to
+     * categories created before paths were introduced until their taxonomy's hierarchy has been
+     * {@link #rebuildHierarchy(Taxonomy) rebuilt}.
+     */
+    @Programmatic
+    public TranslatableString validateHasPath(final Category... categories) {
+        for (final Category category : categories) {
+            if (category.getPath() == null) {
+                return TranslatableString.tr(
+                        "Category '{category}' has no path; rebuild the hierarchy of its taxonomy first",
+                        "category", category.getFullyQualifiedName());
             }
+        }
+        return null;
+    }
 
+    //endregion
+
+    //region > cloneSubtree (programmatic)
+
+    /**
+     * Copies the category, along with all its descendants, under the target parent (which may be in a different
+     * taxonomy); the copies are otherwise identical (same names, references and ordinals), but are not classifying
+     * anything.
+     *
+     * <p>
+     *     The source subtree is read in one go (from the database, rather than a possibly out-of-date
+     *     {@link TaxonomySnapshot}), and the copies then written as per
+     *     {@link #createTaxonomy(TaxonomyBuilder)}: all derived values are set before anything is written, the
+     *     categories written in a single flush, and their {@link CategoryAncestor} rows with batched inserts.  The copy
+     *     is given a single {@link NestedSetInterval} within the target parent, which is then divided up evenly amongst
+     *     the copied categories; only if there is no room left is the target taxonomy
+     *     {@link #rebalance(Taxonomy) rebalanced}.
+     * </p>
+     *
+     * @return the copy of the source category.
+     * @throws IllegalArgumentException if the clone is invalid, see {@link #validateCloneSubtree(Category, Category)}.
+     */
+    @Programmatic
+    public Category cloneSubtree(final Category source, final Category targetParent) {
+        final TranslatableString invalidReason = validateCloneSubtree(source, targetParent);
+        if (invalidReason != null) {
+            throw new IllegalArgumentException(messageOf(invalidReason));
+        }
+
+        // read the source subtree into a builder (under a dummy root), parents first
+        final TaxonomyBuilder builder = new TaxonomyBuilder(targetParent.getName());
+        final Map<Long, TaxonomyBuilder.Node> builderNodeById = Maps.newHashMap();
+        builderNodeById.put(jdbcSupport.idOf(source.getParent()), builder.getRoot());
+        jdbcSupport.executeQuery(
+                "SELECT \"id\", \"parentId\", \"name\", \"reference\", \"ordinal\" "
+                        + "FROM " + JdbcSupport.CATEGORY + " WHERE \"path\" LIKE ? "
+                        + "ORDER BY \"fullyQualifiedOrdinal\", \"fullyQualifiedName\"",
+                rs -> {
+                    final int ordinal = rs.getInt(5);
+                    final Integer nullableOrdinal = rs.wasNull() ? null : ordinal;
+                    final TaxonomyBuilder.Node node = builderNodeById.get(rs.getLong(2))
+                            .addChild(rs.getString(3), rs.getString(4), nullableOrdinal);
+                    builderNodeById.put(rs.getLong(1), node);
+                    return node;
+                },
+                source.getPath() + "%");
+        final TaxonomyBuilder.Node root = builder.getRoot().getChildren().get(0);
+
+        final long width = 2L * builder.getSize();
+        final boolean targetHasInterval = hasInterval(targetParent);
+        long[] interval = targetHasInterval ? allocateIntervalWithin(targetParent, width) : null;
+        if (targetHasInterval && interval == null) {
+            rebalance(targetParent.getTaxonomy());
+            interval = allocateIntervalWithin(targetParent, width);
+        }
+        // as for createTaxonomy(...), the bounds of the subtree are numbered from 1 to 2 * (number of categories)
+        final long base = interval != null ? interval[0] - 1 : NestedSetInterval.ROOT_LFT;
+        final long gap = interval != null ? (interval[1] - interval[0] + 1) / width : 1;
+
+        final List<Object[]> ancestorRows = Lists.newArrayListWithCapacity(builder.getSize() * 4);
+        final Deque<Long> ancestorIds = new ArrayDeque<>();
+        for (final Object[] row : ancestorRowsOf(targetParent)) {
+            ancestorIds.addFirst((Long) row[0]);
+        }
+        final Category clone = createDepthFirst(root, targetParent, ancestorIds, base, gap, new long[] { 0 }, ancestorRows);
+        insertAncestors(ancestorRows);
+
+        if (interval == null) {
+            // created before intervals were introduced; number the whole taxonomy now
+            rebalance(targetParent.getTaxonomy());
+        }
+        taxonomySnapshotService.invalidate(targetParent.getTaxonomy());
+        return clone;
+    }
+
+    /**
+     * Whether the category can be {@link #cloneSubtree(Category, Category) cloned} under the target parent: it must
+     * not be a taxonomy nor the target parent itself, nor clash with the name or reference of an existing child, and
+     * the resultant values of the copies must fit within their columns.
+     */
+    @Programmatic
+    public TranslatableString validateCloneSubtree(final Category source, final Category targetParent) {
+        if (source instanceof Taxonomy) {
+            return TranslatableString.tr("A taxonomy cannot be cloned");
+        }
+        final TranslatableString noPathReason = validateHasPath(source, targetParent);
+        if (noPathReason != null) {
+            return noPathReason;
+        }
+        if (targetParent == source || isDescendantOf(targetParent, source)) {
+            return TranslatableString.tr("Cannot clone a category under itself or one of its descendants");
+        }
+        if (findByParentAndName(targetParent, source.getName()) != null) {
+            return TranslatableString.tr(
+                    "There is already a child classification with the name of '{name}'",
+                    "name", source.getName());
+        }
+        if (source.getReference() != null && findByParentAndReference(targetParent, source.getReference()) != null) {
+            return TranslatableString.tr(
+                    "There is already a child classification with the reference of '{reference}'",
+                    "reference", source.getReference());
+        }
+        // the ids of the copies are not yet known, so their paths are assumed to use the longest id that may be issued
+        final long[] maxLengths = jdbcSupport.executeQuery(
+                "SELECT MAX(" + JdbcSupport.length("\"fullyQualifiedName\"") + "), "
+                        + "       MAX(" + JdbcSupport.length("\"fullyQualifiedOrdinal\"") + "), "
+                        + "       MAX(\"depth\"), COUNT(*), "
+                        + "       (SELECT MAX(\"id\") FROM " + JdbcSupport.CATEGORY + ") "
+                        + "FROM " + JdbcSupport.CATEGORY + " WHERE \"path\" LIKE ?",
+                rs -> new long[] { rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5) },
+                source.getPath() + "%").get(0);
+        final long levels = maxLengths[2] - source.getDepth() + 1;
+        final long idLength = Long.toString(maxLengths[4] + maxLengths[3]).length();
+        if (maxLengths[0] + targetParent.getFullyQualifiedName().length() + 1 + source.getName().length()
+                        - source.getFullyQualifiedName().length() > ClassificationModule.JdoColumnLength.CATEGORY_FQNAME
+                || maxLengths[1] + targetParent.getFullyQualifiedOrdinal().length() + OrdinalKey.WIDTH
+                        - source.getFullyQualifiedOrdinal().length() > ClassificationModule.JdoColumnLength.CATEGORY_FQORDINAL
+                || targetParent.getPath().length() + levels * (idLength + 1)
+                        > ClassificationModule.JdoColumnLength.CATEGORY_PATH) {
+            return TranslatableString.tr("The categories would be nested too deeply");
+        }
+        return null;
+    }
+
+    //endregion
+
+    //region > mergeInto (programmatic)
+
+    /**
+     * Merges the source category into the target (within the same taxonomy): every object classified by the source is
+     * instead classified by the target, the children of the source (along with their descendants) become children of
+     * the target, and the source is then removed.
+     *
+     * <p>
+     *     Done with a constant number of set-based statements, irrespective of the number of classifications or
+     *     descendants: a single UPDATE re-points the classifications, and the descendants are re-parented much as for
+     *     {@link #moveSubtree(Category, Category)} (their fully qualified names, ordinals, paths, intervals and depths
+     *     rewritten by a single UPDATE, and their {@link CategoryAncestor} rows replaced by a single INSERT ...
+     *     SELECT).
+     * </p>
+     *
+     * @return the target.
+     * @throws IllegalArgumentException if the merge is invalid, see {@link #validateMergeInto(Category, Category)}.
+     */
+    @Programmatic
+    public Category mergeInto(final Category source, final Category target) {
+        final TranslatableString invalidReason = validateMergeInto(source, target);
+        if (invalidReason != null) {
+            throw new IllegalArgumentException(messageOf(invalidReason));
+        }
+        final Taxonomy taxonomy = source.getTaxonomy();
+        final long sourceId = jdbcSupport.idOf(source);
+        final long targetId = jdbcSupport.idOf(target);
+        final String sourcePath = source.getPath();
+        final String sourceFullyQualifiedName = source.getFullyQualifiedName();
+        final String targetFullyQualifiedName = target.getFullyQualifiedName();
+
+        // shift the descendants' intervals into the gap after the target's last child, if there is room
+        long intervalOffset = 0;
+        boolean intervalsValid = false;
+        if (hasInterval(source) && hasInterval(target)) {
+            final long[] interval = allocateIntervalWithin(target, source.getRgt() - source.getLft() + 1);
+            if (interval != null) {
+                intervalOffset = interval[0] - source.getLft();
+                intervalsValid = true;
+            }
+        }
+        final int depthOffset = source.getDepth() != null && target.getDepth() != null
+                ? target.getDepth() - source.getDepth()
+                : 0;
+
+        // detach the descendants from the source and its ancestors, and attach them to the target and its ancestors
+        jdbcSupport.executeUpdate(
+                "DELETE FROM " + JdbcSupport.CATEGORY_ANCESTOR + " "
+                        + "WHERE \"descendantId\" IN ("
+                        + "    SELECT \"id\" FROM " + JdbcSupport.CATEGORY + " "
+                        + "    WHERE \"path\" LIKE ? AND \"id\" <> ?) "
+                        + "AND \"ancestorId\" NOT IN ("
+                        + "    SELECT \"id\" FROM " + JdbcSupport.CATEGORY + " "
+                        + "    WHERE \"path\" LIKE ? AND \"id\" <> ?)",
+                sourcePath + "%", sourceId, sourcePath + "%", sourceId);
+        jdbcSupport.executeUpdate(
+                "INSERT INTO " + JdbcSupport.CATEGORY_ANCESTOR + " "
+                        + "(\"ancestorId\", \"descendantId\", \"depth\") "
+                        + "SELECT a.\"ancestorId\", d.\"descendantId\", a.\"depth\" + d.\"depth\" + 1 "
+                        + "FROM " + JdbcSupport.CATEGORY_ANCESTOR + " a, "
+                        + "     " + JdbcSupport.CATEGORY_ANCESTOR + " d "
+                        + "WHERE a.\"descendantId\" = ? "
+                        + "AND d.\"ancestorId\" IN ("
+                        + "    SELECT \"id\" FROM " + JdbcSupport.CATEGORY + " WHERE \"parentId\" = ?)",
+                targetId, sourceId);
+
+        jdbcSupport.executeUpdate(
+                "UPDATE " + JdbcSupport.CATEGORY + " SET \"parentId\" = ? WHERE \"parentId\" = ?",
+                targetId, sourceId);
+        jdbcSupport.executeUpdate(
+                "UPDATE " + JdbcSupport.CATEGORY + " "
+                        + "SET " + replacePrefix("fullyQualifiedName") + ", "
+                        + "    " + replacePrefix("fullyQualifiedOrdinal") + ", "
+                        + "    " + replacePrefix("path") + ", "
+                        + "    \"lft\" = \"lft\" + ?, "
+                        + "    \"rgt\" = \"rgt\" + ?, "
+                        + "    \"depth\" = \"depth\" + ?, "
+                        + "    \"version\" = \"version\" + 1 "
+                        + "WHERE \"path\" LIKE ? AND \"id\" <> ?",
+                targetFullyQualifiedName, sourceFullyQualifiedName.length() + 1, ClassificationModule.JdoColumnLength.CATEGORY_FQNAME,
+                target.getFullyQualifiedOrdinal(), source.getFullyQualifiedOrdinal().length() + 1, ClassificationModule.JdoColumnLength.CATEGORY_FQORDINAL,
+                target.getPath(), sourcePath.length() + 1, ClassificationModule.JdoColumnLength.CATEGORY_PATH,
+                intervalOffset,
+                intervalOffset,
+                depthOffset,
+                sourcePath + "%", sourceId);
+        updateLeaf(target);
+
+        // (the taxonomy is unchanged, so the classifications remain unique)
+        jdbcSupport.executeUpdate(
+                "UPDATE " + JdbcSupport.CLASSIFICATION + " SET \"categoryId\" = ? WHERE \"categoryId\" = ?",
+                targetId, sourceId);
+
+        jdbcSupport.evictCached(CategoryAncestor.class,
+                x -> x.getDescendant() != source
+                        && x.getDescendant().getPath() != null && x.getDescendant().getPath().startsWith(sourcePath));
+        jdbcSupport.refreshCached(Category.class,
+                x -> x == target || x != source && x.getPath() != null && x.getPath().startsWith(sourcePath));
+        jdbcSupport.refreshCached(Classification.class, x -> x.getCategory() == source);
+
+        // the source now has neither children nor classifications
+        removeCascade(source);
+        if (!intervalsValid) {
+            rebalance(taxonomy);
+        }
+        taxonomySnapshotService.invalidate(taxonomy);
+        return target;
+    }
+
+    /**
+     * Whether the source category can be {@link #mergeInto(Category, Category) merged} into the target: the target
+     * must be within the same taxonomy but not within the source's own subtree, none of the source's children may have
+     * the same name as any of the target's children, and the resultant values of the descendants must fit within their
+     * columns.
+     */
+    @Programmatic
+    public TranslatableString validateMergeInto(final Category source, final Category target) {
+        if (source instanceof Taxonomy) {
+            return TranslatableString.tr("A taxonomy cannot be merged");
+        }
+        final TranslatableString noPathReason = validateHasPath(source, target);
+        if (noPathReason != null) {
+            return noPathReason;
+        }
+        if (target.getTaxonomy() != source.getTaxonomy()) {
+            return TranslatableString.tr("Cannot merge into a category of a different taxonomy");
+        }
+        if (target == source || isDescendantOf(target, source)) {
+            return TranslatableString.tr("Cannot merge a category into itself or one of its descendants");
+        }
+        final List<String> collisions = jdbcSupport.executeQuery(
+                "SELECT s.\"name\" "
+                        + "FROM " + JdbcSupport.CATEGORY + " s, "
+                        + "     " + JdbcSupport.CATEGORY + " t "
+                        + "WHERE s.\"parentId\" = ? AND t.\"parentId\" = ? AND t.\"name\" = s.\"name\" "
+                        + "ORDER BY s.\"name\"",
+                rs -> rs.getString(1),
+                jdbcSupport.idOf(source), jdbcSupport.idOf(target));
+        if (!collisions.isEmpty()) {
+            return TranslatableString.tr(
+                    "Both categories have children named {names}",
+                    "names", collisions.stream()
+                            .limit(MAX_COLLISIONS_REPORTED)
+                            .map(x -> "'" + x + "'")
+                            .collect(Collectors.joining(", "))
+                            + (collisions.size() > MAX_COLLISIONS_REPORTED
+                                ? String.format(" (and %d more)", collisions.size() - MAX_COLLISIONS_REPORTED)
+                                : ""));
+        }
+        final int[] maxLengths = maxLengthsOfSubtree(source);
+        if (maxLengths[0] + target.getFullyQualifiedName().length() - source.getFullyQualifiedName().length()
+                        > ClassificationModule.JdoColumnLength.CATEGORY_FQNAME
+                || maxLengths[1] + target.getFullyQualifiedOrdinal().length() - source.getFullyQualifiedOrdinal().length()
+                        > ClassificationModule.JdoColumnLength.CATEGORY_FQORDINAL
+                || maxLengths[2] + target.getPath().length() - source.getPath().length()
+                        > ClassificationModule.JdoColumnLength.CATEGORY_PATH) {
+            return TranslatableString.tr("The categories would be nested too deeply");
+        }
+        return null;
+    }
+
+    /**
+     * The number of colliding names listed by {@link #validateMergeInto(Category, Category)}.
+     */
+    static final int MAX_COLLISIONS_REPORTED = 5;
+
+    //endregion
+
+    //region > placeAfter, placeByOrdinal, compactRanks (programmatic)
+
+    /**
+     * Places the category amongst its siblings just after the one provided (or first, if <tt>null</tt>), by giving it
+     * a {@link Category#getRank() rank} {@link FractionalKey#between(String, String) between} those of its new
+     * neighbours; no other category is changed.
+     *
+     * <p>
+     *     Should there be no room left between the neighbours' ranks (or the rank become too long), the ranks of just
+     *     the category and its siblings are renumbered first, and a {@link #compactRanks(Taxonomy) compaction} of the
+     *     whole taxonomy is queued in the background.
+     * </p>
+     */
+    @Programmatic
+    public void placeAfter(final Category category, final Category sibling) {
+        if (sibling != null && sibling.getParent() != category.getParent()) {
+            throw new IllegalArgumentException(String.format("'%s' is not a sibling of '%s'", sibling, category));
+        }
+        String rank = rankAfter(category, sibling);
+        if (rank == null) {
+            compactChildRanks(category.getParent());
+            rank = rankAfter(category, sibling);
+            queueCompactRanks(category.getTaxonomy());
+        }
+        category.setRank(rank);
+        taxonomySnapshotService.invalidate(category.getTaxonomy());
+    }
+
+    /**
+     * The rank between the sibling's (if any) and that of the next sibling, or <tt>null</tt> if there is no room.
+     */
+    private String rankAfter(final Category category, final Category sibling) {
+        if (sibling == category) {
+            return category.getRank();
+        }
+        final List<Category> following = findChildrenAfter(category.getParent(), sibling, 1);
+        if (!following.isEmpty() && following.get(0) == category) {
+            return category.getRank();
+        }
+        return rankBetween(sibling, !following.isEmpty() ? following.get(0) : null);
+    }
+
+    /**
+     * A rank between those of the two siblings (either of which may be <tt>null</tt>, meaning unbounded), or
+     * <tt>null</tt> if there is no room.
+     */
+    private static String rankBetween(final Category lowerSibling, final Category upperSibling) {
+        final String lower = lowerSibling != null ? lowerSibling.getRank() : null;
+        final String upper = upperSibling != null ? upperSibling.getRank() : null;
+        if (lowerSibling != null && lower == null
+                || upperSibling != null && upper == null
+                || lower != null && upper != null && lower.compareTo(upper) >= 0) {
+            // not yet ranked, or siblings with the same rank (ie ordinal)
             return null;
         }
+        final String rank = FractionalKey.between(lower, upper);
+        return rank != null && rank.length() <= ClassificationModule.JdoColumnLength.CATEGORY_RANK ? rank : null;
+    }
+
+    /**
+     * Moves the category (following a change of its {@link Category#getOrdinal() ordinal}) to just before the first of
+     * its siblings, in rank order, with a greater ordinal (or last, if none); see {@link Category#getOrdinal()}.
+     *
+     * <p>
+     *     Only the category's own {@link Category#getRank() rank} is changed (and not at all if it is already between
+     *     those two siblings), as for {@link #placeAfter(Category, Category)}.
+     * </p>
+     */
+    @Programmatic
+    public void placeByOrdinal(final Category category) {
+        final Category parent = category.getParent();
+        if (parent == null) {
+            return;
+        }
+        final Category next = firstMatch(
+                new QueryDefault<>(Category.class,
+                        "findByParentAndOrdinalAbove",
+                        "parent", parent,
+                        "excluding", category,
+                        "ordinal", category.getOrdinal()));
+        final Category previous = next != null
+                ? firstMatch(
+                        new QueryDefault<>(Category.class,
+                                "findByParentBefore",
+                                "parent", parent,
+                                "excluding", category,
+                                "rank", next.getRank(),
+                                "fullyQualifiedName", next.getFullyQualifiedName()))
+                : firstMatch(
+                        new QueryDefault<>(Category.class,
+                                "findByParentDescending",
+                                "parent", parent,
+                                "excluding", category));
+        final String rank = category.getRank();
+        if (rank != null
+                && (previous == null || previous.getRank() != null && previous.getRank().compareTo(rank) < 0)
+                && (next == null || next.getRank() != null && rank.compareTo(next.getRank()) < 0)) {
+            return;
+        }
+        final String rankBetween = rankBetween(previous, next);
+        if (rankBetween != null) {
+            category.setRank(rankBetween);
+            taxonomySnapshotService.invalidate(category.getTaxonomy());
+        } else {
+            placeAfter(category, previous);
+        }
+    }
+
+    private Category firstMatch(final QueryDefault<Category> query) {
+        final List<Category> matches = repositoryService.allMatches(query.withCount(1));
+        return !matches.isEmpty() ? matches.get(0) : null;
+    }
+
+    /**
+     * Shortens the {@link Category#getRank() rank}s of every set of siblings that have been
+     * {@link #placeAfter(Category, Category) placed} (or given new ordinals) such that their ranks have lengthened,
+     * renumbering them to short keys in the same order.  Only ranks are changed; the siblings' (user-entered)
+     * {@link Category#getOrdinal() ordinal}s, and hence their
+     * {@link Category#getFullyQualifiedOrdinal() fully qualified ordinal}s, are left as they are.
+     *
+     * <p>
+     *     Intended to be run in the background (see {@link Taxonomy#compactRanks()}).  The categories are read with a
+     *     single query, and only those whose ranks change are updated, with batched statements.
+     * </p>
+     *
+     * @return the number of categories updated.
+     */
+    @Programmatic
+    public int compactRanks(final Taxonomy taxonomy) {
+        final ListMultimap<Long, RankRow> childrenByParentId = ArrayListMultimap.create();
+        jdbcSupport.executeQuery(
+                "SELECT \"id\", \"parentId\", \"rank\" "
+                        + "FROM " + JdbcSupport.CATEGORY + " "
+                        + "WHERE \"taxonomyId\" = ? AND \"parentId\" IS NOT NULL "
+                        + "ORDER BY \"rank\", \"fullyQualifiedName\"",
+                rs -> {
+                    final RankRow row = new RankRow(rs.getLong(1), rs.getString(3));
+                    childrenByParentId.put(rs.getLong(2), row);
+                    return row;
+                },
+                jdbcSupport.idOf(taxonomy));
+
+        final List<Object[]> updates = Lists.newArrayList();
+        for (final Long parentId : childrenByParentId.keySet()) {
+            final List<RankRow> children = childrenByParentId.get(parentId);
+            if (needsCompacting(children)) {
+                renumberRanks(children, updates);
+            }
+        }
+        updateRanks(updates);
+
+        if (!updates.isEmpty()) {
+            jdbcSupport.refreshCached(Category.class, x -> x.getTaxonomy() == taxonomy);
+            taxonomySnapshotService.invalidate(taxonomy);
+        }
+        return updates.size();
+    }
+
+    /**
+     * Renumbers the {@link Category#getRank() rank}s of the children of the parent to short keys (in the same order),
+     * with a single query and batched updates; as {@link #compactRanks(Taxonomy)}, but for just one set of siblings.
+     */
+    private void compactChildRanks(final Category parent) {
+        final List<RankRow> children = jdbcSupport.executeQuery(
+                "SELECT \"id\", \"rank\" "
+                        + "FROM " + JdbcSupport.CATEGORY + " "
+                        + "WHERE \"parentId\" = ? "
+                        + "ORDER BY \"rank\", \"fullyQualifiedName\"",
+                rs -> new RankRow(rs.getLong(1), rs.getString(2)),
+                jdbcSupport.idOf(parent));
+        final List<Object[]> updates = Lists.newArrayList();
+        renumberRanks(children, updates);
+        updateRanks(updates);
+        jdbcSupport.refreshCached(Category.class, x -> x.getParent() == parent);
+    }
+
+    /**
+     * Whether any of the siblings (in rank order) has no rank or a lengthened one, or shares its rank with another.
+     */
+    private static boolean needsCompacting(final List<RankRow> siblings) {
+        String previous = null;
+        for (final RankRow sibling : siblings) {
+            if (sibling.rank == null
+                    || sibling.rank.length() > OrdinalKey.WIDTH
+                    || previous != null && previous.compareTo(sibling.rank) >= 0) {
+                return true;
+            }
+            previous = sibling.rank;
+        }
+        return false;
+    }
+
+    private static void renumberRanks(final List<RankRow> siblings, final List<Object[]> updates) {
+        int position = 0;
+        for (final RankRow sibling : siblings) {
+            final String rank = FractionalKey.of(++position);
+            if (!rank.equals(sibling.rank)) {
+                updates.add(new Object[] { rank, sibling.id });
+            }
+        }
+    }
+
+    private void updateRanks(final List<Object[]> updates) {
+        jdbcSupport.executeBatch(
+                "UPDATE " + JdbcSupport.CATEGORY + " "
+                        + "SET \"rank\" = ?, \"version\" = \"version\" + 1 "
+                        + "WHERE \"id\" = ?",
+                updates);
+    }
+
+    /**
+     * Queues a {@link #compactRanks(Taxonomy) compaction} of the taxonomy's ranks as a background command, if a
+     * {@link BackgroundCommandService} is configured to run it; otherwise it is left to be compacted explicitly.
+     */
+    private void queueCompactRanks(final Taxonomy taxonomy) {
+        if (backgroundCommandService == null) {
+            LOG.info("Taxonomy '{}' has lengthy ranks and should be compacted", taxonomy.getName());
+            return;
+        }
+        backgroundService.execute(taxonomy).compactRanks();
+    }
+
+    private static class RankRow {
+        final long id;
+        final String rank;
+
+        RankRow(final long id, final String rank) {
+            this.id = id;
+            this.rank = rank;
+        }
+    }
+
+    //endregion
+
+    //region > migrateFullyQualifiedOrdinals (programmatic)
+
+    /**
+     * Re-derives the {@link Category#getFullyQualifiedOrdinal() fully qualified ordinal} of every category of the
+     * taxonomy that is still in the legacy dotted form (eg "1.10.2") into the fixed-width {@link OrdinalKey} encoding,
+     * and derives the {@link Category#getRank() rank} (from the ordinal) of any category that has none.
+     *
+     * <p>
+     *     The categories are loaded in a single query and processed depth-first, so each is derived from its
+     *     (already migrated) parent.
+     * </p>
+     *
+     * @return the number of categories migrated.
+     */
+    @Programmatic
+    public int migrateFullyQualifiedOrdinals(final Taxonomy taxonomy) {
+        final List<Category> categories = findByTaxonomy(taxonomy);
+        if (categories.stream().allMatch(x -> OrdinalKey.isEncoded(x.getFullyQualifiedOrdinal()) && x.getRank() != null)) {
+            return 0;
+        }
+        for (final Category category : categories) {
+            category.refreshDerivedValues();
+        }
+        return categories.size();
+    }
+
+    //endregion
+
+    //region > ancestors (closure table maintenance)
+
+    /**
+     * Creates the {@link CategoryAncestor} rows for a newly persisted category: one for each ancestor of its parent
+     * (one level further away), plus the row relating the category to itself.
+     */
+    private void appendAncestors(final Category category) {
+        final Category parent = category.getParent();
+        if (parent != null) {
+            for (final CategoryAncestor parentAncestor : findAncestorsOf(parent)) {
+                repositoryService.persist(
+                        new CategoryAncestor(parentAncestor.getAncestor(), category, parentAncestor.getDepth() + 1));
+            }
+        }
+        repositoryService.persist(new CategoryAncestor(category, category, 0));
+    }
+
+    /**
+     * The (ancestorId, descendantId, depth) values of the {@link CategoryAncestor} rows of a category, as read from its
+     * {@link Category#getPath() path}; for {@link #insertAncestors(List)}.
+     */
+    static List<Object[]> ancestorRowsOf(final Category category) {
+        final List<Object[]> rows = Lists.newArrayList();
+        final String[] ids = category.getPath().substring(1).split("/");
+        final Long descendantId = Long.valueOf(ids[ids.length - 1]);
+        for (int i = 0; i < ids.length; i++) {
+            rows.add(new Object[] { Long.valueOf(ids[i]), descendantId, ids.length - 1 - i });
+        }
+        return rows;
+    }
+
+    /**
+     * Persists a new category (without flushing) and derives its {@link Category#getPath() path}, appending its
+     * {@link CategoryAncestor} rows to be {@link #insertAncestors(List) inserted} later; its
+     * {@link Category#getLft() nested-set interval} is left to be numbered by {@link #rebalance(Taxonomy)}.
+     */
+    void persistChild(final Category category, final List<Object[]> ancestorRows) {
+        repositoryService.persist(category);
+        derivePath(category);
+        ancestorRows.addAll(ancestorRowsOf(category));
+    }
+
+    /**
+     * Inserts {@link CategoryAncestor} rows with batched statements (flushing any pending categories first).
+     */
+    void insertAncestors(final List<Object[]> ancestorRows) {
+        jdbcSupport.executeBatch(
+                "INSERT INTO " + JdbcSupport.CATEGORY_ANCESTOR + " "
+                        + "(\"ancestorId\", \"descendantId\", \"depth\") VALUES (?, ?, ?)",
+                ancestorRows);
+    }
+
+    private List<CategoryAncestor> findAncestorsOf(final Category category) {
+        return repositoryService.allMatches(
+                new QueryDefault<>(CategoryAncestor.class,
+                        "findByDescendant",
+                        "descendant", category));
+    }
+
+    //endregion
+
+    //region > path (materialized path maintenance)
+
+    /**
+     * Derives the {@link Category#getPath() path} of a category from that of its parent; the category must already
+     * have been flushed (so that its id is known).
+     */
+    void derivePath(final Category category) {
+        final Category parent = category.getParent();
+        category.setPath((parent != null ? parent.getPath() : "/") + jdbcSupport.idOf(category) + "/");
+    }
+
+    //endregion
+
+    //region > nested-set interval maintenance
+
+    /**
+     * Allocates the {@link Category#getLft() nested-set interval} of a new category, after those of its existing
+     * siblings.
+     *
+     * <p>
+     *     If there is no space left within the parent then only the parent's subtree is renumbered, within the
+     *     parent's own interval (or, should that be too narrow, the subtree of the nearest ancestor whose interval is
+     *     wide enough); the whole taxonomy is then {@link #rebalance(Taxonomy) rebalanced} in the background, see
+     *     {@link #queueRebalance(Taxonomy)}.
+     * </p>
+     */
+    private void allocateInterval(final Category category) {
+        final Category parent = category.getParent();
+        if (!hasInterval(parent)) {
+            // created before intervals were introduced; rebalance(...) will number the whole taxonomy
+            return;
+        }
+        long[] interval = allocateIntervalWithin(parent);
+        if (interval == null) {
+            renumberNearestSubtree(parent);
+            interval = allocateIntervalWithin(parent);
+        }
+        category.setLft(interval[0]);
+        category.setRgt(interval[1]);
+    }
+
+    private long[] allocateIntervalWithin(final Category parent) {
+        return allocateIntervalWithin(parent, 2);
+    }
+
+    /**
+     * An interval of at least the given width within the parent (after its existing children), or <tt>null</tt> if
+     * there is not enough space left.
+     */
+    private long[] allocateIntervalWithin(final Category parent, final long width) {
+        final long[] lastChildRgtAndCount = jdbcSupport.executeQuery(
+                "SELECT MAX(\"rgt\"), COUNT(*) FROM " + JdbcSupport.CATEGORY + " WHERE \"parentId\" = ?",
+                rs -> {
+                    final long rgt = rs.getLong(1);
+                    return new long[] { rs.wasNull() ? parent.getLft() : rgt, rs.getLong(2) };
+                },
+                jdbcSupport.idOf(parent)).get(0);
+        return NestedSetInterval.allocate(
+                lastChildRgtAndCount[0], parent.getRgt(), width, (int) lastChildRgtAndCount[1]);
+    }
+
+    /**
+     * Renumbers the subtree of the category, or failing that of its nearest ancestor with room enough, and queues
+     * a {@link #rebalance(Taxonomy) rebalance} of the taxonomy.  Only if no ancestor has room is the taxonomy
+     * rebalanced there and then.
+     */
+    private void renumberNearestSubtree(final Category category) {
+        for (Category subtreeRoot = category; subtreeRoot.getParent() != null; subtreeRoot = subtreeRoot.getParent()) {
+            if (renumberWithin(subtreeRoot)) {
+                queueRebalance(category.getTaxonomy());
+                return;
+            }
+        }
+        rebalance(category.getTaxonomy());
+    }
+
+    /**
+     * Renumbers the descendants of the category evenly within the first half of its (unchanged) interval, leaving the
+     * second half for new children; the descendants are read with a single query and renumbered with batched updates.
+     *
+     * @return whether renumbered, that is, whether the interval of the category is wide enough, see
+     * {@link NestedSetInterval#gapWithin(long, long, int)}.
+     */
+    private boolean renumberWithin(final Category subtreeRoot) {
+        final long subtreeRootId = jdbcSupport.idOf(subtreeRoot);
+        final String pathPrefix = subtreeRoot.getPath();
+        final ListMultimap<Long, Long> childIdsByParentId = ArrayListMultimap.create();
+        final List<Long> ids = jdbcSupport.executeQuery(
+                "SELECT \"id\", \"parentId\" FROM " + JdbcSupport.CATEGORY + " "
+                        + "WHERE \"path\" LIKE ? AND \"id\" <> ? "
+                        + "ORDER BY \"fullyQualifiedOrdinal\", \"fullyQualifiedName\"",
+                rs -> {
+                    final long id = rs.getLong(1);
+                    childIdsByParentId.put(rs.getLong(2), id);
+                    return id;
+                },
+                pathPrefix + "%", subtreeRootId);
+
+        final long gap = NestedSetInterval.gapWithin(subtreeRoot.getLft(), subtreeRoot.getRgt(), ids.size());
+        if (gap == 0) {
+            return false;
+        }
+        final List<Object[]> intervals = Lists.newArrayListWithCapacity(ids.size());
+        final long[] counter = { 0 };
+        for (final Long childId : childIdsByParentId.get(subtreeRootId)) {
+            numberDepthFirst(childId, childIdsByParentId, subtreeRoot.getLft(), gap, counter, intervals);
+        }
+        jdbcSupport.executeBatch(
+                "UPDATE " + JdbcSupport.CATEGORY + " "
+                        + "SET \"lft\" = ?, \"rgt\" = ?, \"version\" = \"version\" + 1 "
+                        + "WHERE \"id\" = ?",
+                intervals);
+
+        jdbcSupport.refreshCached(Category.class,
+                x -> x != subtreeRoot && x.getPath() != null && x.getPath().startsWith(pathPrefix));
+        return true;
+    }
+
+    /**
+     * Queues a {@link Taxonomy#rebalance() rebalance} of the taxonomy as a background command, if a
+     * {@link BackgroundCommandService} is configured to run it; otherwise it is left to be rebalanced explicitly.
+     */
+    private void queueRebalance(final Taxonomy taxonomy) {
+        if (backgroundCommandService == null) {
+            LOG.info("Taxonomy '{}' is running out of room for new categories and should be rebalanced",
+                    taxonomy.getName());
+            return;
+        }
+        backgroundService.execute(taxonomy).rebalance();
+    }
+
+    //endregion
+
+    //region > rebalance (programmatic)
+
+    /**
+     * Renumbers the {@link Category#getLft() nested-set intervals} of all categories of the taxonomy, spreading them
+     * evenly over the whole range so that there are (once more) large gaps for new categories.
+     *
+     * <p>
+     *     Queued in the background (as {@link Taxonomy#rebalance()}) whenever a new category does not fit within its
+     *     parent, once the parent's subtree has been renumbered to make room; done there and then only should a
+     *     category being moved, cloned or merged not fit.  The categories are read with a single query and
+     *     renumbered with batched updates.
+     * </p>
+     *
+     * @return the number of categories renumbered.
+     */
+    @Programmatic
+    public int rebalance(final Taxonomy taxonomy) {
+        final long taxonomyId = jdbcSupport.idOf(taxonomy);
+        final ListMultimap<Long, Long> childIdsByParentId = ArrayListMultimap.create();
+        final List<Long> ids = jdbcSupport.executeQuery(
+                "SELECT \"id\", \"parentId\" FROM " + JdbcSupport.CATEGORY + " "
+                        + "WHERE \"taxonomyId\" = ? "
+                        + "ORDER BY \"fullyQualifiedOrdinal\", \"fullyQualifiedName\"",
+                rs -> {
+                    final long id = rs.getLong(1);
+                    final long parentId = rs.getLong(2);
+                    if (!rs.wasNull()) {
+                        childIdsByParentId.put(parentId, id);
+                    }
+                    return id;
+                },
+                taxonomyId);
+
+        final List<Object[]> intervals = Lists.newArrayListWithCapacity(ids.size());
+        final long gap = NestedSetInterval.gapFor(ids.size());
+        final long[] counter = { 0 };
+        for (final Long childId : childIdsByParentId.get(taxonomyId)) {
+            numberDepthFirst(childId, childIdsByParentId, NestedSetInterval.ROOT_LFT, gap, counter, intervals);
+        }
+        intervals.add(new Object[] { NestedSetInterval.ROOT_LFT, NestedSetInterval.ROOT_RGT, taxonomyId });
+
+        jdbcSupport.executeBatch(
+                "UPDATE " + JdbcSupport.CATEGORY + " "
+                        + "SET \"lft\" = ?, \"rgt\" = ?, \"version\" = \"version\" + 1 "
+                        + "WHERE \"id\" = ?",
+                intervals);
+
+        jdbcSupport.refreshCached(Category.class, x -> x.getTaxonomy() == taxonomy);
+        taxonomySnapshotService.invalidate(taxonomy);
+        return intervals.size();
+    }
+
+    private static void numberDepthFirst(
+            final Long id,
+            final ListMultimap<Long, Long> childIdsByParentId,
+            final long base,
+            final long gap,
+            final long[] counter,
+            final List<Object[]> intervals) {
+        final long lft = base + gap * ++counter[0];
+        for (final Long childId : childIdsByParentId.get(id)) {
+            numberDepthFirst(childId, childIdsByParentId, base, gap, counter, intervals);
+        }
+        final long rgt = base + gap * ++counter[0];
+        intervals.add(new Object[] { lft, rgt, id });
+    }
+
+    //endregion
+
+    //region > rebuildHierarchy, requireHierarchy (programmatic)
+
+    /**
+     * Rebuilds the {@link CategoryAncestor} rows, the {@link Category#getPath() path}s, the
+     * {@link Category#getDepth() depth} and {@link Category#getLeaf() leaf} flags, the fully qualified names and
+     * {@link OrdinalKey ordinal key}s and missing {@link Category#getRank() rank}s (as per
+     * {@link #migrateFullyQualifiedOrdinals(Taxonomy)}), the
+     * {@link Category#getFullyQualifiedNameHash() fully qualified name hash}es and the
+     * {@link Category#getLft() nested-set intervals} of all categories of the taxonomy, eg for data created before these
+     * were introduced.
+     *
+     * <p>
+     *     A one-off migration, available as the {@link Taxonomy#rebuildHierarchy()} action, and issuing statements in
+     *     proportion to the size of the taxonomy.  It is never performed implicitly: those operations that rely on the
+     *     derived values (eg {@link #createChild(Category, String, String, Integer) createChild},
+     *     {@link #removeCascade(Category) removeCascade} and the <tt>propagateXxx</tt> methods) instead
+     *     {@link #requireHierarchy(Category) fail} when applied to a category without a path.
+     * </p>
+     */
+    @Programmatic
+    public void rebuildHierarchy(final Taxonomy taxonomy) {
+        final List<CategoryAncestor> existing = repositoryService.allMatches(
+                new QueryDefault<>(CategoryAncestor.class,
+                        "findByTaxonomy",
+                        "taxonomy", taxonomy));
+        for (final CategoryAncestor categoryAncestor : existing) {
+            repositoryService.remove(categoryAncestor);
+        }
+        for (final Category category : findByTaxonomyParentsFirst(taxonomy)) {
+            derivePath(category);
+            // also sets the hash
+            category.refreshDerivedValues();
+            // parents first, so the parent's depth is already set (and it is then no longer a leaf)
+            final Category parent = category.getParent();
+            category.setDepth(parent != null ? parent.getDepth() + 1 : 0);
+            category.setLeaf(true);
+            if (parent != null) {
+                parent.setLeaf(false);
+            }
+            int depth = 0;
+            for (Category ancestor = category; ancestor != null; ancestor = ancestor.getParent()) {
+                repositoryService.persist(new CategoryAncestor(ancestor, category, depth++));
+            }
+        }
+        rebalance(taxonomy);
+    }
+
+    /**
+     * Fails fast if the category has no {@link Category#getPath() path} (that is, was created before the derived
+     * values were introduced and its taxonomy has yet to be {@link #rebuildHierarchy(Taxonomy) rebuilt}); checked
+     * in memory, without any query.
+     *
+     * @throws IllegalStateException if the category has no path, see {@link #validateHasPath(Category...)}.
+     */
+    void requireHierarchy(final Category category) {
+        final TranslatableString noPathReason = validateHasPath(category);
+        if (noPathReason != null) {
+            throw new IllegalStateException(messageOf(noPathReason));
+        }
+    }
+
+    //endregion
+
+    //region > validateRemoveCascade (programmatic)
+
+    /**
+     * Whether the category and all its descendants can be {@link #removeCascade(Category) removed}, that is, none of
+     * them has been used to classify any object.
+     *
+     * <p>
+     *     Checked with a single (limit 1) query over the whole subtree.
+     * </p>
+     */
+    @Programmatic
+    public TranslatableString validateRemoveCascade(final Category category) {
+        final Classification classification = classificationRepository.findFirstByCategoryOrDescendant(category);
+        return classification != null
+                ? TranslatableString.tr("Child '{child}' is classified by '{object}' and cannot be removed",
+                        "child", classification.getCategory().getFullyQualifiedName(),
+                        "object", classification.getClassified().toString())
+                : null;
+    }
+
+    /**
+     * The (translated) text of a reason returned by one of the <tt>validateXxx</tt> methods, eg for an exception.
+     */
+    String messageOf(final TranslatableString reason) {
+        return reason.translate(translationService, CategoryRepository.class.getName());
     }
     //endregion
 
@@ -179,7 +1811,19 @@ public TranslatableString validateRemoveCascade(final Category category) {
     @Inject
     RepositoryService repositoryService;
     @Inject
+    TranslationService translationService;
+    @Inject
     ClassificationRepository classificationRepository;
+    @Inject
+    JdbcSupport jdbcSupport;
+    @Inject
+    IsisJdoSupport isisJdoSupport;
+    @Inject
+    TaxonomySnapshotService taxonomySnapshotService;
+    @Inject
+    BackgroundService backgroundService;
+    @Inject
+    BackgroundCommandService backgroundCommandService;
 
     //endregion
 
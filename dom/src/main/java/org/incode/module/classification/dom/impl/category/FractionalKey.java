@@ -0,0 +1,125 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+/**
+ * Fractional keys, for the {@link Category#getRank() rank} of a category amongst its siblings.
+ *
+ * <p>
+ *     A key is a string of upper-case base 36 digits, compared as a plain string.  There is (almost) always room for
+ *     a key {@link #between(String, String) between} any two others, so placing a category amongst its siblings only
+ *     ever changes that category's own key.  Each such placement may lengthen the key by a digit or so, until
+ *     {@link CategoryRepository#compactRanks(org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy) compacted}.
+ * </p>
+ *
+ * <p>
+ *     The initial key of a category is the {@link OrdinalKey} encoding of its ordinal (7 digits), so categories that
+ *     have never been placed sort by ordinal exactly as before.  Keys generated by {@link #between(String, String)}
+ *     never end with a "0", so that (other than for initial keys) there is always room after any key.
+ * </p>
+ */
+public final class FractionalKey {
+
+    private static final int RADIX = 36;
+
+    private FractionalKey(){}
+
+    /**
+     * The initial key for a category with the provided ordinal.
+     */
+    public static String of(final int ordinal) {
+        return OrdinalKey.append(null, ordinal);
+    }
+
+    /**
+     * A key that sorts after <tt>lower</tt> and before <tt>upper</tt>, either of which may be <tt>null</tt> (meaning
+     * unbounded).
+     *
+     * @return the key, or <tt>null</tt> if there is no room between the two (only possible if <tt>upper</tt> is
+     * <tt>lower</tt> followed by "0"s); the keys must then be compacted.
+     * @throws IllegalArgumentException if <tt>lower</tt> does not sort before <tt>upper</tt>.
+     */
+    public static String between(final String lower, final String upper) {
+        if (lower != null && upper != null && lower.compareTo(upper) >= 0) {
+            throw new IllegalArgumentException(String.format("'%s' does not sort before '%s'", lower, upper));
+        }
+        final String lo = lower != null ? lower : "";
+        if (upper == null) {
+            return after(lo);
+        }
+        int p = 0;
+        while (p < lo.length() && lo.charAt(p) == upper.charAt(p)) {
+            p++;
+        }
+        final String prefix = upper.substring(0, p);
+        if (p == lo.length()) {
+            // lower is a prefix of upper, so extend it with something sorting before the rest of upper
+            final String suffix = before(upper.substring(p));
+            return suffix != null ? prefix + suffix : null;
+        }
+        final int l = digit(lo.charAt(p));
+        final int u = digit(upper.charAt(p));
+        if (u - l > 1) {
+            return prefix + charOf((l + u) / 2);
+        }
+        // adjacent digits, so keep lower's and extend it with something sorting after the rest of lower
+        return prefix + lo.charAt(p) + after(lo.substring(p + 1));
+    }
+
+    /**
+     * A non-empty key (not ending in "0") that sorts after the provided one (and any extension of it).
+     */
+    private static String after(final String key) {
+        for (int i = 0; i < key.length(); i++) {
+            final int d = digit(key.charAt(i));
+            if (d < RADIX - 1) {
+                return key.substring(0, i) + charOf((d + RADIX) / 2);
+            }
+        }
+        return key + charOf(RADIX / 2);
+    }
+
+    /**
+     * A non-empty key (not ending in "0") that sorts before the provided (non-empty) one, or <tt>null</tt> if there
+     * is none.
+     */
+    private static String before(final String key) {
+        final int d = digit(key.charAt(0));
+        if (d > 1) {
+            return String.valueOf(charOf(d / 2));
+        }
+        if (d == 1) {
+            return "0" + charOf(RADIX / 2);
+        }
+        if (key.length() == 1) {
+            return null;
+        }
+        final String rest = before(key.substring(1));
+        return rest != null ? "0" + rest : null;
+    }
+
+    private static char charOf(final int digit) {
+        return Character.toUpperCase(Character.forDigit(digit, RADIX));
+    }
+
+    private static int digit(final char ch) {
+        return Character.digit(ch, RADIX);
+    }
+
+}
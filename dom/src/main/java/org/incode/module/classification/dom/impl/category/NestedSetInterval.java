@@ -0,0 +1,102 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+/**
+ * Allocation of the nested-set {@link Category#getLft() lft}/{@link Category#getRgt() rgt} interval of a category.
+ *
+ * <p>
+ *     Every taxonomy is numbered independently, occupying {@link #ROOT_LFT} to {@link #ROOT_RGT}.  The interval of
+ *     each category lies strictly within that of its parent and after those of its earlier siblings, so a category is
+ *     a descendant of another exactly when its interval lies within the other's.
+ * </p>
+ *
+ * <p>
+ *     Intervals are allocated with gaps: a new child takes a share of the space remaining within its parent in
+ *     proportion to the number of children the parent already has (<tt>1 / (</tt>{@link #RESERVE}<tt> + n)</tt>),
+ *     leaving room both for later siblings and for its own children.  The space remaining therefore shrinks only
+ *     harmonically (rather than geometrically) with each append, so that a parent with a <tt>2<sup>k</sup></tt> wide
+ *     interval has room for some <tt>2<sup>k/2</sup></tt> children; should it nevertheless run out, only the
+ *     parent's own subtree is {@link CategoryRepository renumbered} (and the whole taxonomy then
+ *     {@link CategoryRepository#rebalance(org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy) rebalanced}
+ *     in the background).
+ * </p>
+ */
+public final class NestedSetInterval {
+
+    public static final long ROOT_LFT = 0L;
+    public static final long ROOT_RGT = 1L << 62;
+
+    /**
+     * The share of the remaining space within the parent given to its first child; each later child is given
+     * <tt>1 / (RESERVE + n)</tt> of what then remains, where <tt>n</tt> is the number of its earlier siblings.
+     */
+    static final int RESERVE = 8;
+
+    /**
+     * The smallest spacing between consecutive bounds when renumbering a subtree within its root's interval, leaving
+     * room for at least one child within each category.
+     */
+    static final long MIN_GAP = 4;
+
+    private NestedSetInterval(){}
+
+    /**
+     * Allocates the interval of a new child, after <tt>after</tt> (the <tt>rgt</tt> of the last existing child, else
+     * the <tt>lft</tt> of the parent) and before <tt>parentRgt</tt>, the parent already having
+     * <tt>siblingCount</tt> children.
+     *
+     * @return <tt>{lft, rgt}</tt>, or <tt>null</tt> if there is no space left.
+     */
+    public static long[] allocate(final long after, final long parentRgt, final int siblingCount) {
+        return allocate(after, parentRgt, 2, siblingCount);
+    }
+
+    /**
+     * As {@link #allocate(long, long, int)}, but for an interval spanning at least <tt>width</tt> bounds (eg to hold
+     * an existing subtree).
+     */
+    public static long[] allocate(final long after, final long parentRgt, final long width, final int siblingCount) {
+        final long free = parentRgt - after - 1;
+        if (free < width) {
+            return null;
+        }
+        final long span = Math.max(width, free / (RESERVE + siblingCount));
+        return new long[] { after + 1, after + span };
+    }
+
+    /**
+     * The spacing between consecutive bounds when renumbering the provided number of descendants within the interval
+     * <tt>lft</tt> to <tt>rgt</tt> of their common ancestor, using only the first half of the interval so as to leave
+     * room for new children of the ancestor; or <tt>0</tt> if the spacing would be less than {@link #MIN_GAP}.
+     */
+    public static long gapWithin(final long lft, final long rgt, final int descendantCount) {
+        final long gap = (rgt - lft) / (2L * (2L * descendantCount + 1));
+        return gap >= MIN_GAP ? gap : 0;
+    }
+
+    /**
+     * The spacing between consecutive bounds when (re)numbering a taxonomy of the provided number of categories, such
+     * that the bounds are spread evenly over the whole range.
+     */
+    public static long gapFor(final int categoryCount) {
+        return (ROOT_RGT - ROOT_LFT) / (2L * categoryCount + 1);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+import com.google.common.base.Strings;
+
+import org.incode.module.classification.dom.ClassificationModule;
+
+/**
+ * Encoding of the {@link Category#getFullyQualifiedOrdinal() fully qualified ordinal} as a byte-sortable key.
+ *
+ * <p>
+ *     Each level of the hierarchy contributes exactly {@link #WIDTH} characters (the ordinal, offset to be
+ *     non-negative, in upper-case base 36), with no separator.  A parent's key is therefore a prefix of its children's
+ *     keys, and sorting the keys as plain strings yields the tree in depth-first order, with siblings ordered
+ *     numerically (so "1.2" sorts before "1.10").
+ * </p>
+ */
+public final class OrdinalKey {
+
+    /**
+     * Characters per level; 36^7 comfortably covers every <tt>int</tt>.
+     */
+    public static final int WIDTH = 7;
+
+    /**
+     * The maximum depth of hierarchy that can be encoded within the column.
+     */
+    public static final int MAX_DEPTH = ClassificationModule.JdoColumnLength.CATEGORY_FQORDINAL / WIDTH;
+
+    private static final int RADIX = 36;
+
+    private OrdinalKey(){}
+
+    /**
+     * The key of a category with the provided ordinal, directly under a parent with the provided key (or
+     * <tt>null</tt> if a root).
+     */
+    public static String append(final String parentKey, final int ordinal) {
+        final String levelKey = encode(ordinal);
+        if (parentKey == null) {
+            return levelKey;
+        }
+        if (parentKey.length() + WIDTH > ClassificationModule.JdoColumnLength.CATEGORY_FQORDINAL) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot nest categories more than %d levels deep", MAX_DEPTH));
+        }
+        return parentKey + levelKey;
+    }
+
+    /**
+     * The key for the provided ordinals, one per level starting from the root; eg <tt>of(1, 2)</tt>.
+     */
+    public static String of(final int... ordinals) {
+        String key = null;
+        for (final int ordinal : ordinals) {
+            key = append(key, ordinal);
+        }
+        return key;
+    }
+
+    /**
+     * Whether the key is in this (fixed-width) encoding, as opposed to the legacy dotted form (eg "1.10.2").
+     */
+    public static boolean isEncoded(final String key) {
+        return key != null && key.length() % WIDTH == 0 && key.indexOf('.') == -1;
+    }
+
+    /**
+     * Human-readable (dotted) form of the key, eg "1.10.2".
+     */
+    public static String toString(final String key) {
+        final StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < key.length(); i += WIDTH) {
+            if (buf.length() > 0) {
+                buf.append('.');
+            }
+            buf.append(decode(key.substring(i, i + WIDTH)));
+        }
+        return buf.toString();
+    }
+
+    private static String encode(final int ordinal) {
+        final long unsigned = (long) ordinal - Integer.MIN_VALUE;
+        return Strings.padStart(Long.toString(unsigned, RADIX).toUpperCase(), WIDTH, '0');
+    }
+
+    private static int decode(final String levelKey) {
+        return (int) (Long.parseLong(levelKey, RADIX) + Integer.MIN_VALUE);
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Fixed-size (64 bit) hash of the last part of a {@link Category#getFullyQualifiedName() fully qualified name} (eg
+ * "Larger" for "Sizes/Large/Larger"), for the {@link Category#getFullyQualifiedNameHash() indexed column} by which
+ * categories are
+ * {@link CategoryRepository#findByTaxonomyAndPath(org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy, String) looked up by path}.
+ *
+ * <p>
+ *     Only the last part is hashed so that renaming or moving a category leaves the hashes of its descendants (whose
+ *     fully qualified names are rewritten within the database, which cannot compute the hash) unchanged.  Categories
+ *     of the same name, as well as distinct names that (very rarely) share a hash, share a hash, so a match on the
+ *     hash must always be confirmed by comparing the fully qualified names themselves.
+ * </p>
+ */
+public final class PathHash {
+
+    private static final HashFunction FUNCTION = Hashing.murmur3_128();
+
+    private PathHash(){}
+
+    public static long of(final String fullyQualifiedName) {
+        final String lastPart = fullyQualifiedName.substring(fullyQualifiedName.lastIndexOf('/') + 1);
+        return FUNCTION.hashString(lastPart, StandardCharsets.UTF_8).asLong();
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+
+import lombok.Getter;
+
+/**
+ * Assembles a {@link Taxonomy} and its {@link Category categories} in memory, to be persisted in one go by
+ * {@link CategoryRepository#createTaxonomy(TaxonomyBuilder)}; eg:
+ *
+ * <pre>
+ * final TaxonomyBuilder builder = new TaxonomyBuilder("Sizes");
+ * final TaxonomyBuilder.Node large = builder.addChild("Large", "LGE", 1);
+ * large.addChild("Largest", "XXL", 1);
+ * large.addChild("Larger", "XL", 2);
+ * final Taxonomy sizes = categoryRepository.createTaxonomy(builder);
+ * </pre>
+ *
+ * <p>
+ *     The duplicate checks otherwise made by {@link Category#addChild(String, String, Integer)} are made as each node
+ *     is added, so the taxonomy can be persisted without any further validation.
+ * </p>
+ */
+public class TaxonomyBuilder {
+
+    /**
+     * A category to be created, or (the {@link TaxonomyBuilder#getRoot() root}) the taxonomy itself.
+     */
+    public static class Node {
+
+        @Getter
+        private final Node parent;
+        @Getter
+        private final String name;
+        @Getter
+        private final String reference;
+        @Getter
+        private final Integer ordinal;
+        /**
+         * The number of children, grandchildren and so on of this node.
+         */
+        @Getter
+        private int descendantCount;
+
+        private final TaxonomyBuilder builder;
+        private final List<Node> children = Lists.newArrayList();
+        private final Set<String> childNames = Sets.newHashSet();
+        private final Set<String> childReferences = Sets.newHashSet();
+
+        private Node(
+                final TaxonomyBuilder builder,
+                final Node parent,
+                final String name,
+                final String reference,
+                final Integer ordinal) {
+            this.builder = builder;
+            this.parent = parent;
+            this.name = name;
+            this.reference = reference;
+            this.ordinal = ordinal;
+        }
+
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+
+        /**
+         * @throws IllegalArgumentException if this node already has a child with the same name or (non-null)
+         * reference.
+         */
+        public Node addChild(final String name, final String reference, final Integer ordinal) {
+            if (childNames.contains(name)) {
+                throw new IllegalArgumentException(String.format(
+                        "There is already a child classification with the name of '%s'", name));
+            }
+            if (reference != null && childReferences.contains(reference)) {
+                throw new IllegalArgumentException(String.format(
+                        "There is already a child classification with the reference of '%s'", reference));
+            }
+            childNames.add(name);
+            if (reference != null) {
+                childReferences.add(reference);
+            }
+            final Node child = new Node(builder, this, name, reference, ordinal);
+            children.add(child);
+            for (Node ancestor = this; ancestor != null; ancestor = ancestor.parent) {
+                ancestor.descendantCount++;
+            }
+            builder.size++;
+            return child;
+        }
+    }
+
+    @Getter
+    private final Node root;
+
+    /**
+     * The number of nodes, including the {@link #getRoot() root}.
+     */
+    @Getter
+    private int size;
+
+    public TaxonomyBuilder(final String name) {
+        this.root = new Node(this, null, name, null, null);
+        this.size = 1;
+    }
+
+    public String getName() {
+        return root.getName();
+    }
+
+    /**
+     * Adds a top-level category (directly under the taxonomy).
+     */
+    public Node addChild(final String name, final String reference, final Integer ordinal) {
+        return root.addChild(name, reference, ordinal);
+    }
+
+}
@@ -0,0 +1,364 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.NatureOfService;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.i18n.TranslatableString;
+
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshot;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshotService;
+
+import lombok.Getter;
+
+/**
+ * Synchronizes the categories of a persisted {@link Taxonomy} with an incoming (master) copy, eg as
+ * {@link CategoryImporter#readTree(String, com.google.common.io.CharSource, CategoryImporter.Format) read} from an
+ * external file.
+ *
+ * <p>
+ *     Categories are matched by {@link Category#getReference() reference}, so every incoming category must have one,
+ *     and references must be unique across the whole of each tree (whereas {@link Category} only requires them to be
+ *     unique amongst siblings); otherwise the sync fails.
+ *     The two trees are diffed in memory, against a {@link TaxonomySnapshot} of the persisted taxonomy, and only the
+ *     differences are written: new categories are inserted, and existing ones are moved (to a different parent),
+ *     renamed and reordered, each using the set-based statements of {@link CategoryRepository} to update their
+ *     descendants.  Categories missing from the incoming tree are removed (along with their descendants), unless
+ *     {@link CategoryRepository#validateRemoveCascade(Category) in use}, in which case they are left in place and
+ *     reported.  The plan is worked out from the cached {@link TaxonomySnapshot snapshot} (once checked to be current),
+ *     which is invalidated only if there is something to apply; a taxonomy that is already in sync is therefore
+ *     never written, nor its snapshot rebuilt.
+ * </p>
+ *
+ * <p>
+ *     Persisted categories without a reference cannot be matched, and are left untouched (other than moving along
+ *     with their parent).  A category that must make way for another with the same name (under the same parent) is
+ *     first given a temporary name (<tt>~</tt> followed by its id, prefixed by further <tt>~</tt>s should that clash
+ *     with the name of any persisted or incoming category); should it then not be removable, it keeps that name.
+ * </p>
+ */
+@DomainService(
+        nature = NatureOfService.DOMAIN
+)
+public class TaxonomySynchronizer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaxonomySynchronizer.class);
+
+    /**
+     * The outcome of a sync.
+     */
+    public static class Result {
+
+        @Getter
+        private int inserted;
+        @Getter
+        private int moved;
+        @Getter
+        private int renamed;
+        @Getter
+        private int reordered;
+        @Getter
+        private int removed;
+        /**
+         * The categories that are missing from the incoming tree but could not be removed, and why.
+         */
+        @Getter
+        private final List<String> skipped = Lists.newArrayList();
+
+        Result() {
+        }
+
+        /**
+         * Whether the taxonomy was already in sync (so nothing was written).
+         */
+        public boolean isUnchanged() {
+            return inserted + moved + renamed + reordered + removed == 0 && skipped.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "Inserted %d, moved %d, renamed %d, reordered %d and removed %d categories%s",
+                    inserted, moved, renamed, reordered, removed,
+                    skipped.isEmpty() ? "" : String.format("; %d could not be removed, eg %s", skipped.size(), skipped.get(0)));
+        }
+    }
+
+    //region > sync (programmatic)
+
+    /**
+     * @throws IllegalArgumentException if an incoming category has no reference, its reference is not unique within
+     * the incoming tree, or it clashes with a persisted category that cannot be matched, or if the references of the
+     * persisted categories are not unique within the taxonomy; nothing is written.
+     * @throws IllegalStateException if the taxonomy's hierarchy has yet to be
+     * {@link CategoryRepository#rebuildHierarchy(Taxonomy) rebuilt}.
+     */
+    @Programmatic
+    public Result sync(final Taxonomy taxonomy, final TaxonomyBuilder incoming) {
+        final long start = System.currentTimeMillis();
+
+        categoryRepository.requireHierarchy(taxonomy);
+        final TaxonomySnapshot snapshot = taxonomySnapshotService.currentSnapshotOf(taxonomy);
+        final Plan plan = new Plan(snapshot, incoming);
+
+        final Result result = new Result();
+        if (plan.isUnchanged()) {
+            // nothing written, so the cached snapshot remains valid
+            return result;
+        }
+
+        // move any category out of the way that occupies a (parent, name) that another will end up with
+        for (final Map.Entry<TaxonomySnapshot.Node, String> entry : plan.temporaryNameByNode.entrySet()) {
+            plan.categoryOf(entry.getKey()).modifyName(entry.getValue());
+        }
+
+        boolean intervalsValid = true;
+        final List<Object[]> ancestorRows = Lists.newArrayList();
+        final Map<TaxonomyBuilder.Node, Category> inserted = Maps.newHashMap();
+        final Deque<TaxonomyBuilder.Node> stack = new ArrayDeque<>(Lists.reverse(incoming.getRoot().getChildren()));
+        while (!stack.isEmpty()) {
+            final TaxonomyBuilder.Node node = stack.pop();
+            final TaxonomySnapshot.Node existing = snapshot.findByReference(node.getReference());
+            final Category parent = node.getParent() == incoming.getRoot()
+                    ? taxonomy
+                    : inserted.containsKey(node.getParent())
+                            ? inserted.get(node.getParent())
+                            : plan.categoryOf(snapshot.findByReference(node.getParent().getReference()));
+
+            if (existing == null) {
+                final Category category = new Category(parent, node.getName(), node.getReference(), node.getOrdinal());
+                categoryRepository.persistChild(category, ancestorRows);
+                inserted.put(node, category);
+                result.inserted++;
+            } else {
+                final Category category = plan.categoryOf(existing);
+                if (plan.moved.contains(existing)) {
+                    // the new parent's own ancestors are needed to derive those of the moved subtree
+                    if (!ancestorRows.isEmpty()) {
+                        categoryRepository.insertAncestors(ancestorRows);
+                        ancestorRows.clear();
+                    }
+                    intervalsValid &= categoryRepository.moveSubtreeWithoutRebalance(category, parent);
+                    result.moved++;
+                }
+                if (!Objects.equals(category.getName(), node.getName())) {
+                    category.modifyName(node.getName());
+                    if (!Objects.equals(existing.getName(), node.getName())) {
+                        result.renamed++;
+                    }
+                }
+                if (existing.getOrdinal() != ordinalOf(node)) {
+                    category.modifyOrdinal(ordinalOf(node));
+                    result.reordered++;
+                }
+            }
+            stack.addAll(Lists.reverse(node.getChildren()));
+        }
+        if (!ancestorRows.isEmpty()) {
+            categoryRepository.insertAncestors(ancestorRows);
+        }
+
+        if (!plan.removed.isEmpty()) {
+            // removing the top-most only, as read after the moves (any descendants to be kept have been moved out)
+            taxonomySnapshotService.invalidate(taxonomy);
+            final TaxonomySnapshot moved = taxonomySnapshotService.snapshotOf(taxonomy);
+            final List<TaxonomySnapshot.Node> nodes = moved.getNodes();
+            for (int i = 1; i < nodes.size(); ) {
+                final TaxonomySnapshot.Node node = nodes.get(i);
+                if (node.getReference() == null || !plan.removed.contains(node.getReference())) {
+                    i++;
+                    continue;
+                }
+                final Category category = taxonomySnapshotService.categoryOf(node);
+                final TranslatableString reasonNotRemoved = categoryRepository.validateRemoveCascade(category);
+                if (reasonNotRemoved != null) {
+                    result.skipped.add(String.format("%s: %s", node.getReference(),
+                            categoryRepository.messageOf(reasonNotRemoved)));
+                } else {
+                    result.removed += node.getSubtreeEnd() - i;
+                    categoryRepository.removeCascade(category);
+                }
+                i = node.getSubtreeEnd();
+            }
+        }
+
+        if (result.inserted > 0 || !intervalsValid) {
+            categoryRepository.rebalance(taxonomy);
+        }
+        taxonomySnapshotService.invalidate(taxonomy);
+
+        LOG.info("{} of '{}' in {} ms", result, taxonomy.getName(), System.currentTimeMillis() - start);
+        return result;
+    }
+
+    //endregion
+
+    //region > plan
+
+    /**
+     * The differences between the persisted (snapshot) and incoming trees, worked out without writing anything.
+     */
+    private class Plan {
+
+        private final TaxonomySnapshot snapshot;
+        private final Set<TaxonomySnapshot.Node> moved = Sets.newHashSet();
+        private final Set<String> removed = Sets.newHashSet();
+        private final List<TaxonomySnapshot.Node> toVacate = Lists.newArrayList();
+        private final Map<TaxonomySnapshot.Node, String> temporaryNameByNode = Maps.newLinkedHashMap();
+        private boolean unchanged = true;
+
+        private final Map<Long, Category> categoryById = Maps.newHashMap();
+
+        Plan(final TaxonomySnapshot snapshot, final TaxonomyBuilder incoming) {
+            this.snapshot = snapshot;
+
+            // the snapshot indexes categories by reference, which is only safe if they are unique across the taxonomy
+            final Map<String, TaxonomySnapshot.Node> persistedByReference = Maps.newHashMap();
+            final Set<String> names = Sets.newHashSet();
+            for (final TaxonomySnapshot.Node existing : snapshot.getDescendants(snapshot.getRoot())) {
+                names.add(existing.getName());
+                if (existing.getReference() == null) {
+                    continue;
+                }
+                final TaxonomySnapshot.Node other = persistedByReference.put(existing.getReference(), existing);
+                if (other != null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Categories '%s' and '%s' both have the reference of '%s'",
+                            other.getFullyQualifiedName(), existing.getFullyQualifiedName(), existing.getReference()));
+                }
+            }
+
+            // the (parent, name) key each persisted category will end up with, and the category ending up with it
+            final Map<String, String> referenceByTargetKey = Maps.newHashMap();
+            final Set<String> references = Sets.newHashSet();
+            final Deque<TaxonomyBuilder.Node> stack = new ArrayDeque<>(incoming.getRoot().getChildren());
+            while (!stack.isEmpty()) {
+                final TaxonomyBuilder.Node node = stack.pop();
+                if (node.getReference() == null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Category '%s' has no reference", node.getName()));
+                }
+                if (!references.add(node.getReference())) {
+                    throw new IllegalArgumentException(String.format(
+                            "There is more than one category with the reference of '%s'", node.getReference()));
+                }
+                names.add(node.getName());
+                final TaxonomySnapshot.Node existing = snapshot.findByReference(node.getReference());
+                final TaxonomySnapshot.Node existingParent = node.getParent() == incoming.getRoot()
+                        ? snapshot.getRoot()
+                        : snapshot.findByReference(node.getParent().getReference());
+
+                if (existing == null) {
+                    unchanged = false;
+                } else {
+                    final boolean isMoved = existingParent == null
+                            || existing.getParentIndex() != existingParent.getIndex();
+                    if (isMoved) {
+                        moved.add(existing);
+                    }
+                    final boolean isRenamed = !Objects.equals(existing.getName(), node.getName());
+                    if (isMoved && isRenamed) {
+                        // give it a unique name while moving, so it clashes with neither its old nor its new siblings
+                        toVacate.add(existing);
+                    }
+                    unchanged &= !isMoved && !isRenamed && existing.getOrdinal() == ordinalOf(node);
+                }
+                if (existingParent != null) {
+                    referenceByTargetKey.put(keyOf(existingParent, node.getName()), node.getReference());
+                }
+                stack.addAll(node.getChildren());
+            }
+
+            for (final TaxonomySnapshot.Node existing : snapshot.getDescendants(snapshot.getRoot())) {
+                final TaxonomySnapshot.Node parent = snapshot.getParent(existing);
+                final String occupant = referenceByTargetKey.get(keyOf(parent, existing.getName()));
+                if (existing.getReference() == null) {
+                    if (occupant != null) {
+                        throw new IllegalArgumentException(String.format(
+                                "Category '%s' (%s) clashes with '%s', which has no reference",
+                                existing.getName(), occupant, existing.getFullyQualifiedName()));
+                    }
+                    continue;
+                }
+                if (!references.contains(existing.getReference())) {
+                    removed.add(existing.getReference());
+                    unchanged = false;
+                }
+                if (occupant != null && !occupant.equals(existing.getReference()) && !toVacate.contains(existing)) {
+                    toVacate.add(existing);
+                }
+            }
+
+            for (final TaxonomySnapshot.Node node : toVacate) {
+                String temporaryName = "~" + node.getId();
+                while (names.contains(temporaryName)) {
+                    temporaryName = "~" + temporaryName;
+                }
+                temporaryNameByNode.put(node, temporaryName);
+            }
+        }
+
+        boolean isUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * Loads the persisted category (only those being changed are ever loaded).
+         */
+        Category categoryOf(final TaxonomySnapshot.Node node) {
+            return categoryById.computeIfAbsent(node.getId(), id -> taxonomySnapshotService.categoryOf(node));
+        }
+
+        private String keyOf(final TaxonomySnapshot.Node parent, final String name) {
+            return parent.getId() + "\u0000" + name;
+        }
+    }
+
+    private static int ordinalOf(final TaxonomyBuilder.Node node) {
+        return node.getOrdinal() != null ? node.getOrdinal() : 0;
+    }
+
+    //endregion
+
+    //region > injected
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    TaxonomySnapshotService taxonomySnapshotService;
+    //endregion
+
+}
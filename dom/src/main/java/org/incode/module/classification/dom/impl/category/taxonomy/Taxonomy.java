@@ -1,25 +1,36 @@
 package org.incode.module.classification.dom.impl.category.taxonomy;
 
+import java.io.StringWriter;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.jdo.annotations.DiscriminatorStrategy;
 import javax.jdo.annotations.InheritanceStrategy;
 
+import com.google.common.io.CharSource;
+
 import org.apache.isis.applib.annotation.Action;
 import org.apache.isis.applib.annotation.ActionLayout;
 import org.apache.isis.applib.annotation.Collection;
+import org.apache.isis.applib.annotation.CommandExecuteIn;
+import org.apache.isis.applib.annotation.CommandReification;
 import org.apache.isis.applib.annotation.DomainObject;
 import org.apache.isis.applib.annotation.Editing;
 import org.apache.isis.applib.annotation.MemberOrder;
 import org.apache.isis.applib.annotation.ParameterLayout;
 import org.apache.isis.applib.annotation.SemanticsOf;
 import org.apache.isis.applib.services.i18n.TranslatableString;
+import org.apache.isis.applib.services.message.MessageService;
+import org.apache.isis.applib.value.Clob;
 
 import org.incode.module.classification.dom.impl.applicability.Applicability;
 import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryExporter;
+import org.incode.module.classification.dom.impl.category.CategoryImporter;
 import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.TaxonomySynchronizer;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -126,9 +137,218 @@ public SortedSet<Applicability> choices0NotApplicable() {
     }
     //endregion
 
+    //region > rebalance (action)
+    public static class RebalanceDomainEvent extends ActionDomainEvent {
+    }
+
+    /**
+     * Renumbers the nested-set intervals of all categories of this taxonomy, restoring the gaps used when adding new
+     * categories; see {@link CategoryRepository#rebalance(Taxonomy)}.
+     *
+     * <p>
+     *     Run as a background command, since it touches every category of the taxonomy.
+     * </p>
+     */
+    @Action(
+            domainEvent = RebalanceDomainEvent.class,
+            semantics = SemanticsOf.IDEMPOTENT,
+            command = CommandReification.ENABLED,
+            commandExecuteIn = CommandExecuteIn.BACKGROUND
+    )
+    @ActionLayout(
+            cssClassFa = "fa-sort-amount-asc"
+    )
+    public Taxonomy rebalance() {
+        categoryRepository.rebalance(this);
+        return this;
+    }
+    //endregion
+
+    //region > compactRanks (action)
+    public static class CompactRanksDomainEvent extends ActionDomainEvent {
+    }
+
+    /**
+     * Shortens the ranks of any categories that have been placed amongst their siblings, without changing their
+     * order or ordinals; see {@link CategoryRepository#compactRanks(Taxonomy)}.
+     *
+     * <p>
+     *     Run as a background command, since it reads every category of the taxonomy.
+     * </p>
+     */
+    @Action(
+            domainEvent = CompactRanksDomainEvent.class,
+            semantics = SemanticsOf.IDEMPOTENT,
+            command = CommandReification.ENABLED,
+            commandExecuteIn = CommandExecuteIn.BACKGROUND
+    )
+    @ActionLayout(
+            cssClassFa = "fa-compress"
+    )
+    public Taxonomy compactRanks() {
+        categoryRepository.compactRanks(this);
+        return this;
+    }
+    //endregion
+
+    //region > rebuildHierarchy (action)
+    public static class RebuildHierarchyDomainEvent extends ActionDomainEvent {
+    }
+
+    /**
+     * Derives the closure table rows, paths, ordinal keys, depths, hashes and nested-set intervals of all categories
+     * of this taxonomy, for those created before they were introduced; see
+     * {@link CategoryRepository#rebuildHierarchy(Taxonomy)}.
+     *
+     * <p>
+     *     A one-off migration: until it has been run, the operations relying on these values (adding, removing,
+     *     renaming and reordering categories, importing and synchronizing) are refused rather than rebuilding the
+     *     hierarchy implicitly.  Run as a background command, since it touches every category of the taxonomy.
+     * </p>
+     */
+    @Action(
+            domainEvent = RebuildHierarchyDomainEvent.class,
+            semantics = SemanticsOf.IDEMPOTENT,
+            command = CommandReification.ENABLED,
+            commandExecuteIn = CommandExecuteIn.BACKGROUND
+    )
+    @ActionLayout(
+            cssClassFa = "fa-sitemap"
+    )
+    public Taxonomy rebuildHierarchy() {
+        categoryRepository.rebuildHierarchy(this);
+        return this;
+    }
+    //endregion
+
+    //region > importCategories (action)
+    public static class ImportCategoriesDomainEvent extends ActionDomainEvent {
+    }
+
+    /**
+     * Imports categories from a CSV or JSON file (according to its extension); see {@link CategoryImporter}.
+     *
+     * <p>
+     *     Every row is validated before anything is written, but the rows are then committed in chunks; if writing
+     *     fails part-way, the chunks already committed are kept and the error reports the last row committed, after
+     *     which the same file can be imported again.
+     * </p>
+     */
+    @Action(
+            domainEvent = ImportCategoriesDomainEvent.class,
+            semantics = SemanticsOf.NON_IDEMPOTENT
+    )
+    @ActionLayout(
+            cssClassFa = "fa-upload",
+            named = "Import",
+            describedAs = "Validates every row before writing any, then commits them in chunks of "
+                    + CategoryImporter.CHUNK_SIZE + "; if writing fails part-way, the rows already committed are kept "
+                    + "and the error gives the last of them, so the same file can be imported again resuming after it"
+    )
+    public Taxonomy importCategories(
+            @ParameterLayout(named = "File")
+            final Clob file,
+            @Nullable
+            @ParameterLayout(
+                    named = "Resume after row",
+                    describedAs = "Skips the rows already committed by an earlier, failed import of the same file"
+            )
+            final Integer resumeAfterRow) {
+        final CategoryImporter.Result result = categoryImporter.importCategories(
+                this, CharSource.wrap(file.getChars()), CategoryImporter.Format.of(file.getName()),
+                resumeAfterRow != null ? resumeAfterRow : 0);
+        if (result.isValid()) {
+            messageService.informUser(result.toString());
+        } else {
+            messageService.raiseError(result.toString());
+        }
+        return this;
+    }
+
+    public TranslatableString validateImportCategories(final Clob file, final Integer resumeAfterRow) {
+        if (resumeAfterRow != null && resumeAfterRow < 0) {
+            return TranslatableString.tr("Cannot resume after a negative row");
+        }
+        return categoryRepository.validateHasPath(this);
+    }
+    //endregion
+
+    //region > synchronize (action)
+    public static class SynchronizeDomainEvent extends ActionDomainEvent {
+    }
+
+    /**
+     * Brings the categories in line with a master CSV or JSON file (in the format read by
+     * {@link #importCategories(Clob, Integer)}), matching them by reference; see {@link TaxonomySynchronizer}.
+     */
+    @Action(
+            domainEvent = SynchronizeDomainEvent.class,
+            semantics = SemanticsOf.IDEMPOTENT
+    )
+    @ActionLayout(
+            cssClassFa = "fa-refresh"
+    )
+    public Taxonomy synchronize(
+            @ParameterLayout(named = "File")
+            final Clob file) {
+        final TaxonomySynchronizer.Result result;
+        try {
+            result = taxonomySynchronizer.sync(this, categoryImporter.readTree(
+                    getName(), CharSource.wrap(file.getChars()), CategoryImporter.Format.of(file.getName())));
+        } catch (IllegalArgumentException ex) {
+            messageService.raiseError(ex.getMessage());
+            return this;
+        }
+        messageService.informUser(result.toString());
+        return this;
+    }
+
+    public TranslatableString validateSynchronize(final Clob file) {
+        return categoryRepository.validateHasPath(this);
+    }
+    //endregion
+
+    //region > export (action)
+    public static class ExportDomainEvent extends ActionDomainEvent {
+    }
+
+    /**
+     * Exports the categories as a CSV or JSON file, as read by {@link #importCategories(Clob, Integer)}; see
+     * {@link CategoryExporter}.
+     */
+    @Action(
+            domainEvent = ExportDomainEvent.class,
+            semantics = SemanticsOf.SAFE
+    )
+    @ActionLayout(
+            cssClassFa = "fa-download"
+    )
+    public Clob export(
+            @ParameterLayout(named = "Format")
+            final CategoryImporter.Format format) {
+        final StringWriter writer = new StringWriter();
+        categoryExporter.export(this, writer, format);
+        return format == CategoryImporter.Format.JSON
+                ? new Clob(getName() + ".json", "application/json", writer.toString())
+                : new Clob(getName() + ".csv", "text/csv", writer.toString());
+    }
+
+    public CategoryImporter.Format default0Export() {
+        return CategoryImporter.Format.CSV;
+    }
+    //endregion
+
     //region > injected
     @Inject
     CategoryRepository categoryRepository;
+    @Inject
+    CategoryExporter categoryExporter;
+    @Inject
+    CategoryImporter categoryImporter;
+    @Inject
+    TaxonomySynchronizer taxonomySynchronizer;
+    @Inject
+    MessageService messageService;
     //endregion
 }
 
@@ -0,0 +1,275 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category.taxonomy;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.incode.module.classification.dom.impl.category.Category;
+
+import lombok.Getter;
+
+/**
+ * Immutable, in-memory copy of the {@link Category categories} of a {@link Taxonomy}, as built by
+ * {@link TaxonomySnapshotService}.
+ *
+ * <p>
+ *     The {@link #getNodes() nodes} are held in depth-first order, so the descendants of any node are exactly those
+ *     that follow it up to its {@link Node#getSubtreeEnd() subtree end}.  Siblings are ordered by
+ *     {@link Category#getRank() rank} and then fully qualified name, exactly as
+ *     {@link org.incode.module.classification.dom.impl.category.CategoryRepository#findByParent(Category)} lists them.
+ * </p>
+ */
+public final class TaxonomySnapshot {
+
+    /**
+     * An immutable copy of a single {@link Category}.
+     */
+    public static final class Node {
+
+        @Getter
+        private final long id;
+        @Getter
+        private final String name;
+        @Getter
+        private final String reference;
+        @Getter
+        private final String fullyQualifiedName;
+        @Getter
+        private final String fullyQualifiedOrdinal;
+        @Getter
+        private final int ordinal;
+        @Getter
+        private final String rank;
+        /**
+         * Position of this node within {@link TaxonomySnapshot#getNodes()}.
+         */
+        @Getter
+        private final int index;
+        /**
+         * Position of the parent node within {@link TaxonomySnapshot#getNodes()}, or -1 for the taxonomy itself.
+         */
+        @Getter
+        private final int parentIndex;
+        /**
+         * Position (exclusive) of the last descendant of this node within {@link TaxonomySnapshot#getNodes()}.
+         */
+        @Getter
+        private final int subtreeEnd;
+
+        private Node(final Row row, final int index, final int parentIndex, final int subtreeEnd) {
+            this.id = row.id;
+            this.name = row.name;
+            this.reference = row.reference;
+            this.fullyQualifiedName = row.fullyQualifiedName;
+            this.fullyQualifiedOrdinal = row.fullyQualifiedOrdinal;
+            this.ordinal = row.ordinal;
+            this.rank = row.rank;
+            this.index = index;
+            this.parentIndex = parentIndex;
+            this.subtreeEnd = subtreeEnd;
+        }
+
+        @Override
+        public String toString() {
+            return "Node{" + fullyQualifiedName + "}";
+        }
+    }
+
+    /**
+     * The values of a single {@link Category} as read from the database, from which a snapshot is built.
+     */
+    static final class Row {
+        final long id;
+        final Long parentId;
+        final String name;
+        final String reference;
+        final String fullyQualifiedName;
+        final String fullyQualifiedOrdinal;
+        final int ordinal;
+        final String rank;
+        final long version;
+
+        Row(final long id,
+                final Long parentId,
+                final String name,
+                final String reference,
+                final String fullyQualifiedName,
+                final String fullyQualifiedOrdinal,
+                final int ordinal,
+                final String rank,
+                final long version) {
+            this.id = id;
+            this.parentId = parentId;
+            this.name = name;
+            this.reference = reference;
+            this.fullyQualifiedName = fullyQualifiedName;
+            this.fullyQualifiedOrdinal = fullyQualifiedOrdinal;
+            this.ordinal = ordinal;
+            this.rank = rank;
+            this.version = version;
+        }
+    }
+
+    /**
+     * As the <tt>ORDER BY rank, fullyQualifiedName</tt> of the <tt>findByParent</tt> queries of {@link Category}.
+     */
+    private static final Comparator<Row> SIBLING_ORDER =
+            Comparator.<Row, String>comparing(x -> x.rank, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(x -> x.fullyQualifiedName, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    @Getter
+    private final long taxonomyId;
+    /**
+     * Summarises the version numbers of the rows from which this snapshot was built; if the rows' current stamp
+     * differs then the snapshot is stale.
+     */
+    @Getter
+    private final String versionStamp;
+    @Getter
+    private final List<Node> nodes;
+
+    private final ImmutableListMultimap<Integer, Node> childrenByParentIndex;
+    private final Map<Long, Node> nodesById;
+    private final Map<String, Node> nodesByReference;
+    private final Map<String, Node> nodesByFullyQualifiedName;
+
+    TaxonomySnapshot(final long taxonomyId, final String versionStamp, final List<Row> rows) {
+        this.taxonomyId = taxonomyId;
+        this.versionStamp = versionStamp;
+
+        final ListMultimap<Long, Row> rowsByParentId = ArrayListMultimap.create();
+        Row root = null;
+        for (final Row row : rows) {
+            if (row.id == taxonomyId) {
+                root = row;
+            } else {
+                rowsByParentId.put(row.parentId, row);
+            }
+        }
+
+        final List<Node> nodes = Lists.newArrayListWithCapacity(rows.size());
+        final ImmutableListMultimap.Builder<Integer, Node> childrenByParentIndex = ImmutableListMultimap.builder();
+        if (root != null) {
+            appendDepthFirst(root, -1, rowsByParentId, nodes, childrenByParentIndex);
+        }
+        this.nodes = ImmutableList.copyOf(nodes);
+        this.childrenByParentIndex = childrenByParentIndex.build();
+
+        final Map<Long, Node> nodesById = Maps.newHashMap();
+        final Map<String, Node> nodesByReference = Maps.newHashMap();
+        final Map<String, Node> nodesByFullyQualifiedName = Maps.newHashMap();
+        for (final Node node : this.nodes) {
+            nodesById.put(node.getId(), node);
+            if (node.getReference() != null) {
+                nodesByReference.putIfAbsent(node.getReference(), node);
+            }
+            nodesByFullyQualifiedName.put(node.getFullyQualifiedName(), node);
+        }
+        this.nodesById = ImmutableMap.copyOf(nodesById);
+        this.nodesByReference = ImmutableMap.copyOf(nodesByReference);
+        this.nodesByFullyQualifiedName = ImmutableMap.copyOf(nodesByFullyQualifiedName);
+    }
+
+    /**
+     * Appends the row and (recursively) its descendants, returning the (exclusive) end of its subtree.
+     */
+    private static int appendDepthFirst(
+            final Row row,
+            final int parentIndex,
+            final ListMultimap<Long, Row> rowsByParentId,
+            final List<Node> nodes,
+            final ImmutableListMultimap.Builder<Integer, Node> childrenByParentIndex) {
+
+        final int index = nodes.size();
+        nodes.add(null); // placeholder, replaced once the subtree end is known
+
+        final List<Row> children = Lists.newArrayList(rowsByParentId.get(row.id));
+        children.sort(SIBLING_ORDER);
+        for (final Row child : children) {
+            appendDepthFirst(child, index, rowsByParentId, nodes, childrenByParentIndex);
+        }
+
+        final int subtreeEnd = nodes.size();
+        final Node node = new Node(row, index, parentIndex, subtreeEnd);
+        nodes.set(index, node);
+        if (parentIndex >= 0) {
+            childrenByParentIndex.put(parentIndex, node);
+        }
+        return subtreeEnd;
+    }
+
+    //region > queries
+
+    /**
+     * The node for the taxonomy itself.
+     */
+    public Node getRoot() {
+        return nodes.isEmpty() ? null : nodes.get(0);
+    }
+
+    public Node findById(final long id) {
+        return nodesById.get(id);
+    }
+
+    public Node findByReference(final String reference) {
+        return nodesByReference.get(reference);
+    }
+
+    public Node findByFullyQualifiedName(final String fullyQualifiedName) {
+        return nodesByFullyQualifiedName.get(fullyQualifiedName);
+    }
+
+    public Node getParent(final Node node) {
+        return node.getParentIndex() >= 0 ? nodes.get(node.getParentIndex()) : null;
+    }
+
+    /**
+     * The children of the node, in sibling order; an immutable list.
+     */
+    public List<Node> getChildren(final Node node) {
+        return childrenByParentIndex.get(node.getIndex());
+    }
+
+    /**
+     * All descendants of the node, in depth-first order.
+     */
+    public List<Node> getDescendants(final Node node) {
+        return nodes.subList(node.getIndex() + 1, node.getSubtreeEnd());
+    }
+
+    /**
+     * Whether the node is a (strict) descendant of the candidate ancestor; a constant-time comparison.
+     */
+    public boolean isDescendantOf(final Node node, final Node ancestor) {
+        return node.getIndex() > ancestor.getIndex() && node.getIndex() < ancestor.getSubtreeEnd();
+    }
+
+    //endregion
+
+}
@@ -0,0 +1,344 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category.taxonomy;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.NatureOfService;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.query.QueryDefault;
+import org.apache.isis.applib.services.repository.RepositoryService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
+
+/**
+ * Caches an immutable {@link TaxonomySnapshot} of each {@link Taxonomy}, for the many read-only lookups (rendering,
+ * choices and the like) that would otherwise query the categories of the taxonomy on every request.
+ *
+ * <p>
+ *     Readers only ever see a complete snapshot, obtained from a concurrent map without locking; once built, a
+ *     snapshot is served without hitting the database.  Only committed state is ever cached:
+ * </p>
+ * <ul>
+ *     <li>{@link org.incode.module.classification.dom.impl.category.CategoryRepository} and {@link Category}
+ *     {@link #invalidate(Taxonomy) invalidate} the snapshot of a taxonomy whenever they change its categories.  The
+ *     cached snapshot is discarded once the transaction has completed; until then, the changing transaction is given
+ *     snapshots built afresh (reflecting its own changes) that are never cached.  The same applies while the
+ *     transaction has any other pending changes to categories.</li>
+ *     <li>a cached snapshot is {@link #revalidate() revalidated} on lookup once it has been cached for longer than
+ *     the {@link #setRevalidateIntervalMillis(long) revalidate interval}, comparing the version numbers of the
+ *     categories of the taxonomy against those from which the snapshot was built (in a single query); this picks up
+ *     changes made by other nodes of a cluster, or with SQL that bypassed {@link #invalidate(Taxonomy)}.</li>
+ * </ul>
+ */
+@DomainService(
+        nature = NatureOfService.DOMAIN
+)
+public class TaxonomySnapshotService {
+
+    public static final long DEFAULT_REVALIDATE_INTERVAL_MILLIS = 10_000L;
+
+    private final ConcurrentMap<Long, Entry> entryByTaxonomyId = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented whenever snapshots are discarded, so that a snapshot built concurrently (from what may by then be
+     * out-of-date rows) is not then cached.
+     */
+    private final AtomicLong discards = new AtomicLong();
+
+    private final Object lock = new Object();
+
+    /**
+     * The taxonomies invalidated by the current transaction (of this thread), to be discarded on its completion.
+     */
+    private final ThreadLocal<Set<Long>> pendingTaxonomyIds = ThreadLocal.withInitial(Sets::newHashSet);
+
+    private volatile long revalidateIntervalMillis = DEFAULT_REVALIDATE_INTERVAL_MILLIS;
+
+    //region > snapshotOf, currentSnapshotOf (programmatic)
+
+    /**
+     * The current snapshot of the taxonomy, building it (with a single query) if not yet cached or if the current
+     * transaction has pending changes to categories.
+     */
+    @Programmatic
+    public TaxonomySnapshot snapshotOf(final Taxonomy taxonomy) {
+        final long taxonomyId = jdbcSupport.idOf(taxonomy);
+        if (hasPendingChanges(taxonomyId)) {
+            // reflects the changes of this transaction, so not to be shared with any other
+            return build(taxonomyId);
+        }
+        final Entry entry = entryByTaxonomyId.get(taxonomyId);
+        if (entry == null) {
+            return buildAndCache(taxonomyId);
+        }
+        if (System.currentTimeMillis() - entry.checkedAt < revalidateIntervalMillis) {
+            return entry.snapshot;
+        }
+        revalidate(Collections.singletonList(taxonomyId));
+        final Entry revalidated = entryByTaxonomyId.get(taxonomyId);
+        return revalidated != null ? revalidated.snapshot : buildAndCache(taxonomyId);
+    }
+
+    /**
+     * As {@link #snapshotOf(Taxonomy)}, but checking a cached snapshot is still current (with a single aggregate query
+     * over the version numbers, see {@link #revalidate()}) whatever the revalidate interval, rather than rebuilding
+     * it; for callers that write on the strength of the snapshot.
+     */
+    @Programmatic
+    public TaxonomySnapshot currentSnapshotOf(final Taxonomy taxonomy) {
+        final long taxonomyId = jdbcSupport.idOf(taxonomy);
+        if (entryByTaxonomyId.containsKey(taxonomyId) && !hasPendingChanges(taxonomyId)) {
+            revalidate(Collections.singletonList(taxonomyId));
+        }
+        return snapshotOf(taxonomy);
+    }
+
+    /**
+     * The {@link Category} corresponding to a node of a snapshot.
+     */
+    @Programmatic
+    public Category categoryOf(final TaxonomySnapshot.Node node) {
+        return jdbcSupport.findById(Category.class, node.getId());
+    }
+
+    /**
+     * The {@link Category categories} corresponding to nodes of a snapshot of the taxonomy, in the same order.
+     *
+     * <p>
+     *     Served without querying if they have all already been loaded by the current transaction (so rendering the
+     *     same choices again is free); otherwise every category of the taxonomy is loaded, with a single query.  Any
+     *     node whose category has since been removed is skipped.
+     * </p>
+     */
+    @Programmatic
+    public List<Category> categoriesOf(final Taxonomy taxonomy, final List<TaxonomySnapshot.Node> nodes) {
+        final Map<Long, Category> categoryById = jdbcSupport.findCachedById(Category.class);
+        if (!nodes.stream().allMatch(node -> categoryById.containsKey(node.getId()))) {
+            for (final Category category : repositoryService.allMatches(
+                    new QueryDefault<>(Category.class, "findByTaxonomy", "taxonomy", taxonomy))) {
+                categoryById.put(jdbcSupport.idOf(category), category);
+            }
+        }
+        final List<Category> categories = Lists.newArrayListWithCapacity(nodes.size());
+        for (final TaxonomySnapshot.Node node : nodes) {
+            final Category category = categoryById.get(node.getId());
+            if (category != null) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    //endregion
+
+    //region > invalidate, revalidate (programmatic)
+
+    /**
+     * Discards the snapshot of the taxonomy once the current transaction has completed (or immediately, if there is
+     * none); the next request will then rebuild it.
+     */
+    @Programmatic
+    public void invalidate(final Taxonomy taxonomy) {
+        if (taxonomy == null) {
+            return;
+        }
+        final Set<Long> pending = pendingTaxonomyIds.get();
+        final boolean first = pending.isEmpty();
+        pending.add(jdbcSupport.idOf(taxonomy));
+        if (first) {
+            jdbcSupport.afterCompletion(() -> {
+                pendingTaxonomyIds.remove();
+                discard(pending);
+            });
+        }
+    }
+
+    /**
+     * Rebuilds those cached snapshots whose categories have since changed (or discards them, if their taxonomy has
+     * been removed, or if the current transaction has pending changes to categories).
+     *
+     * <p>
+     *     Performed anyway on lookup of each snapshot at most once per
+     *     {@link #setRevalidateIntervalMillis(long) revalidate interval}; may also be called periodically, eg by a
+     *     scheduler.
+     * </p>
+     *
+     * @return the number of snapshots rebuilt or discarded.
+     */
+    @Programmatic
+    public int revalidate() {
+        return revalidate(Lists.newArrayList(entryByTaxonomyId.keySet()));
+    }
+
+    /**
+     * How long a snapshot is served before its version numbers are {@link #revalidate() revalidated} again; defaults
+     * to {@value #DEFAULT_REVALIDATE_INTERVAL_MILLIS} ms.
+     */
+    @Programmatic
+    public void setRevalidateIntervalMillis(final long revalidateIntervalMillis) {
+        this.revalidateIntervalMillis = revalidateIntervalMillis;
+    }
+
+    //endregion
+
+    //region > helpers
+
+    private int revalidate(final List<Long> taxonomyIds) {
+        if (taxonomyIds.isEmpty()) {
+            return 0;
+        }
+        final long checkedAt = System.currentTimeMillis();
+        final Map<Long, String> versionStampByTaxonomyId = Maps.newHashMap();
+        for (final Object[] row : jdbcSupport.executeQuery(
+                "SELECT \"taxonomyId\", COUNT(*), SUM(\"version\"), SUM(\"id\") "
+                        + "FROM " + JdbcSupport.CATEGORY + " "
+                        + "WHERE \"taxonomyId\" IN (" + Joiner.on(", ").join(Collections.nCopies(taxonomyIds.size(), "?")) + ") "
+                        + "GROUP BY \"taxonomyId\"",
+                rs -> new Object[] { rs.getLong(1), versionStamp(rs.getLong(2), rs.getLong(3), rs.getLong(4)) },
+                taxonomyIds.toArray())) {
+            versionStampByTaxonomyId.put((Long) row[0], (String) row[1]);
+        }
+
+        int count = 0;
+        for (final Long taxonomyId : taxonomyIds) {
+            final Entry entry = entryByTaxonomyId.get(taxonomyId);
+            if (entry == null) {
+                continue;
+            }
+            final String versionStamp = versionStampByTaxonomyId.get(taxonomyId);
+            if (entry.snapshot.getVersionStamp().equals(versionStamp)) {
+                entry.checkedAt = checkedAt;
+                continue;
+            }
+            if (versionStamp == null || hasPendingChanges(taxonomyId)) {
+                discard(Collections.singleton(taxonomyId));
+            } else {
+                buildAndCache(taxonomyId);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private boolean hasPendingChanges(final long taxonomyId) {
+        return pendingTaxonomyIds.get().contains(taxonomyId) || jdbcSupport.hasPendingChanges(Category.class);
+    }
+
+    private TaxonomySnapshot buildAndCache(final long taxonomyId) {
+        final long discardsBefore = discards.get();
+        final TaxonomySnapshot snapshot = build(taxonomyId);
+        synchronized (lock) {
+            if (discards.get() == discardsBefore) {
+                entryByTaxonomyId.put(taxonomyId, new Entry(snapshot));
+            }
+        }
+        return snapshot;
+    }
+
+    private void discard(final Collection<Long> taxonomyIds) {
+        synchronized (lock) {
+            discards.incrementAndGet();
+            for (final Long taxonomyId : taxonomyIds) {
+                entryByTaxonomyId.remove(taxonomyId);
+            }
+        }
+    }
+
+    private TaxonomySnapshot build(final long taxonomyId) {
+        final List<TaxonomySnapshot.Row> rows = jdbcSupport.executeQuery(
+                "SELECT \"id\", \"parentId\", \"name\", \"reference\", \"fullyQualifiedName\", "
+                        + "       \"fullyQualifiedOrdinal\", \"ordinal\", \"rank\", \"version\" "
+                        + "FROM " + JdbcSupport.CATEGORY + " "
+                        + "WHERE \"taxonomyId\" = ?",
+                rs -> new TaxonomySnapshot.Row(
+                        rs.getLong("id"),
+                        nullableLong(rs, "parentId"),
+                        rs.getString("name"),
+                        rs.getString("reference"),
+                        rs.getString("fullyQualifiedName"),
+                        rs.getString("fullyQualifiedOrdinal"),
+                        rs.getInt("ordinal"),
+                        rs.getString("rank"),
+                        rs.getLong("version")),
+                taxonomyId);
+
+        long sumVersion = 0;
+        long sumId = 0;
+        for (final TaxonomySnapshot.Row row : rows) {
+            sumVersion += row.version;
+            sumId += row.id;
+        }
+        return new TaxonomySnapshot(taxonomyId, versionStamp(rows.size(), sumVersion, sumId), rows);
+    }
+
+    private static Long nullableLong(final ResultSet rs, final String column) throws SQLException {
+        final long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * Changes whenever a category is added or removed (count, sum of ids) or updated (sum of version numbers, every
+     * update incrementing the version of the row).
+     */
+    private static String versionStamp(final long count, final long sumVersion, final long sumId) {
+        return count + ":" + sumVersion + ":" + sumId;
+    }
+
+    private static final class Entry {
+        private final TaxonomySnapshot snapshot;
+        /**
+         * When the snapshot was built or last found to be current.
+         */
+        private volatile long checkedAt;
+
+        Entry(final TaxonomySnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.checkedAt = System.currentTimeMillis();
+        }
+    }
+
+    //endregion
+
+    //region > injected
+    @Inject
+    JdbcSupport jdbcSupport;
+    @Inject
+    RepositoryService repositoryService;
+    //endregion
+
+}
@@ -18,8 +18,8 @@
  */
 package org.incode.module.classification.dom.impl.classification;
 
+import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.jdo.annotations.IdGeneratorStrategy;
@@ -42,7 +42,6 @@
 import org.apache.isis.applib.annotation.Property;
 import org.apache.isis.applib.annotation.SemanticsOf;
 import org.apache.isis.applib.services.title.TitleService;
-import org.apache.isis.applib.util.ObjectContracts;
 
 import org.incode.module.classification.dom.ClassificationModule;
 import org.incode.module.classification.dom.impl.category.Category;
@@ -78,7 +77,22 @@
                 value = "SELECT "
                         + "FROM org.incode.module.classification.dom.impl.classification.Classification "
                         + "WHERE category == :category "
-                        + "ORDER BY taxonomy, category")
+                        + "ORDER BY taxonomy, category"),
+        @javax.jdo.annotations.Query(
+                name = "findFirstByCategoryPathPrefix", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.classification.Classification "
+                        + "WHERE category.path.startsWith(:path) "
+                        + "ORDER BY category.fullyQualifiedName, classifiedStr "
+                        + "RANGE 0,1"),
+        @javax.jdo.annotations.Query(
+                name = "findByTaxonomyAndCategoryInterval", language = "JDOQL",
+                value = "SELECT "
+                        + "FROM org.incode.module.classification.dom.impl.classification.Classification "
+                        + "WHERE taxonomy == :taxonomy "
+                        + "&&    category.lft >= :lft "
+                        + "&&    category.rgt <= :rgt "
+                        + "ORDER BY classifiedStr")
 })
 @javax.jdo.annotations.Indices({
         @javax.jdo.annotations.Index(
@@ -222,10 +236,7 @@ public static class CategoryDomainEvent extends PropertyDomainEvent<Category> {
     private Category category;
 
     public List<Category> choicesCategory() {
-        final List<Category> categories = categoryRepository.findByTaxonomy(getTaxonomy());
-        return categories.stream()
-                .filter(x -> x.getParent() != null) // exclude top-level taxonomy
-                .collect(Collectors.toList());
+        return categoryRepository.findCategoriesOf(getTaxonomy());
     }
 
     //endregion
@@ -251,14 +262,26 @@ public Object remove() {
 
     //region > toString, compareTo
 
+    /**
+     * By {@link #getClassifiedStr() classified object}, then category (nulls first); as did
+     * <tt>ObjectContracts.compare(...)</tt>, a <tt>null</tt> classification is treated as one with neither.
+     */
+    public static final Comparator<Classification> COMPARATOR = Comparator
+            .comparing(
+                    (Classification classification) -> classification != null ? classification.getClassifiedStr() : null,
+                    Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(
+                    classification -> classification != null ? classification.getCategory() : null,
+                    Comparator.nullsFirst(Comparator.<Category>naturalOrder()));
+
     @Override
     public String toString() {
-        return ObjectContracts.toString(this, "classifiedStr", "category");
+        return getClass().getSimpleName() + "{classifiedStr=" + getClassifiedStr() + ", category=" + getCategory() + "}";
     }
 
     @Override
     public int compareTo(final Classification other) {
-        return ObjectContracts.compare(this, other, "classifiedStr", "category");
+        return COMPARATOR.compare(this, other);
     }
 
     //endregion
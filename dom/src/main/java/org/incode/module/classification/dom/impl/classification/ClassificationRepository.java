@@ -18,9 +18,25 @@
  */
 package org.incode.module.classification.dom.impl.classification;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
+import javax.jdo.JDOHelper;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 import org.apache.isis.applib.annotation.DomainService;
 import org.apache.isis.applib.annotation.NatureOfService;
@@ -32,7 +48,9 @@
 import org.apache.isis.applib.services.repository.RepositoryService;
 
 import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
 import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
 
 @DomainService(
         nature = NatureOfService.DOMAIN,
@@ -75,6 +93,62 @@ public List<Classification> findByCategory(
     }
     //endregion
 
+    //region > findFirstByCategoryOrDescendant (programmatic)
+
+    /**
+     * The first {@link Classification} (ordered by the fully qualified name of its category) of the provided
+     * category or of any of its descendants, or <tt>null</tt> if there are none.
+     *
+     * <p>
+     *     A single query, returning at most one row, over the whole subtree (as identified by the
+     *     {@link Category#getPath() path} of the category); or, for a category created before paths were introduced,
+     *     one query per category of the subtree.
+     * </p>
+     */
+    @Programmatic
+    public Classification findFirstByCategoryOrDescendant(
+            final Category category) {
+        if (category.getPath() == null) {
+            final List<Category> categories = Lists.newArrayList(category);
+            categories.addAll(categoryRepository.findByParentCascade(category));
+            return categories.stream()
+                    .flatMap(x -> findByCategory(x).stream())
+                    .min(Comparator.comparing(x -> x.getCategory().getFullyQualifiedName()))
+                    .orElse(null);
+        }
+        return repositoryService.firstMatch(
+                new QueryDefault<>(Classification.class,
+                        "findFirstByCategoryPathPrefix",
+                        "path", category.getPath()));
+    }
+    //endregion
+
+    //region > findByCategoryOrDescendant (programmatic)
+
+    /**
+     * All {@link Classification}s of the provided category or of any of its descendants ("classified under X or
+     * below").
+     *
+     * <p>
+     *     A single range query on the {@link Category#getLft() nested-set interval} of the category.
+     * </p>
+     */
+    @Programmatic
+    public List<Classification> findByCategoryOrDescendant(
+            final Category category) {
+        if (category.getLft() == null || category.getRgt() == null) {
+            throw new IllegalStateException(String.format(
+                    "Category '%s' has no interval; use rebalance(...) to derive", category.getFullyQualifiedName()));
+        }
+        return repositoryService.allMatches(
+                new QueryDefault<>(Classification.class,
+                        "findByTaxonomyAndCategoryInterval",
+                        "taxonomy", category.getTaxonomy(),
+                        "lft", category.getLft(),
+                        "rgt", category.getRgt()));
+    }
+    //endregion
+
     //region > create (programmatic)
 
     @Programmatic
@@ -102,18 +176,235 @@ public Classification create(
     private Class<? extends Classification> subtypeClassFor(
             final Object classified,
             final Taxonomy taxonomy) {
-        Class<?> domainClass = classified.getClass();
+        final Class<?> domainClass = classified.getClass();
+        final Class<? extends Classification> subtype = findSubtypeClassFor(domainClass, taxonomy);
+        if (subtype != null) {
+            return subtype;
+        }
+        throw new IllegalStateException(String.format(
+                "No subtype of Classification was found for '%s' and taxonomy '%s'; implement the ClassificationRepository.SubtypeProvider SPI",
+                domainClass.getName(), taxonomy.getName()));
+    }
+
+    private Class<? extends Classification> findSubtypeClassFor(
+            final Class<?> domainClass,
+            final Taxonomy taxonomy) {
         for (SubtypeProvider subtypeProvider : subtypeProviders) {
             Class<? extends Classification> subtype = subtypeProvider.subtypeFor(domainClass, taxonomy);
             if (subtype != null) {
                 return subtype;
             }
         }
-        throw new IllegalStateException(String.format(
-                "No subtype of Classification was found for '%s' and taxonomy '%s'; implement the ClassificationRepository.SubtypeProvider SPI",
-                domainClass.getName(), taxonomy.getName()));
+        return null;
+    }
+
+    //endregion
+
+    //region > classifyAll (programmatic)
+
+    /**
+     * The outcome of {@link #classifyAll(Category, Collection) classifying} an object.
+     */
+    public enum Outcome {
+        CLASSIFIED,
+        /**
+         * The object is already classified within the category's taxonomy (or appeared earlier in the same batch).
+         */
+        ALREADY_CLASSIFIED,
+        /**
+         * There is no subtype of {@link Classification} for the object (see {@link SubtypeProvider}), or it is not
+         * persistent.
+         */
+        NOT_CLASSIFIABLE
+    }
+
+    /**
+     * Classifies each of the objects with the category, equivalent to calling {@link #create(Category, Object)} for
+     * each object not already classified within the category's taxonomy, but intended for many thousands of objects
+     * within a single transaction.
+     *
+     * <p>
+     *     The {@link SubtypeProvider}s are consulted once per class of object, and those objects already classified
+     *     found with one query per {@link #CLASSIFIEDS_PER_QUERY} objects.  The rows of both the
+     *     <tt>Classification</tt> table and the table of the subtype are then inserted with batched statements, the
+     *     subtype's column referencing the classified object being that mapped (in the subtype's JDO metadata) for
+     *     its one member that can hold the object.  Rather than failing on the first object that cannot be
+     *     classified, the outcome of each is returned.
+     * </p>
+     *
+     * <p>
+     *     These raw INSERTs bypass the subtype's <tt>setClassified</tt>, any domain events and the JDO (L1 and L2)
+     *     caches: the new classifications are not instantiated, and are seen only by subsequent queries.  Objects are
+     *     instead classified one by one with {@link #create(Category, Object)} if they do not have datastore identity,
+     *     or if the subtype's table holds anything more than its primary key and the reference to the classified
+     *     object (or that column cannot be resolved).
+     * </p>
+     *
+     * @return the outcome for each object, in the order iterated.
+     */
+    @Programmatic
+    public List<Outcome> classifyAll(
+            final Category category,
+            final Collection<?> classifieds) {
+
+        final Taxonomy taxonomy = category.getTaxonomy();
+        final long taxonomyId = jdbcSupport.idOf(taxonomy);
+        final long categoryId = jdbcSupport.idOf(category);
+
+        // resolve the bookmark of each object, and the subtype of each class of object
+        final List<Object> objects = Lists.newArrayList(classifieds);
+        final List<String> classifiedStrs = Lists.newArrayListWithCapacity(objects.size());
+        final Map<Class<?>, Optional<Class<? extends Classification>>> subtypeByClass = Maps.newHashMap();
+        for (final Object classified : objects) {
+            final boolean classifiable = JDOHelper.isPersistent(classified)
+                    && subtypeByClass.computeIfAbsent(
+                            classified.getClass(), x -> Optional.ofNullable(findSubtypeClassFor(x, taxonomy))).isPresent();
+            classifiedStrs.add(classifiable ? bookmarkService.bookmarkFor(classified).toString() : null);
+        }
+        final Set<String> alreadyClassified = findClassifiedStrs(
+                taxonomyId, classifiedStrs.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList()));
+
+        final List<Outcome> outcomes = Lists.newArrayListWithCapacity(objects.size());
+        final ListMultimap<Class<? extends Classification>, Integer> indicesBySubtype = ArrayListMultimap.create();
+        for (int i = 0; i < objects.size(); i++) {
+            final String classifiedStr = classifiedStrs.get(i);
+            if (classifiedStr == null) {
+                outcomes.add(Outcome.NOT_CLASSIFIABLE);
+            } else if (!alreadyClassified.add(classifiedStr)) {
+                outcomes.add(Outcome.ALREADY_CLASSIFIED);
+            } else {
+                outcomes.add(Outcome.CLASSIFIED);
+                indicesBySubtype.put(subtypeByClass.get(objects.get(i).getClass()).get(), i);
+            }
+        }
+
+        for (final Class<? extends Classification> subtype : indicesBySubtype.keySet()) {
+            final ListMultimap<Class<?>, Integer> indicesByClass = ArrayListMultimap.create();
+            for (final Integer index : indicesBySubtype.get(subtype)) {
+                final Object classified = objects.get(index);
+                if (jdbcSupport.hasDatastoreIdentity(classified)) {
+                    indicesByClass.put(classified.getClass(), index);
+                } else {
+                    create(category, classified);
+                }
+            }
+            if (indicesByClass.isEmpty()) {
+                continue;
+            }
+            final JdbcSupport.Table subtypeTable = jdbcSupport.tableOf(subtype);
+            for (final Class<?> cls : indicesByClass.keySet()) {
+                final List<Integer> indices = indicesByClass.get(cls);
+                final String classifiedColumn = classifiedColumnOf(subtypeTable, subtype, cls);
+                if (classifiedColumn == null) {
+                    for (final Integer index : indices) {
+                        create(category, objects.get(index));
+                    }
+                    continue;
+                }
+                insertAll(taxonomyId, categoryId, subtypeTable, classifiedColumn, indices, objects, classifiedStrs);
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * The column of the subtype's table referencing objects of the class (as per
+     * {@link JdbcSupport#columnReferencing(Class, Class)}), provided that the table consists of just that column and a
+     * single primary key column; otherwise <tt>null</tt>.
+     */
+    private String classifiedColumnOf(
+            final JdbcSupport.Table subtypeTable,
+            final Class<? extends Classification> subtype,
+            final Class<?> classifiedClass) {
+        if (subtypeTable == null
+                || subtypeTable.getPrimaryKeyColumns().size() != 1
+                || subtypeTable.getNonKeyColumns().size() != 1) {
+            return null;
+        }
+        final String column = jdbcSupport.columnReferencing(subtype, classifiedClass);
+        final String nonKeyColumn = subtypeTable.getNonKeyColumns().get(0);
+        // matched ignoring case, as the database may have normalized the case of unquoted identifiers
+        return column != null && column.equalsIgnoreCase(nonKeyColumn) ? nonKeyColumn : null;
+    }
+
+    /**
+     * Inserts the rows of the <tt>Classification</tt> table, reads back their (generated) ids by their unique
+     * (classifiedStr, taxonomy), and then inserts the corresponding rows of the subtype's table.
+     */
+    private void insertAll(
+            final long taxonomyId,
+            final long categoryId,
+            final JdbcSupport.Table subtypeTable,
+            final String classifiedColumn,
+            final List<Integer> indices,
+            final List<Object> objects,
+            final List<String> classifiedStrs) {
+        final List<Object[]> rows = Lists.newArrayListWithCapacity(indices.size());
+        for (final Integer index : indices) {
+            rows.add(new Object[] { classifiedStrs.get(index), taxonomyId, categoryId });
+        }
+        jdbcSupport.executeBatch(
+                "INSERT INTO " + JdbcSupport.CLASSIFICATION + " "
+                        + "(\"classifiedStr\", \"taxonomyId\", \"categoryId\") VALUES (?, ?, ?)",
+                rows);
+
+        final Map<String, Long> idByClassifiedStr = Maps.newHashMap();
+        final List<String> inserted = indices.stream().map(classifiedStrs::get).collect(Collectors.toList());
+        for (final List<String> chunk : Lists.partition(inserted, CLASSIFIEDS_PER_QUERY)) {
+            jdbcSupport.executeQuery(
+                    "SELECT \"id\", \"classifiedStr\" FROM " + JdbcSupport.CLASSIFICATION + " "
+                            + "WHERE \"taxonomyId\" = ? AND \"classifiedStr\" IN (" + placeholders(chunk.size()) + ")",
+                    rs -> {
+                        final long id = rs.getLong(1);
+                        idByClassifiedStr.put(rs.getString(2), id);
+                        return id;
+                    },
+                    parameters(taxonomyId, chunk));
+        }
+
+        final List<Object[]> subtypeRows = Lists.newArrayListWithCapacity(indices.size());
+        for (final Integer index : indices) {
+            subtypeRows.add(new Object[] {
+                    idByClassifiedStr.get(classifiedStrs.get(index)), jdbcSupport.idOf(objects.get(index)) });
+        }
+        jdbcSupport.executeBatch(
+                "INSERT INTO " + subtypeTable.getQualifiedName() + " ("
+                        + JdbcSupport.quote(subtypeTable.getPrimaryKeyColumns().get(0)) + ", "
+                        + JdbcSupport.quote(classifiedColumn) + ") VALUES (?, ?)",
+                subtypeRows);
+    }
+
+    /**
+     * Those of the bookmarks that are already classified within the taxonomy.
+     */
+    private Set<String> findClassifiedStrs(final long taxonomyId, final List<String> classifiedStrs) {
+        final Set<String> found = Sets.newHashSet();
+        for (final List<String> chunk : Lists.partition(classifiedStrs, CLASSIFIEDS_PER_QUERY)) {
+            found.addAll(jdbcSupport.executeQuery(
+                    "SELECT \"classifiedStr\" FROM " + JdbcSupport.CLASSIFICATION + " "
+                            + "WHERE \"taxonomyId\" = ? AND \"classifiedStr\" IN (" + placeholders(chunk.size()) + ")",
+                    rs -> rs.getString(1),
+                    parameters(taxonomyId, chunk)));
+        }
+        return found;
+    }
+
+    private static String placeholders(final int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
     }
 
+    private static Object[] parameters(final Object first, final List<?> rest) {
+        final List<Object> parameters = Lists.newArrayListWithCapacity(rest.size() + 1);
+        parameters.add(first);
+        parameters.addAll(rest);
+        return parameters.toArray();
+    }
+
+    /**
+     * Bounds the size of the IN lists of {@link #classifyAll(Category, Collection)}.
+     */
+    static final int CLASSIFIEDS_PER_QUERY = 1000;
+
     //endregion
 
     //region > remove (programmatic)
@@ -123,6 +414,77 @@ public void remove(Classification classification) {
         repositoryService.remove(classification);
     }
 
+    /**
+     * Removes all {@link Classification}s of the category (but not of its descendants), with set-based DELETEs.
+     *
+     * @return the number of classifications removed.
+     */
+    @Programmatic
+    public int removeByCategory(final Category category) {
+        return removeWhere("\"categoryId\" = ?",
+                x -> x.getCategory() == category,
+                jdbcSupport.idOf(category));
+    }
+
+    /**
+     * Removes all {@link Classification}s within the taxonomy, with set-based DELETEs.
+     *
+     * @return the number of classifications removed.
+     */
+    @Programmatic
+    public int removeByTaxonomy(final Taxonomy taxonomy) {
+        return removeWhere("\"taxonomyId\" = ?",
+                x -> x.getTaxonomy() == taxonomy,
+                jdbcSupport.idOf(taxonomy));
+    }
+
+    /**
+     * Removes all {@link Classification}s (of any taxonomy) of the objects with the provided bookmarks, with set-based
+     * DELETEs for each {@link #CLASSIFIEDS_PER_QUERY} bookmarks; the objects themselves need not be loaded.
+     *
+     * @return the number of classifications removed.
+     */
+    @Programmatic
+    public int removeByClassified(final Collection<Bookmark> bookmarks) {
+        final List<String> classifiedStrs = bookmarks.stream().map(Bookmark::toString).distinct().collect(Collectors.toList());
+        int removed = 0;
+        for (final List<String> chunk : Lists.partition(classifiedStrs, CLASSIFIEDS_PER_QUERY)) {
+            final Set<String> chunkSet = Sets.newHashSet(chunk);
+            removed += removeWhere("\"classifiedStr\" IN (" + placeholders(chunk.size()) + ")",
+                    x -> chunkSet.contains(x.getClassifiedStr()),
+                    chunk.toArray());
+        }
+        return removed;
+    }
+
+    /**
+     * Deletes the rows of the <tt>Classification</tt> table matching the condition, along with the corresponding rows
+     * of the table of each of its (<tt>NEW_TABLE</tt>) subtypes: one DELETE per subtype table, and a final one for
+     * the <tt>Classification</tt> table itself.  Any matching instances already loaded are then evicted.
+     */
+    private int removeWhere(
+            final String condition,
+            final Predicate<Classification> cached,
+            final Object... parameters) {
+        for (final JdbcSupport.Table subtypeTable : jdbcSupport.tablesOfSubclasses(Classification.class)) {
+            if (subtypeTable.getPrimaryKeyColumns().size() != 1) {
+                throw new IllegalStateException(String.format(
+                        "Table %s (of a subtype of Classification) does not have a single primary key column",
+                        subtypeTable.getQualifiedName()));
+            }
+            jdbcSupport.executeUpdate(
+                    "DELETE FROM " + subtypeTable.getQualifiedName() + " "
+                            + "WHERE " + JdbcSupport.quote(subtypeTable.getPrimaryKeyColumns().get(0)) + " IN ("
+                            + "    SELECT \"id\" FROM " + JdbcSupport.CLASSIFICATION + " WHERE " + condition + ")",
+                    parameters);
+        }
+        final int removed = jdbcSupport.executeUpdate(
+                "DELETE FROM " + JdbcSupport.CLASSIFICATION + " WHERE " + condition,
+                parameters);
+        jdbcSupport.evictCached(Classification.class, cached);
+        return removed;
+    }
+
     //endregion
 
     //region > SubtypeProvider SPI
@@ -172,6 +534,12 @@ public Class<? extends Classification> subtypeFor(final Class<?> candidateClassi
 
     @Inject
     List<SubtypeProvider> subtypeProviders;
+
+    @Inject
+    JdbcSupport jdbcSupport;
+
+    @Inject
+    CategoryRepository categoryRepository;
     //endregion
 
 }
@@ -43,6 +43,8 @@
 import org.incode.module.classification.dom.impl.category.Category;
 import org.incode.module.classification.dom.impl.category.CategoryRepository;
 import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshot;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshotService;
 import org.incode.module.classification.dom.spi.ApplicationTenancyService;
 
 public abstract class T_classify<T> {
@@ -149,15 +151,14 @@ private void appendDirectApplicatiesFor(
     }
 
     public Category default1Classify(final Taxonomy taxonomy) {
-        Collection<Category> categories = choices1Classify(taxonomy);
-        return categories.size() > 0 ? categories.iterator().next() : null;
+        // the first category after the taxonomy itself, without loading all the others
+        final TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(taxonomy);
+        final List<TaxonomySnapshot.Node> nodes = snapshot.getNodes();
+        return nodes.size() > 1 ? taxonomySnapshotService.categoryOf(nodes.get(1)) : null;
     }
 
     public Collection<Category> choices1Classify(final Taxonomy taxonomy) {
-        final List<Category> categories = categoryRepository.findByTaxonomy(taxonomy);
-        return categories.stream()
-                .filter(x -> x.getParent() != null) // exclude top-level taxonomy
-                .collect(Collectors.toList());
+        return categoryRepository.findCategoriesOf(taxonomy);
     }
 
     //endregion
@@ -170,6 +171,8 @@ public Collection<Category> choices1Classify(final Taxonomy taxonomy) {
     @Inject
     CategoryRepository categoryRepository;
     @Inject
+    TaxonomySnapshotService taxonomySnapshotService;
+    @Inject
     ServiceRegistry serviceRegistry;
     @Inject
     List<ApplicationTenancyService> applicationTenancyRepositories;
@@ -0,0 +1,612 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.jdbc;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import javax.inject.Inject;
+import javax.jdo.JDODataStoreException;
+import javax.jdo.JDOHelper;
+import javax.jdo.ObjectState;
+import javax.jdo.annotations.PersistenceCapable;
+import javax.jdo.PersistenceManager;
+import javax.jdo.Transaction;
+import javax.jdo.datastore.JDOConnection;
+import javax.jdo.metadata.ColumnMetadata;
+import javax.jdo.metadata.MemberMetadata;
+import javax.jdo.metadata.TypeMetadata;
+import javax.transaction.Synchronization;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.datanucleus.identity.DatastoreId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.isis.applib.annotation.DomainService;
+import org.apache.isis.applib.annotation.NatureOfService;
+import org.apache.isis.applib.annotation.Programmatic;
+import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
+
+import org.incode.module.classification.dom.impl.applicability.Applicability;
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryAncestor;
+import org.incode.module.classification.dom.impl.classification.Classification;
+
+/**
+ * Executes set-based SQL statements against the JDBC connection of the current {@link PersistenceManager}, for
+ * those operations (bulk updates of derived values, subtree deletes and the like) that would otherwise require one
+ * round-trip per entity.
+ *
+ * <p>
+ *     Any pending changes are flushed before a statement is executed.  Statements bypass the JDO object cache, so
+ *     callers are responsible for {@link #refreshCached(Class, Predicate) refreshing} or
+ *     {@link #evictCached(Class, Predicate) evicting} any affected instances afterwards.
+ * </p>
+ */
+@DomainService(nature = NatureOfService.DOMAIN)
+public class JdbcSupport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcSupport.class);
+
+    /**
+     * Number of statements sent to the database at a time by {@link #executeBatch(String, Iterable)}.
+     */
+    public static final int BATCH_SIZE = 500;
+
+    /**
+     * Maps the current row of a {@link ResultSet}.
+     */
+    public interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    //region > executeUpdate (programmatic)
+
+    /**
+     * @return the number of rows affected.
+     */
+    @Programmatic
+    public int executeUpdate(final String sql, final Object... parameters) {
+        final PersistenceManager pm = flush();
+        final JDOConnection jdoConnection = pm.getDataStoreConnection();
+        try {
+            final Connection connection = (Connection) jdoConnection.getNativeConnection();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                bind(statement, parameters);
+                LOG.debug(sql);
+                return statement.executeUpdate();
+            }
+        } catch (SQLException ex) {
+            throw new JDODataStoreException("Failed to execute: " + sql, ex);
+        } finally {
+            jdoConnection.close();
+        }
+    }
+    //endregion
+
+    //region > executeBatch (programmatic)
+
+    /**
+     * Executes the statement once for each row of parameters, sending them to the database in batches of
+     * {@link #BATCH_SIZE}.
+     *
+     * @return the total number of rows affected.
+     */
+    @Programmatic
+    public int executeBatch(final String sql, final Iterable<Object[]> parameterRows) {
+        final PersistenceManager pm = flush();
+        final JDOConnection jdoConnection = pm.getDataStoreConnection();
+        try {
+            final Connection connection = (Connection) jdoConnection.getNativeConnection();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int affected = 0;
+                int batched = 0;
+                for (final Object[] parameters : parameterRows) {
+                    bind(statement, parameters);
+                    statement.addBatch();
+                    if (++batched == BATCH_SIZE) {
+                        affected += sum(executeBatch(sql, statement));
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    affected += sum(executeBatch(sql, statement));
+                }
+                return affected;
+            }
+        } catch (SQLException ex) {
+            throw new JDODataStoreException("Failed to execute: " + sql, ex);
+        } finally {
+            jdoConnection.close();
+        }
+    }
+
+    private static int[] executeBatch(final String sql, final PreparedStatement statement) throws SQLException {
+        LOG.debug(sql);
+        return statement.executeBatch();
+    }
+
+    private static int sum(final int[] counts) {
+        int sum = 0;
+        for (final int count : counts) {
+            // drivers may report SUCCESS_NO_INFO (-2) rather than the count
+            sum += Math.max(count, 0);
+        }
+        return sum;
+    }
+    //endregion
+
+    //region > executeQuery (programmatic)
+
+    @Programmatic
+    public <T> List<T> executeQuery(final String sql, final RowMapper<T> rowMapper, final Object... parameters) {
+        final PersistenceManager pm = flush();
+        final JDOConnection jdoConnection = pm.getDataStoreConnection();
+        try {
+            final Connection connection = (Connection) jdoConnection.getNativeConnection();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                bind(statement, parameters);
+                LOG.debug(sql);
+                final List<T> results = Lists.newArrayList();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        results.add(rowMapper.map(resultSet));
+                    }
+                }
+                return results;
+            }
+        } catch (SQLException ex) {
+            throw new JDODataStoreException("Failed to execute: " + sql, ex);
+        } finally {
+            jdoConnection.close();
+        }
+    }
+    //endregion
+
+    //region > tableOf, columnReferencing (programmatic)
+
+    /**
+     * The table of a persistent class (that is, the table holding the fields declared by the class itself, eg of a
+     * subclass mapped with <tt>NEW_TABLE</tt> inheritance), as described by the database's own metadata; for
+     * statements against tables whose names and columns are decided by the consuming application rather than this
+     * module.
+     *
+     * <p>
+     *     The table is looked for in the schema to which the class is mapped, or (if not mapped to any) in the
+     *     connection's current schema.
+     * </p>
+     *
+     * @return the table, or <tt>null</tt> if it cannot be found.
+     * @throws IllegalStateException if more than one table matches (eg differing only in case).
+     */
+    @Programmatic
+    public Table tableOf(final Class<?> cls) {
+        final PersistenceManager pm = flush();
+        final TypeMetadata metadata = pm.getPersistenceManagerFactory().getMetadata(cls.getName());
+        final String tableName = metadata != null && metadata.getTable() != null ? metadata.getTable() : cls.getSimpleName();
+        final JDOConnection jdoConnection = pm.getDataStoreConnection();
+        try {
+            final Connection connection = (Connection) jdoConnection.getNativeConnection();
+            final String schemaName = metadata != null && metadata.getSchema() != null
+                    ? metadata.getSchema()
+                    : connection.getSchema();
+            final DatabaseMetaData databaseMetaData = connection.getMetaData();
+            // matched ignoring case, as the database may have normalized the case of unquoted identifiers
+            final List<String[]> matches = Lists.newArrayList();
+            try (ResultSet tables = databaseMetaData.getTables(null, null, null, new String[] { "TABLE" })) {
+                while (tables.next()) {
+                    final String schema = tables.getString("TABLE_SCHEM");
+                    final String table = tables.getString("TABLE_NAME");
+                    if (table.equalsIgnoreCase(tableName)
+                            && (schemaName == null || schemaName.equalsIgnoreCase(schema))) {
+                        matches.add(new String[] { schema, table });
+                    }
+                }
+            }
+            if (matches.isEmpty()) {
+                return null;
+            }
+            if (matches.size() > 1) {
+                throw new IllegalStateException(String.format(
+                        "More than one table matches '%s' (in schema '%s') for %s",
+                        tableName, schemaName, cls.getName()));
+            }
+            final String schema = matches.get(0)[0];
+            final String table = matches.get(0)[1];
+            return new Table(
+                    schema, table,
+                    columnsOf(databaseMetaData.getColumns(null, schema, table, null), "COLUMN_NAME"),
+                    columnsOf(databaseMetaData.getPrimaryKeys(null, schema, table), "COLUMN_NAME"));
+        } catch (SQLException ex) {
+            throw new JDODataStoreException("Failed to read metadata of table for " + cls.getName(), ex);
+        } finally {
+            jdoConnection.close();
+        }
+    }
+
+    /**
+     * The name of the column of the {@link #tableOf(Class) table} of the persistent class that references instances
+     * of the other class, as declared in the JDO metadata of the one field (or property) of the class that can hold
+     * them (eg by <tt>@Column(name = ...)</tt>).
+     *
+     * @return the column name, or <tt>null</tt> if there is not exactly one such member, or it is not mapped to a
+     * single, explicitly named column.
+     */
+    @Programmatic
+    public String columnReferencing(final Class<?> cls, final Class<?> referencedClass) {
+        final TypeMetadata metadata =
+                isisJdoSupport.getJdoPersistenceManager().getPersistenceManagerFactory().getMetadata(cls.getName());
+        if (metadata == null || metadata.getMembers() == null) {
+            return null;
+        }
+        final List<MemberMetadata> referencing = Lists.newArrayList();
+        for (final MemberMetadata member : metadata.getMembers()) {
+            final Class<?> type = typeOf(cls, member.getName());
+            if (type != null && type.isAssignableFrom(referencedClass)) {
+                referencing.add(member);
+            }
+        }
+        if (referencing.size() != 1) {
+            return null;
+        }
+        final MemberMetadata member = referencing.get(0);
+        final ColumnMetadata[] columns = member.getColumns();
+        if (columns != null && columns.length > 0) {
+            return columns.length == 1 ? columns[0].getName() : null;
+        }
+        return member.getColumn();
+    }
+
+    /**
+     * The type of the field, or else of the property, declared by the class with the provided name.
+     */
+    private static Class<?> typeOf(final Class<?> cls, final String name) {
+        try {
+            return cls.getDeclaredField(name).getType();
+        } catch (NoSuchFieldException ex) {
+            try {
+                return cls.getDeclaredMethod("get" + Character.toUpperCase(name.charAt(0)) + name.substring(1))
+                        .getReturnType();
+            } catch (NoSuchMethodException ex2) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * The {@link #tableOf(Class) table}s of all persistent (strict) subclasses of the class known to the
+     * {@link javax.jdo.PersistenceManagerFactory}, eg each of those mapped with <tt>NEW_TABLE</tt> inheritance.
+     */
+    @Programmatic
+    public List<Table> tablesOfSubclasses(final Class<?> cls) {
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        final List<Table> tables = Lists.newArrayList();
+        for (final Class<?> managedClass : pm.getPersistenceManagerFactory().getManagedClasses()) {
+            if (managedClass != cls && cls.isAssignableFrom(managedClass)) {
+                final Table table = tableOf(managedClass);
+                if (table != null) {
+                    tables.add(table);
+                }
+            }
+        }
+        return tables;
+    }
+
+    private static List<String> columnsOf(final ResultSet resultSet, final String columnLabel) throws SQLException {
+        try (ResultSet rs = resultSet) {
+            final List<String> columns = Lists.newArrayList();
+            while (rs.next()) {
+                columns.add(rs.getString(columnLabel));
+            }
+            return columns;
+        }
+    }
+
+    /**
+     * A table, as returned by {@link #tableOf(Class)}.
+     */
+    public static class Table {
+        private final String schema;
+        private final String name;
+        private final List<String> columns;
+        private final List<String> primaryKeyColumns;
+
+        Table(final String schema, final String name, final List<String> columns, final List<String> primaryKeyColumns) {
+            this.schema = schema;
+            this.name = name;
+            this.columns = Collections.unmodifiableList(columns);
+            this.primaryKeyColumns = Collections.unmodifiableList(primaryKeyColumns);
+        }
+
+        /**
+         * The (quoted) schema-qualified name of the table, for use within SQL.
+         */
+        public String getQualifiedName() {
+            return (schema != null ? JdbcSupport.quote(schema) + "." : "") + JdbcSupport.quote(name);
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public List<String> getPrimaryKeyColumns() {
+            return primaryKeyColumns;
+        }
+
+        /**
+         * The columns that are not part of the primary key.
+         */
+        public List<String> getNonKeyColumns() {
+            final List<String> nonKeyColumns = Lists.newArrayList(columns);
+            nonKeyColumns.removeAll(primaryKeyColumns);
+            return nonKeyColumns;
+        }
+    }
+    //endregion
+
+    //region > tables of this module, quote, SQL functions
+
+    /*
+     * The (quoted, schema-qualified) tables of this module's own entities, as mapped by their
+     * @PersistenceCapable(schema, table); the one place statements take them from.
+     */
+    public static final String CATEGORY = qualifiedTableOf(Category.class);
+    public static final String CATEGORY_ANCESTOR = qualifiedTableOf(CategoryAncestor.class);
+    public static final String CLASSIFICATION = qualifiedTableOf(Classification.class);
+    public static final String APPLICABILITY = qualifiedTableOf(Applicability.class);
+
+    private static String qualifiedTableOf(final Class<?> cls) {
+        final PersistenceCapable persistenceCapable = cls.getAnnotation(PersistenceCapable.class);
+        final String schema = persistenceCapable.schema();
+        final String table = persistenceCapable.table();
+        return (schema.isEmpty() ? "" : quote(schema) + ".") + quote(table.isEmpty() ? cls.getSimpleName() : table);
+    }
+
+    /**
+     * Quotes a table or column name (preserving its case), for use within SQL.
+     */
+    public static String quote(final String identifier) {
+        return "\"" + identifier + "\"";
+    }
+
+    /**
+     * The concatenation of two SQL (string) expressions, as a JDBC escape (translated by the driver into the
+     * database's own syntax).
+     */
+    public static String concat(final String expression, final String otherExpression) {
+        return "{fn CONCAT(" + expression + ", " + otherExpression + ")}";
+    }
+
+    /**
+     * The <tt>length</tt> characters of a SQL (string) expression from (one-based) position <tt>start</tt>, as a JDBC
+     * escape.
+     */
+    public static String substring(final String expression, final String start, final String length) {
+        return "{fn SUBSTRING(" + expression + ", " + start + ", " + length + ")}";
+    }
+
+    /**
+     * The length of a SQL (string) expression, as a JDBC escape.
+     */
+    public static String length(final String expression) {
+        return "{fn LENGTH(" + expression + ")}";
+    }
+    //endregion
+
+    //region > idOf, findById, findCachedById (programmatic)
+
+    /**
+     * The value of the (datastore identity) primary key of the provided persistent object.
+     */
+    @Programmatic
+    public Long idOf(final Object persistent) {
+        final Object objectId = JDOHelper.getObjectId(persistent);
+        if (!(objectId instanceof DatastoreId)) {
+            throw new IllegalArgumentException(String.format(
+                    "'%s' is not a persistent object with datastore identity", persistent));
+        }
+        return ((Number) ((DatastoreId) objectId).getKeyAsObject()).longValue();
+    }
+
+    /**
+     * Whether the object is persistent and has datastore identity, that is, has an {@link #idOf(Object) id}.
+     */
+    @Programmatic
+    public boolean hasDatastoreIdentity(final Object persistent) {
+        return JDOHelper.getObjectId(persistent) instanceof DatastoreId;
+    }
+
+    /**
+     * The persistent object of the provided class with the (datastore identity) primary key, as returned by
+     * {@link #idOf(Object)}.
+     */
+    @Programmatic
+    public <T> T findById(final Class<T> cls, final long id) {
+        return isisJdoSupport.getJdoPersistenceManager().getObjectById(cls, id);
+    }
+
+    /**
+     * Those instances of the class (or its subclasses) already loaded into the {@link PersistenceManager}, keyed by
+     * {@link #idOf(Object) id} in a new map; found without hitting the datastore.  Hollow instances are excluded,
+     * since reading them would.
+     */
+    @Programmatic
+    public <T> Map<Long, T> findCachedById(final Class<T> cls) {
+        final Map<Long, T> cachedById = Maps.newHashMap();
+        for (final Object pojo : isisJdoSupport.getJdoPersistenceManager().getManagedObjects(
+                EnumSet.of(ObjectState.PERSISTENT_NEW, ObjectState.PERSISTENT_CLEAN, ObjectState.PERSISTENT_DIRTY))) {
+            if (cls.isInstance(pojo)) {
+                cachedById.put(idOf(pojo), cls.cast(pojo));
+            }
+        }
+        return cachedById;
+    }
+    //endregion
+
+    //region > refreshCached, evictCached (programmatic)
+
+    /**
+     * Reloads from the datastore those instances already loaded into the {@link PersistenceManager} that match the
+     * predicate; hollow instances are ignored because they will be loaded afresh on next access anyway.
+     */
+    @Programmatic
+    public <T> void refreshCached(final Class<T> cls, final Predicate<T> predicate) {
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        for (final T pojo : cached(pm, cls)) {
+            if (predicate.test(pojo)) {
+                pm.refresh(pojo);
+            }
+        }
+    }
+
+    /**
+     * Evicts from the {@link PersistenceManager} those instances already loaded that match the predicate.
+     */
+    @Programmatic
+    public <T> void evictCached(final Class<T> cls, final Predicate<T> predicate) {
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        for (final T pojo : cached(pm, cls)) {
+            if (predicate.test(pojo)) {
+                pm.evict(pojo);
+            }
+        }
+    }
+
+    private static <T> List<T> cached(final PersistenceManager pm, final Class<T> cls) {
+        final List<T> cached = Lists.newArrayList();
+        for (final Object pojo : pm.getManagedObjects(
+                EnumSet.of(ObjectState.PERSISTENT_CLEAN, ObjectState.PERSISTENT_DIRTY))) {
+            if (cls.isInstance(pojo)) {
+                cached.add(cls.cast(pojo));
+            }
+        }
+        return cached;
+    }
+    //endregion
+
+    //region > hasPendingChanges, afterCompletion (programmatic)
+
+    /**
+     * Whether the current transaction has created, modified or deleted any (not yet committed) instances of the class
+     * or its subclasses.
+     */
+    @Programmatic
+    public boolean hasPendingChanges(final Class<?> cls) {
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        for (final Object pojo : pm.getManagedObjects(EnumSet.of(
+                ObjectState.PERSISTENT_NEW, ObjectState.PERSISTENT_DIRTY,
+                ObjectState.PERSISTENT_DELETED, ObjectState.PERSISTENT_NEW_DELETED))) {
+            if (cls.isInstance(pojo)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the callback once the current transaction has completed, whether committed or rolled back; or immediately,
+     * if there is no current transaction.
+     */
+    @Programmatic
+    public void afterCompletion(final Runnable callback) {
+        final Transaction transaction = isisJdoSupport.getJdoPersistenceManager().currentTransaction();
+        if (!transaction.isActive()) {
+            callback.run();
+            return;
+        }
+        final Synchronization synchronization = transaction.getSynchronization();
+        final Callbacks callbacks;
+        if (synchronization instanceof Callbacks) {
+            callbacks = (Callbacks) synchronization;
+        } else {
+            // the transaction supports only a single synchronization, so any already registered is delegated to
+            callbacks = new Callbacks(synchronization);
+            transaction.setSynchronization(callbacks);
+        }
+        callbacks.add(callback);
+    }
+
+    private static class Callbacks implements Synchronization {
+        private final Synchronization delegate;
+        private final List<Runnable> callbacks = Lists.newArrayList();
+
+        Callbacks(final Synchronization delegate) {
+            this.delegate = delegate;
+        }
+
+        void add(final Runnable callback) {
+            callbacks.add(callback);
+        }
+
+        @Override
+        public void beforeCompletion() {
+            if (delegate != null) {
+                delegate.beforeCompletion();
+            }
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            if (delegate != null) {
+                delegate.afterCompletion(status);
+            }
+            for (final Runnable callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (RuntimeException ex) {
+                    // the transaction has already completed, so there is no one to report this to
+                    LOG.warn("Callback after completion of transaction failed", ex);
+                }
+            }
+        }
+    }
+    //endregion
+
+    //region > helpers
+
+    private PersistenceManager flush() {
+        final PersistenceManager pm = isisJdoSupport.getJdoPersistenceManager();
+        pm.flush();
+        return pm;
+    }
+
+    private static void bind(final PreparedStatement statement, final Object... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+    }
+    //endregion
+
+    //region > injected
+    @Inject
+    IsisJdoSupport isisJdoSupport;
+    //endregion
+
+}
@@ -0,0 +1,82 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.applicability;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.apache.isis.applib.util.ObjectContracts;
+
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link Applicability#COMPARATOR} orders every pair of applicabilities (including <tt>null</tt> and empty fields,
+ * and <tt>null</tt> applicabilities) exactly as did the reflective
+ * {@link ObjectContracts#compare(Object, Object, String...)} it replaces.
+ */
+@RunWith(Parameterized.class)
+public class Applicability_compareTo_Test {
+
+    @Parameterized.Parameters(name = "{0} vs {1}")
+    public static Collection<Object[]> pairs() {
+        final List<Applicability> applicabilities = Lists.newArrayList((Applicability) null);
+        for (final Taxonomy taxonomy : Arrays.asList(null, new Taxonomy("Sizes"))) {
+            for (final String atPath : Arrays.asList(null, "", "/ITA")) {
+                for (final String domainType : Arrays.asList(null, "", "demo.DemoObject")) {
+                    applicabilities.add(new Applicability(taxonomy, atPath, domainType));
+                }
+            }
+        }
+        final List<Object[]> pairs = Lists.newArrayList();
+        for (final Applicability applicability : applicabilities) {
+            for (final Applicability other : applicabilities) {
+                pairs.add(new Object[] { applicability, other });
+            }
+        }
+        return pairs;
+    }
+
+    @Parameterized.Parameter(0)
+    public Applicability applicability;
+    @Parameterized.Parameter(1)
+    public Applicability other;
+
+    @Test
+    public void same_as_ObjectContracts() {
+        // given
+        final int expected = Integer.signum(
+                ObjectContracts.compare(applicability, other, "taxonomy", "atPath", "domainType"));
+
+        // then
+        assertThat(Integer.signum(Applicability.COMPARATOR.compare(applicability, other))).isEqualTo(expected);
+        if (applicability != null) {
+            assertThat(Integer.signum(applicability.compareTo(other))).isEqualTo(expected);
+        }
+    }
+
+}
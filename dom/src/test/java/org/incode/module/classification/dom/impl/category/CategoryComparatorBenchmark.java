@@ -0,0 +1,117 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import org.apache.isis.applib.util.ObjectContracts;
+
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+
+/**
+ * Compares {@link Category#compareTo(Category)} with the reflective {@link ObjectContracts#compare(Object, Object, String...)}
+ * it replaces, sorting (and building a {@link TreeSet} of, as for {@link Category#getChildren()}) 100,000 categories.
+ *
+ * <p>
+ *     Not run as part of the build; run with the {@link #main(String[]) main method} (from the IDE, or with
+ *     <tt>mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=...</tt>).
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CategoryComparatorBenchmark {
+
+    private static final int CATEGORIES = 100000;
+
+    private List<Category> categories;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(1L);
+        final Taxonomy taxonomy = new Taxonomy("Brands");
+        final List<Category> parents = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            parents.add(new Category(taxonomy, "Group " + i, null, i));
+        }
+        categories = new ArrayList<>(CATEGORIES);
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories.add(new Category(parents.get(random.nextInt(parents.size())), "Brand " + i, null, i));
+        }
+        Collections.shuffle(categories, random);
+    }
+
+    @Benchmark
+    public List<Category> sortReflective() {
+        final List<Category> sorted = new ArrayList<>(categories);
+        sorted.sort((x, y) -> ObjectContracts.compare(x, y, "fullyQualifiedName"));
+        return sorted;
+    }
+
+    @Benchmark
+    public List<Category> sortHandWritten() {
+        final List<Category> sorted = new ArrayList<>(categories);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    @Benchmark
+    public TreeSet<Category> treeSetReflective() {
+        final TreeSet<Category> set = new TreeSet<>((x, y) -> ObjectContracts.compare(x, y, "fullyQualifiedName"));
+        set.addAll(categories);
+        return set;
+    }
+
+    @Benchmark
+    public TreeSet<Category> treeSetHandWritten() {
+        final TreeSet<Category> set = new TreeSet<>();
+        set.addAll(categories);
+        return set;
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CategoryComparatorBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.category;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.apache.isis.applib.util.ObjectContracts;
+
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link Category#COMPARATOR} orders every pair of categories (including <tt>null</tt> and empty names, and
+ * <tt>null</tt> categories) exactly as did the reflective {@link ObjectContracts#compare(Object, Object, String...)}
+ * it replaces.
+ */
+@RunWith(Parameterized.class)
+public class Category_compareTo_Test {
+
+    @Parameterized.Parameters(name = "{0} vs {1}")
+    public static Collection<Object[]> pairs() {
+        final List<Category> categories = Arrays.asList(
+                null,
+                named(null),
+                named(""),
+                named("Sizes"),
+                named("Sizes/Large"));
+        final List<Object[]> pairs = Lists.newArrayList();
+        for (final Category category : categories) {
+            for (final Category other : categories) {
+                pairs.add(new Object[] { category, other });
+            }
+        }
+        return pairs;
+    }
+
+    private static Category named(final String fullyQualifiedName) {
+        final Category category = new Taxonomy("Sizes");
+        category.setFullyQualifiedName(fullyQualifiedName);
+        return category;
+    }
+
+    @Parameterized.Parameter(0)
+    public Category category;
+    @Parameterized.Parameter(1)
+    public Category other;
+
+    @Test
+    public void same_as_ObjectContracts() {
+        // given
+        final int expected = Integer.signum(ObjectContracts.compare(category, other, "fullyQualifiedName"));
+
+        // then
+        assertThat(Integer.signum(Category.COMPARATOR.compare(category, other))).isEqualTo(expected);
+        if (category != null) {
+            assertThat(Integer.signum(category.compareTo(other))).isEqualTo(expected);
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ *  Copyright 2015 incode.org
+ *
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.dom.impl.classification;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import org.apache.isis.applib.util.ObjectContracts;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link Classification#COMPARATOR} orders every pair of classifications (including <tt>null</tt> and empty fields,
+ * and <tt>null</tt> classifications) exactly as did the reflective
+ * {@link ObjectContracts#compare(Object, Object, String...)} it replaces.
+ */
+@RunWith(Parameterized.class)
+public class Classification_compareTo_Test {
+
+    @Parameterized.Parameters(name = "{0} vs {1}")
+    public static Collection<Object[]> pairs() {
+        final Category unnamed = new Taxonomy("Sizes");
+        unnamed.setFullyQualifiedName(null);
+        final Category sizes = new Taxonomy("Sizes");
+        final List<Classification> classifications = Lists.newArrayList((Classification) null);
+        for (final String classifiedStr : Arrays.asList(null, "", "demo:1")) {
+            for (final Category category : Arrays.asList(null, unnamed, sizes)) {
+                classifications.add(classification(classifiedStr, category));
+            }
+        }
+        final List<Object[]> pairs = Lists.newArrayList();
+        for (final Classification classification : classifications) {
+            for (final Classification other : classifications) {
+                pairs.add(new Object[] { classification, other });
+            }
+        }
+        return pairs;
+    }
+
+    private static Classification classification(final String classifiedStr, final Category category) {
+        final Classification classification = new Classification() {
+            @Override
+            public Object getClassified() {
+                return null;
+            }
+
+            @Override
+            protected void setClassified(final Object object) {
+            }
+        };
+        classification.setClassifiedStr(classifiedStr);
+        classification.setCategory(category);
+        return classification;
+    }
+
+    @Parameterized.Parameter(0)
+    public Classification classification;
+    @Parameterized.Parameter(1)
+    public Classification other;
+
+    @Test
+    public void same_as_ObjectContracts() {
+        // given
+        final int expected = Integer.signum(ObjectContracts.compare(classification, other, "classifiedStr", "category"));
+
+        // then
+        assertThat(Integer.signum(Classification.COMPARATOR.compare(classification, other))).isEqualTo(expected);
+        if (classification != null) {
+            assertThat(Integer.signum(classification.compareTo(other))).isEqualTo(expected);
+        }
+    }
+
+}
@@ -32,6 +32,7 @@ protected void execute(final ExecutionContext executionContext) {
 
         isisJdoSupport.executeUpdate("delete from \"incodeClassification\".\"Classification\"");
         isisJdoSupport.executeUpdate("delete from \"incodeClassification\".\"Applicability\"");
+        isisJdoSupport.executeUpdate("delete from \"incodeClassification\".\"CategoryAncestor\"");
         isisJdoSupport.executeUpdate("delete from \"incodeClassification\".\"Category\"");
     }
 
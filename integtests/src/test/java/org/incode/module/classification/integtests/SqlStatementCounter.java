@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.collect.Maps;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
+
+/**
+ * Counts the SQL statements issued, both by DataNucleus itself and by {@link JdbcSupport}, by listening to the
+ * (DEBUG) log output of each.
+ */
+public class SqlStatementCounter extends AppenderSkeleton {
+
+    private static final String[] LOGGER_NAMES = {
+            "DataNucleus.Datastore.Native",
+            JdbcSupport.class.getName()
+    };
+
+    private final AtomicInteger count = new AtomicInteger();
+    private final Map<Logger, Level> previousLevels = Maps.newHashMap();
+
+    public static SqlStatementCounter start() {
+        final SqlStatementCounter counter = new SqlStatementCounter();
+        for (final String loggerName : LOGGER_NAMES) {
+            final Logger logger = Logger.getLogger(loggerName);
+            counter.previousLevels.put(logger, logger.getLevel());
+            logger.setLevel(Level.DEBUG);
+            logger.addAppender(counter);
+        }
+        return counter;
+    }
+
+    /**
+     * @return the number of statements issued since {@link #start() started}.
+     */
+    public int stop() {
+        for (final Map.Entry<Logger, Level> entry : previousLevels.entrySet()) {
+            entry.getKey().removeAppender(this);
+            entry.getKey().setLevel(entry.getValue());
+        }
+        return count.get();
+    }
+
+    @Override
+    protected void append(final LoggingEvent event) {
+        count.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return false;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import java.io.StringWriter;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import com.google.common.io.CharSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryExporter;
+import org.incode.module.classification.dom.impl.category.CategoryImporter;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryExporter_export_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryExporter categoryExporter;
+    @Inject
+    CategoryImporter categoryImporter;
+    @Inject
+    CategoryRepository categoryRepository;
+
+    Taxonomy sizes;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+    }
+
+    @Test
+    public void as_csv() {
+        // given
+        StringWriter writer = new StringWriter();
+
+        // when
+        int exported = categoryExporter.export(sizes, writer, CategoryImporter.Format.CSV);
+
+        // then
+        assertThat(exported).isEqualTo(9);
+        assertThat(writer.toString()).isEqualTo(""
+                + "path,reference,ordinal\n"
+                + "Large,LGE,1\n"
+                + "Large/Largest,XXL,1\n"
+                + "Large/Larger,XL,2\n"
+                + "Large/Large,L,3\n"
+                + "Medium,M,2\n"
+                + "Small,SML,3\n"
+                + "Small/Small,S,1\n"
+                + "Small/Smaller,XS,2\n"
+                + "Small/Smallest,XXS,3\n");
+    }
+
+    @Test
+    public void as_json_can_be_reimported() {
+        // given
+        StringWriter writer = new StringWriter();
+        categoryExporter.export(sizes, writer, CategoryImporter.Format.JSON);
+        Taxonomy copy = categoryRepository.createTaxonomy("Copy of Sizes");
+
+        // when
+        CategoryImporter.Result result = categoryImporter.importCategories(
+                copy, CharSource.wrap(writer.toString().replace("\"reference\":\"", "\"reference\":\"C-")),
+                CategoryImporter.Format.JSON);
+
+        // then
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(categoryRepository.findDescendants(copy)).extracting(Category::getFullyQualifiedName)
+                .containsExactlyElementsOf(categoryRepository.findDescendants(sizes).stream()
+                        .map(x -> "Copy of " + x.getFullyQualifiedName())
+                        .collect(Collectors.toList()));
+    }
+
+}
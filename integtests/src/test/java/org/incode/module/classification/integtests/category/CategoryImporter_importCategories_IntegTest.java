@@ -0,0 +1,202 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import com.google.common.base.Strings;
+import com.google.common.io.CharSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryImporter;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryImporter_importCategories_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryImporter categoryImporter;
+    @Inject
+    CategoryRepository categoryRepository;
+
+    Taxonomy sizes;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+    }
+
+    @Test
+    public void from_csv() {
+        // given
+        CharSource csv = CharSource.wrap(""
+                + "path,reference,ordinal\n"
+                + "Medium/Medium Tall,MT,1\n"
+                + "\"Medium/Medium Tall/Tall, very\",MTV,\n"
+                + "Extra,EXT,4\n");
+
+        // when
+        CategoryImporter.Result result = categoryImporter.importCategories(sizes, csv, CategoryImporter.Format.CSV);
+
+        // then
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getRowsImported()).isEqualTo(3);
+
+        Category medium = categoryRepository.findByReference("M");
+        Category veryTall = categoryRepository.findByReference("MTV");
+        assertThat(veryTall.getFullyQualifiedName()).isEqualTo("Sizes/Medium/Medium Tall/Tall, very");
+        assertThat(categoryRepository.isDescendantOf(veryTall, medium)).isTrue();
+        assertThat(categoryRepository.findDescendants(medium)).extracting(Category::getReference)
+                .containsExactly("MT", "MTV");
+        assertThat(categoryRepository.findByParentCascade(medium)).extracting(Category::getReference)
+                .containsExactly("MT", "MTV");
+        assertThat(categoryRepository.findByParent(sizes)).extracting(Category::getReference)
+                .containsExactly("LGE", "M", "SML", "EXT");
+    }
+
+    @Test
+    public void from_json() {
+        // given
+        CharSource json = CharSource.wrap(""
+                + "{\"path\": \"Medium/Medium Tall\", \"reference\": \"MT\", \"ordinal\": 1}\n"
+                + "{\"path\": \"Medium/Medium Short\", \"reference\": \"MS\", \"ordinal\": 2}\n");
+
+        // when
+        CategoryImporter.Result result = categoryImporter.importCategories(sizes, json, CategoryImporter.Format.JSON);
+
+        // then
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getRowsImported()).isEqualTo(2);
+        assertThat(categoryRepository.findByParent(categoryRepository.findByReference("M")))
+                .extracting(Category::getName)
+                .containsExactly("Medium Tall", "Medium Short");
+    }
+
+    @Test
+    public void nothing_written_when_invalid() {
+        // given
+        CharSource csv = CharSource.wrap(""
+                + "path,reference,ordinal\n"
+                + "Medium/Medium Tall,MT,1\n"
+                + "Medium/Medium Tall,MT2,2\n"      // duplicate name
+                + "Medium/Medium Short,MT,3\n"      // duplicate reference
+                + "Large/Largest,XXL2,1\n"          // duplicate of existing
+                + "Huge/Huger,HH,1\n");             // unknown parent
+
+        // when
+        CategoryImporter.Result result = categoryImporter.importCategories(sizes, csv, CategoryImporter.Format.CSV);
+
+        // then
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getErrors()).hasSize(4);
+        assertThat(result.getRowsImported()).isEqualTo(0);
+        assertThat(categoryRepository.findByReference("MT")).isNull();
+    }
+
+    @Test
+    public void resumes_after_row() {
+        // given
+        String header = "path,reference,ordinal\n";
+        String committed = ""
+                + "Medium/Medium Tall,MT,1\n"
+                + "Medium/Medium Tall/Very Tall,MTV,1\n";
+        String rest = ""
+                + "Medium/Medium Tall/Very Tall/Tallest,MTT,1\n"
+                + "Medium/Medium Short,MS,2\n";
+        categoryImporter.importCategories(sizes, CharSource.wrap(header + committed), CategoryImporter.Format.CSV);
+
+        // when
+        CategoryImporter.Result result = categoryImporter.importCategories(
+                sizes, CharSource.wrap(header + committed + rest), CategoryImporter.Format.CSV, 2);
+
+        // then
+        assertThat(result.getErrors()).isEmpty();
+        assertThat(result.getRowsRead()).isEqualTo(2);
+        assertThat(result.getRowsImported()).isEqualTo(2);
+        assertThat(result.getResumeAfterRow()).isNull();
+        assertThat(categoryRepository.findDescendants(categoryRepository.findByReference("M")))
+                .extracting(Category::getReference)
+                .containsExactly("MT", "MTV", "MTT", "MS");
+    }
+
+    @Test
+    public void nothing_written_when_too_long_or_too_deep() {
+        // given
+        StringBuilder buf = new StringBuilder("path,reference,ordinal\n")
+                .append(Strings.repeat("n", 101)).append(",N,1\n")                    // name too long
+                .append("Long,ABCDEFGHIJKLMNOPQRSTUVWXYZ,2\n");                         // reference too long
+        String x = Strings.repeat("x", 100);
+        buf.append(x).append(",,3\n")
+                .append(x).append('/').append(x).append(",,1\n")
+                .append(x).append('/').append(x).append('/').append(x).append(",,1\n"); // fully qualified name too long
+        String deep = "Deep";
+        buf.append(deep).append(",,4\n");
+        for (int i = 1; i < 36; i++) {
+            deep += "/Deep";
+            buf.append(deep).append(",,1\n");                                            // last too deep
+        }
+
+        // when
+        CategoryImporter.Result result =
+                categoryImporter.importCategories(sizes, CharSource.wrap(buf), CategoryImporter.Format.CSV);
+
+        // then
+        assertThat(result.isValid()).isFalse();
+        assertThat(result.getErrors()).hasSize(4);
+        assertThat(result.getErrors().get(0)).endsWith("name is longer than 100 characters");
+        assertThat(result.getErrors().get(1)).endsWith("reference is longer than 24 characters");
+        assertThat(result.getErrors().get(2)).endsWith("fully qualified name is longer than 254 characters");
+        assertThat(result.getErrors().get(3)).endsWith("cannot nest categories more than 36 levels deep");
+        assertThat(result.getRowsImported()).isEqualTo(0);
+        assertThat(categoryRepository.findByParent(sizes)).extracting(Category::getReference)
+                .containsExactly("LGE", "M", "SML");
+    }
+
+    @Test
+    public void many_rows() {
+        // given
+        StringBuilder buf = new StringBuilder("path,reference,ordinal\n");
+        for (int i = 0; i < 50; i++) {
+            buf.append("Node ").append(i).append(",N").append(i).append(',').append(i).append('\n');
+            for (int j = 0; j < 99; j++) {
+                buf.append("Node ").append(i).append("/Leaf ").append(j).append(",,").append(j).append('\n');
+            }
+        }
+
+        // when
+        CategoryImporter.Result result =
+                categoryImporter.importCategories(sizes, CharSource.wrap(buf), CategoryImporter.Format.CSV);
+
+        // then
+        assertThat(result.getRowsImported()).isEqualTo(5000);
+        assertThat(result.getRowsPerSecond()).isGreaterThan(0);
+        assertThat(categoryRepository.countDescendants(sizes)).isEqualTo(9 + 5000);
+        assertThat(categoryRepository.countDescendants(categoryRepository.findByReference("N7"))).isEqualTo(99);
+    }
+
+}
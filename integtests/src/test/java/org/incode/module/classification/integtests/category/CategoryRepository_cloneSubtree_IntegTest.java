@@ -0,0 +1,147 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import com.google.common.base.Strings;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_cloneSubtree_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    ClassificationRepository classificationRepository;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+    }
+
+    @Test
+    public void into_another_taxonomy() {
+        // given
+        Category small = categoryRepository.findByReference("SML");
+        Taxonomy regional = categoryRepository.createTaxonomy("Regional sizes");
+
+        // when
+        Category clone = categoryRepository.cloneSubtree(small, regional);
+
+        // then
+        assertThat(clone).isNotSameAs(small);
+        assertThat(clone.getTaxonomy()).isSameAs(regional);
+        assertThat(clone.getParent()).isSameAs(regional);
+        assertThat(categoryRepository.findByParentCascade(regional))
+                .extracting(Category::getFullyQualifiedName)
+                .containsExactly(
+                        "Regional sizes/Small",
+                        "Regional sizes/Small/Small",
+                        "Regional sizes/Small/Smaller",
+                        "Regional sizes/Small/Smallest");
+        assertThat(categoryRepository.findDescendants(clone)).extracting(Category::getReference)
+                .containsExactly("S", "XS", "XXS");
+        assertThat(categoryRepository.findByTaxonomyAndReference(regional, "XS").getParent()).isSameAs(clone);
+        assertThat(classificationRepository.findByCategoryOrDescendant(clone)).isEmpty();
+
+        // and the source is untouched
+        assertThat(categoryRepository.findDescendants(small)).extracting(Category::getReference)
+                .containsExactly("S", "XS", "XXS");
+    }
+
+    @Test
+    public void within_same_taxonomy() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+        Category medium = categoryRepository.findByReference("M");
+
+        // when
+        Category clone = categoryRepository.cloneSubtree(large, medium);
+
+        // then
+        assertThat(clone.getFullyQualifiedName()).isEqualTo("Sizes/Medium/Large");
+        assertThat(categoryRepository.isDescendantOf(clone, medium)).isTrue();
+        assertThat(categoryRepository.findDescendants(medium)).extracting(Category::getFullyQualifiedName)
+                .containsExactly(
+                        "Sizes/Medium/Large",
+                        "Sizes/Medium/Large/Largest",
+                        "Sizes/Medium/Large/Larger",
+                        "Sizes/Medium/Large/Large");
+        assertThat(categoryRepository.countDescendants(large)).isEqualTo(3);
+    }
+
+    @Test
+    public void reflects_changes_not_yet_committed() {
+        // given
+        Category small = categoryRepository.findByReference("SML");
+        Taxonomy regional = categoryRepository.createTaxonomy("Regional sizes");
+        categoryRepository.findByReference("XS").modifyName("Tiny");
+
+        // when
+        Category clone = categoryRepository.cloneSubtree(small, regional);
+
+        // then
+        assertThat(categoryRepository.findDescendants(clone)).extracting(Category::getFullyQualifiedName)
+                .containsExactly(
+                        "Regional sizes/Small/Small",
+                        "Regional sizes/Small/Tiny",
+                        "Regional sizes/Small/Smallest");
+    }
+
+    @Test
+    public void cannot_clone_under_itself() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+        Category largest = categoryRepository.findByReference("XXL");
+
+        // when
+        String reason = categoryRepository.validateCloneSubtree(large, largest).getPattern();
+
+        // then
+        assertThat(reason).isEqualTo("Cannot clone a category under itself or one of its descendants");
+    }
+
+    @Test
+    public void cannot_clone_if_nested_too_deeply() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+        Category target = categoryRepository.findByReference("M")
+                .addChild(Strings.repeat("a", 100), null, null)
+                .addChild(Strings.repeat("b", 100), null, null);
+        categoryRepository.findByReference("XXL").modifyName(Strings.repeat("c", 40));
+
+        // when
+        String reason = categoryRepository.validateCloneSubtree(large, target).getPattern();
+
+        // then
+        assertThat(reason).isEqualTo("The categories would be nested too deeply");
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.TaxonomyBuilder;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_createTaxonomy_fromBuilder_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+    }
+
+    @Test
+    public void same_as_created_one_by_one() {
+        // given (same structure as the fixture's "Sizes" taxonomy)
+        TaxonomyBuilder builder = new TaxonomyBuilder("Built Sizes");
+        TaxonomyBuilder.Node large = builder.addChild("Large", "B-LGE", 1);
+        large.addChild("Largest", "B-XXL", 1);
+        large.addChild("Larger", "B-XL", 2);
+        large.addChild("Large", "B-L", 3);
+        builder.addChild("Medium", "B-M", 2);
+        TaxonomyBuilder.Node small = builder.addChild("Small", "B-SML", 3);
+        small.addChild("Small", "B-S", 1);
+        small.addChild("Smaller", "B-XS", 2);
+        small.addChild("Smallest", "B-XXS", 3);
+
+        // when
+        Taxonomy builtSizes = categoryRepository.createTaxonomy(builder);
+        nextTransaction();
+
+        // then
+        Taxonomy sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+        assertThat(builtSizes.getTaxonomy()).isSameAs(builtSizes);
+        assertThat(builtSizes.getFullyQualifiedOrdinal()).isEqualTo(sizes.getFullyQualifiedOrdinal());
+
+        List<Category> expected = categoryRepository.findByParentCascade(sizes);
+        List<Category> actual = categoryRepository.findByParentCascade(builtSizes);
+        assertThat(actual).extracting(Category::getFullyQualifiedName)
+                .containsExactlyElementsOf(expected.stream()
+                        .map(x -> "Built " + x.getFullyQualifiedName())
+                        .collect(Collectors.toList()));
+        assertThat(actual).extracting(Category::getFullyQualifiedOrdinal)
+                .containsExactlyElementsOf(expected.stream()
+                        .map(Category::getFullyQualifiedOrdinal)
+                        .collect(Collectors.toList()));
+
+        for (Category category : actual) {
+            Category parent = category.getParent();
+            assertThat(category.getTaxonomy()).isSameAs(builtSizes);
+            assertThat(category.getPath()).startsWith(parent.getPath());
+            assertThat(category.getLft()).isGreaterThan(parent.getLft());
+            assertThat(category.getRgt()).isLessThan(parent.getRgt());
+        }
+        Category builtLarge = categoryRepository.findByReference("B-LGE");
+        assertThat(categoryRepository.countDescendants(builtLarge)).isEqualTo(3);
+        assertThat(categoryRepository.findDescendants(builtLarge)).extracting(Category::getReference)
+                .containsExactly("B-XXL", "B-XL", "B-L");
+    }
+
+    @Test
+    public void can_add_child_afterwards() {
+        // given
+        TaxonomyBuilder builder = new TaxonomyBuilder("Built Sizes");
+        builder.addChild("Medium", "B-M", 2);
+        categoryRepository.createTaxonomy(builder);
+        nextTransaction();
+        Category medium = categoryRepository.findByReference("B-M");
+
+        // when
+        Category mediumTall = wrap(medium).addChild("Medium Tall", "B-MT", null);
+
+        // then
+        assertThat(categoryRepository.isDescendantOf(mediumTall, medium)).isTrue();
+        assertThat(categoryRepository.findByParentCascade(medium)).containsExactly(mediumTall);
+    }
+
+    @Test
+    public void large_tree() {
+        // given
+        TaxonomyBuilder builder = new TaxonomyBuilder("Big");
+        for (int i = 0; i < 100; i++) {
+            TaxonomyBuilder.Node node = builder.addChild("Node " + i, null, i);
+            for (int j = 0; j < 99; j++) {
+                node.addChild("Leaf " + j, null, j);
+            }
+        }
+
+        // when
+        Taxonomy big = categoryRepository.createTaxonomy(builder);
+        nextTransaction();
+
+        // then
+        assertThat(categoryRepository.countDescendants(big)).isEqualTo(9999);
+        assertThat(categoryRepository.findByParentCascade(big)).hasSize(9999);
+    }
+
+    @Test
+    public void cannot_add_duplicate_name() {
+        // given
+        TaxonomyBuilder builder = new TaxonomyBuilder("Built Sizes");
+        builder.addChild("Medium", "B-M", 2);
+
+        // then
+        expectedException.expect(IllegalArgumentException.class);
+
+        // when
+        builder.addChild("Medium", "B-M2", 3);
+    }
+
+}
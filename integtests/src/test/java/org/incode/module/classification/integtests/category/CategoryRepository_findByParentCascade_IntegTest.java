@@ -96,4 +96,41 @@ public void when_grandchildren() {
                         "Sizes/Small/Smallest");
     }
 
+    @Test
+    public void when_child_added() {
+        // given
+        Category parentLarge = categoryRepository.findByReference("LGE");
+        Category largest = categoryRepository.findByReference("XXL");
+
+        // when
+        largest.addChild("Huge", "XXXL", 1);
+
+        // then
+        assertThat(categoryRepository.findByParentCascade(parentLarge)).extracting(Category::getFullyQualifiedName)
+                .containsOnly(
+                        "Sizes/Large/Large",
+                        "Sizes/Large/Larger",
+                        "Sizes/Large/Largest",
+                        "Sizes/Large/Largest/Huge");
+    }
+
+    @Test
+    public void when_child_removed() {
+        // given
+        Taxonomy parentSizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+        Category large = categoryRepository.findByReference("LGE");
+
+        // when
+        categoryRepository.removeCascade(large);
+
+        // then
+        assertThat(categoryRepository.findByParentCascade(parentSizes)).extracting(Category::getFullyQualifiedName)
+                .containsOnly(
+                        "Sizes/Medium",
+                        "Sizes/Small",
+                        "Sizes/Small/Small",
+                        "Sizes/Small/Smaller",
+                        "Sizes/Small/Smallest");
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_findByTaxonomyAndPath_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    TransactionService transactionService;
+
+    Taxonomy sizes;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+    }
+
+    @Test
+    public void happy_case() {
+        // when
+        Category larger = categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Large/Larger");
+
+        // then
+        assertThat(larger.getReference()).isEqualTo("XL");
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes")).isSameAs(sizes);
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Large/Huge")).isNull();
+    }
+
+    @Test
+    public void batch_in_one_query() {
+        // given
+        SqlStatementCounter counter = SqlStatementCounter.start();
+
+        // when
+        Map<String, Category> categoryByPath = categoryRepository.findByTaxonomyAndPaths(sizes,
+                Arrays.asList("Sizes/Large/Larger", "Sizes/Small/Smallest", "Sizes/Medium", "Sizes/Huge", "Sizes/Medium"));
+
+        // then
+        assertThat(counter.stop()).isEqualTo(1);
+        assertThat(categoryByPath).hasSize(3);
+        assertThat(categoryByPath.get("Sizes/Large/Larger").getReference()).isEqualTo("XL");
+        assertThat(categoryByPath.get("Sizes/Small/Smallest").getReference()).isEqualTo("XXS");
+        assertThat(categoryByPath.get("Sizes/Medium").getReference()).isEqualTo("M");
+        assertThat(categoryByPath).doesNotContainKey("Sizes/Huge");
+    }
+
+    @Test
+    public void same_name_at_different_levels() {
+        // when
+        Map<String, Category> categoryByPath = categoryRepository.findByTaxonomyAndPaths(sizes,
+                Arrays.asList("Sizes/Small", "Sizes/Small/Small", "Sizes/Large/Small"));
+
+        // then
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Small").getReference()).isEqualTo("SML");
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Small/Small").getReference()).isEqualTo("S");
+        assertThat(categoryByPath).hasSize(2);
+        assertThat(categoryByPath.get("Sizes/Small").getReference()).isEqualTo("SML");
+        assertThat(categoryByPath.get("Sizes/Small/Small").getReference()).isEqualTo("S");
+    }
+
+    @Test
+    public void when_ancestor_renamed() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+
+        // when
+        large.modifyName("Big");
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Large/Larger")).isNull();
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Big/Larger").getReference()).isEqualTo("XL");
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Big")).isSameAs(large);
+    }
+
+    @Test
+    public void when_moved() {
+        // given
+        Category small = categoryRepository.findByReference("SML");
+        Category large = categoryRepository.findByReference("LGE");
+
+        // when
+        categoryRepository.moveSubtree(small, large);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Small/Smaller")).isNull();
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Large/Small")).isSameAs(small);
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Large/Small/Smaller").getReference())
+                .isEqualTo("XS");
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_findByTaxonomyAndReferences_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    Taxonomy sizes;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+    }
+
+    @Test
+    public void happy_case() {
+        // when
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        Map<String, Category> categoryByReference =
+                categoryRepository.findByTaxonomyAndReferences(sizes, Arrays.asList("XXL", "M", "XS", "M"));
+        int statements = counter.stop();
+
+        // then
+        assertThat(categoryByReference).containsOnlyKeys("XXL", "M", "XS");
+        assertThat(categoryByReference.get("XS").getName()).isEqualTo("Smaller");
+        assertThat(statements).isEqualTo(1);
+    }
+
+    @Test
+    public void when_some_not_in_taxonomy() {
+        // when
+        Map<String, Category> categoryByReference =
+                categoryRepository.findByTaxonomyAndReferences(sizes, Arrays.asList("L", "FRRED", "XXXXL"));
+
+        // then
+        assertThat(categoryByReference).containsOnlyKeys("L");
+    }
+
+    @Test
+    public void when_none() {
+        // when
+        Map<String, Category> categoryByReference =
+                categoryRepository.findByTaxonomyAndReferences(sizes, Collections.emptyList());
+
+        // then
+        assertThat(categoryByReference).isEmpty();
+    }
+
+}
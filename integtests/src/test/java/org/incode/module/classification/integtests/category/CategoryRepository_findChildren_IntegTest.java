@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.TaxonomyBuilder;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_findChildren_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    Taxonomy brands;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+
+        // 250 children, the odd ones in ordinal order and the even ones (all with the same ordinal) in name order
+        TaxonomyBuilder builder = new TaxonomyBuilder("Brands");
+        for (int i = 0; i < 250; i++) {
+            builder.addChild(String.format("Brand %03d", i), null, i % 2 == 1 ? i : 1000);
+        }
+        brands = categoryRepository.createTaxonomy(builder);
+    }
+
+    @Test
+    public void pages_by_offset() {
+        // when
+        List<Category> firstPage = categoryRepository.findChildren(brands, 0, 100);
+        List<Category> lastPage = categoryRepository.findChildren(brands, 200, 100);
+
+        // then
+        assertThat(firstPage).hasSize(100);
+        assertThat(firstPage.get(0).getName()).isEqualTo("Brand 001");
+        assertThat(lastPage).hasSize(50);
+        assertThat(lastPage.get(49).getName()).isEqualTo("Brand 248");
+    }
+
+    @Test
+    public void pages_by_keyset() {
+        // given
+        List<Category> all = categoryRepository.findByParent(brands);
+
+        // when
+        List<Category> paged = Lists.newArrayList();
+        List<Category> page = categoryRepository.findChildrenAfter(brands, null, 100);
+        while (!page.isEmpty()) {
+            paged.addAll(page);
+            page = categoryRepository.findChildrenAfter(brands, page.get(page.size() - 1), 100);
+        }
+
+        // then
+        assertThat(paged).hasSize(250);
+        assertThat(paged).doesNotHaveDuplicates();
+        assertThat(paged).containsExactlyElementsOf(categoryRepository.findChildren(brands, 0, 250));
+        assertThat(paged).containsOnlyElementsOf(all);
+    }
+
+    @Test
+    public void counts_and_first_page() {
+        // when
+        int count = categoryRepository.countChildren(brands);
+
+        // then
+        assertThat(count).isEqualTo(250);
+        assertThat(brands.getChildCount()).isEqualTo(250);
+        assertThat(brands.getFirstChildren()).hasSize(Category.CHILDREN_PAGE_SIZE);
+        assertThat(categoryRepository.countChildren(brands.getFirstChildren().get(0))).isEqualTo(0);
+    }
+
+    @Test
+    public void children_beyond_first_page_found_and_paged_from() {
+        // given
+        assertThat(brands.getFirstChildren()).extracting(Category::getName).doesNotContain("Brand 200", "Brand 248");
+
+        // when
+        List<Category> found = brands.autoComplete0ChildrenFrom("Brand 20");
+        List<Category> page = brands.childrenFrom(categoryRepository.findByParentAndName(brands, "Brand 200"));
+
+        // then
+        assertThat(found).extracting(Category::getName)
+                .containsExactly("Brand 201", "Brand 203", "Brand 205", "Brand 207", "Brand 209",
+                        "Brand 200", "Brand 202", "Brand 204", "Brand 206", "Brand 208");
+        assertThat(page).hasSize(25);
+        assertThat(page.get(0).getName()).isEqualTo("Brand 200");
+        assertThat(page.get(24).getName()).isEqualTo("Brand 248");
+        assertThat(brands.autoComplete0RemoveChild("Brand 248")).extracting(Category::getName)
+                .containsExactly("Brand 248");
+    }
+
+}
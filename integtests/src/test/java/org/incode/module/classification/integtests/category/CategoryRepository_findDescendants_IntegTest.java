@@ -0,0 +1,108 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_findDescendants_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+    }
+
+    @Test
+    public void path_derived_from_parent() {
+        // given
+        Category sizes = categoryRepository.findByReference("SIZES");
+        Category large = categoryRepository.findByReference("LGE");
+        Category largest = categoryRepository.findByReference("XXL");
+
+        // then
+        assertThat(sizes.getPath()).matches("/\\d+/");
+        assertThat(large.getPath()).startsWith(sizes.getPath()).matches("(/\\d+){2}/");
+        assertThat(largest.getPath()).startsWith(large.getPath()).matches("(/\\d+){3}/");
+    }
+
+    @Test
+    public void when_grandchildren() {
+        // given
+        Category sizes = categoryRepository.findByReference("SIZES");
+
+        // when
+        List<Category> descendants = categoryRepository.findDescendants(sizes);
+
+        // then
+        assertThat(descendants).extracting(Category::getFullyQualifiedName)
+                .containsExactly(
+                        "Sizes/Large",
+                        "Sizes/Large/Largest",
+                        "Sizes/Large/Larger",
+                        "Sizes/Large/Large",
+                        "Sizes/Medium",
+                        "Sizes/Small",
+                        "Sizes/Small/Small",
+                        "Sizes/Small/Smaller",
+                        "Sizes/Small/Smallest");
+    }
+
+    @Test
+    public void when_no_descendants() {
+        // given
+        Category medium = categoryRepository.findByReference("M");
+
+        // when
+        List<Category> descendants = categoryRepository.findDescendants(medium);
+
+        // then
+        assertThat(descendants).isEmpty();
+    }
+
+    @Test
+    public void is_descendant_of() {
+        // given
+        Category sizes = categoryRepository.findByReference("SIZES");
+        Category large = categoryRepository.findByReference("LGE");
+        Category largest = categoryRepository.findByReference("XXL");
+        Category small = categoryRepository.findByReference("SML");
+
+        // then
+        assertThat(categoryRepository.isDescendantOf(largest, large)).isTrue();
+        assertThat(categoryRepository.isDescendantOf(largest, sizes)).isTrue();
+        assertThat(categoryRepository.isDescendantOf(largest, small)).isFalse();
+        assertThat(categoryRepository.isDescendantOf(large, largest)).isFalse();
+        assertThat(categoryRepository.isDescendantOf(large, large)).isFalse();
+    }
+
+}
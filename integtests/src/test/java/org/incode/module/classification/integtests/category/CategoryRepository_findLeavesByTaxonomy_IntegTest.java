@@ -0,0 +1,142 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_findLeavesByTaxonomy_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    TransactionService transactionService;
+
+    Taxonomy sizes;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+    }
+
+    @Test
+    public void leaves_and_depths() {
+        // then
+        assertThat(categoryRepository.findLeavesByTaxonomy(sizes)).extracting(Category::getReference)
+                .containsExactly("XXL", "XL", "L", "M", "S", "XS", "XXS");
+        assertThat(categoryRepository.findByTaxonomyAndDepth(sizes, 1)).extracting(Category::getReference)
+                .containsExactly("LGE", "M", "SML");
+        assertThat(categoryRepository.findByTaxonomyAndDepth(sizes, 2)).hasSize(6);
+        assertThat(sizes.getDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void when_child_created() {
+        // given
+        Category medium = categoryRepository.findByReference("M");
+
+        // when
+        categoryRepository.createChild(medium, "Medium Large", "ML", 1);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(categoryRepository.findLeavesByTaxonomy(sizes)).extracting(Category::getReference)
+                .containsExactly("XXL", "XL", "L", "ML", "S", "XS", "XXS");
+        assertThat(categoryRepository.findByTaxonomyAndDepth(sizes, 2)).extracting(Category::getReference)
+                .contains("ML");
+    }
+
+    @Test
+    public void when_children_removed() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+
+        // when
+        categoryRepository.removeCascade(categoryRepository.findByReference("XXL"));
+        categoryRepository.removeCascade(categoryRepository.findByReference("XL"));
+        transactionService.nextTransaction();
+
+        // then still has a child
+        assertThat(large.getLeaf()).isFalse();
+
+        // and when
+        categoryRepository.removeCascade(categoryRepository.findByReference("L"));
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(large.getLeaf()).isTrue();
+        assertThat(categoryRepository.findLeavesByTaxonomy(sizes)).extracting(Category::getReference)
+                .containsExactly("LGE", "M", "S", "XS", "XXS");
+    }
+
+    @Test
+    public void when_moved() {
+        // given
+        Category medium = categoryRepository.findByReference("M");
+        Category large = categoryRepository.findByReference("LGE");
+
+        // when
+        categoryRepository.moveSubtree(large, medium);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(medium.getLeaf()).isFalse();
+        assertThat(large.getDepth()).isEqualTo(2);
+        assertThat(categoryRepository.findByTaxonomyAndDepth(sizes, 3)).extracting(Category::getReference)
+                .containsExactly("XXL", "XL", "L");
+        assertThat(categoryRepository.findLeavesByTaxonomy(sizes)).extracting(Category::getReference)
+                .containsExactly("XXL", "XL", "L", "S", "XS", "XXS");
+    }
+
+    @Test
+    public void when_hierarchy_rebuilt() {
+        // given, as if created before depths and leaf flags were introduced
+        for (Category category : categoryRepository.findByTaxonomy(sizes)) {
+            category.setDepth(null);
+            category.setLeaf(null);
+        }
+        transactionService.nextTransaction();
+        assertThat(categoryRepository.findLeavesByTaxonomy(sizes)).isEmpty();
+
+        // when
+        categoryRepository.rebuildHierarchy(sizes);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(categoryRepository.findLeavesByTaxonomy(sizes)).extracting(Category::getReference)
+                .containsExactly("XXL", "XL", "L", "M", "S", "XS", "XXS");
+        assertThat(categoryRepository.findByTaxonomyAndDepth(sizes, 1)).extracting(Category::getReference)
+                .containsExactly("LGE", "M", "SML");
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.FractionalKey;
+import org.incode.module.classification.dom.impl.category.OrdinalKey;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_placeAfter_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+
+    Taxonomy sizes;
+    Category large;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+        large = categoryRepository.findByReference("LGE");
+    }
+
+    @Test
+    public void only_the_placed_category_is_updated() {
+        // given
+        Category largest = categoryRepository.findByReference("XXL");
+        Category larger = categoryRepository.findByReference("XL");
+        String largestFullyQualifiedOrdinal = largest.getFullyQualifiedOrdinal();
+        categoryRepository.findByParent(large);
+
+        // when
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        categoryRepository.placeAfter(largest, larger);
+        categoryRepository.findByParent(large);
+        int statements = counter.stop();
+
+        // then: the query for the following sibling, the update of XXL, and the final query
+        assertThat(statements).isLessThanOrEqualTo(3);
+        assertThat(categoryRepository.findByParent(large)).extracting(Category::getReference)
+                .containsExactly("XL", "XXL", "L");
+        assertThat(largest.getFullyQualifiedOrdinal()).isEqualTo(largestFullyQualifiedOrdinal);
+    }
+
+    @Test
+    public void can_place_first_and_repeatedly() {
+        // given
+        Category l = categoryRepository.findByReference("L");
+        Category larger = categoryRepository.findByReference("XL");
+        Category largest = categoryRepository.findByReference("XXL");
+
+        // when: shuffle back and forth many times
+        for (int i = 0; i < 100; i++) {
+            categoryRepository.placeAfter(l, null);
+            categoryRepository.placeAfter(largest, l);
+            categoryRepository.placeAfter(larger, largest);
+            categoryRepository.placeAfter(largest, null);
+        }
+
+        // then
+        assertThat(categoryRepository.findByParent(large)).extracting(Category::getReference)
+                .containsExactly("XXL", "L", "XL");
+    }
+
+    @Test
+    public void compaction_shortens_ranks_of_reordered_siblings_only() {
+        // given
+        Category l = categoryRepository.findByReference("L");
+        categoryRepository.placeAfter(l, null);
+        assertThat(l.getRank().length()).isGreaterThan(OrdinalKey.WIDTH);
+
+        // when
+        int updated = categoryRepository.compactRanks(sizes);
+
+        // then
+        assertThat(updated).isEqualTo(3);
+        assertThat(categoryRepository.findByParent(large)).extracting(Category::getReference)
+                .containsExactly("L", "XXL", "XL");
+        assertThat(l.getRank()).isEqualTo(FractionalKey.of(1));
+
+        // and ordinals left as entered
+        assertThat(l.getOrdinal()).isEqualTo(3);
+        assertThat(l.getFullyQualifiedOrdinal()).isEqualTo(OrdinalKey.of(1, 1, 3));
+        assertThat(categoryRepository.findByReference("XXL").getOrdinal()).isEqualTo(1);
+
+        // and compacting again changes nothing
+        assertThat(categoryRepository.compactRanks(sizes)).isEqualTo(0);
+    }
+
+    @Test
+    public void only_siblings_renumbered_when_no_room() {
+        // given siblings with the same ordinal, so the same rank
+        Category medium = categoryRepository.findByReference("M");
+        Category a = medium.addChild("A", "MA", 1);
+        Category b = medium.addChild("B", "MB", 1);
+        Category c = medium.addChild("C", "MC", 1);
+        Category smallest = categoryRepository.findByReference("XXS");
+        String smallestRank = smallest.getRank();
+
+        // when
+        categoryRepository.placeAfter(c, a);
+
+        // then
+        assertThat(categoryRepository.findByParent(medium)).extracting(Category::getReference)
+                .containsExactly("MA", "MC", "MB");
+        assertThat(a.getRank()).isEqualTo(FractionalKey.of(1));
+        assertThat(b.getRank()).isEqualTo(FractionalKey.of(2));
+        assertThat(c.getOrdinal()).isEqualTo(1);
+        assertThat(smallest.getRank()).isEqualTo(smallestRank);
+    }
+
+    @Test
+    public void new_ordinal_keeps_other_siblings_in_place() {
+        // given
+        Category largest = categoryRepository.findByReference("XXL");
+        Category larger = categoryRepository.findByReference("XL");
+        Category l = categoryRepository.findByReference("L");
+        categoryRepository.placeAfter(largest, larger);
+        String largestRank = largest.getRank();
+
+        // when
+        l.modifyOrdinal(0);
+
+        // then
+        assertThat(categoryRepository.findByParent(large)).extracting(Category::getReference)
+                .containsExactly("L", "XL", "XXL");
+        assertThat(largest.getRank()).isEqualTo(largestRank);
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_rebalance_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    JdbcSupport jdbcSupport;
+
+    Taxonomy sizes;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+    }
+
+    @Test
+    public void intervals_nested_within_parent() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+        Category largest = categoryRepository.findByReference("XXL");
+        Category small = categoryRepository.findByReference("SML");
+
+        // then
+        assertNestedWithin(large, sizes);
+        assertNestedWithin(largest, large);
+        assertThat(large.getRgt()).isLessThan(small.getLft());
+
+        assertThat(categoryRepository.isDescendantOf(largest, sizes)).isTrue();
+        assertThat(categoryRepository.isDescendantOf(largest, small)).isFalse();
+        assertThat(categoryRepository.countDescendants(sizes)).isEqualTo(9);
+        assertThat(categoryRepository.countDescendants(large)).isEqualTo(3);
+    }
+
+    @Test
+    public void rebalance_preserves_nesting() {
+        // when
+        int renumbered = categoryRepository.rebalance(sizes);
+
+        // then
+        assertThat(renumbered).isEqualTo(10);
+        Category large = categoryRepository.findByReference("LGE");
+        Category largest = categoryRepository.findByReference("XXL");
+        assertNestedWithin(large, sizes);
+        assertNestedWithin(largest, large);
+        assertThat(categoryRepository.findDescendants(large)).extracting(Category::getReference)
+                .containsExactly("XXL", "XL", "L");
+    }
+
+    @Test
+    public void rebalanced_when_no_space_left() {
+        // given
+        Category medium = categoryRepository.findByReference("M");
+        jdbcSupport.executeUpdate(
+                "UPDATE \"incodeClassification\".\"Category\" SET \"rgt\" = \"lft\" + 3 WHERE \"reference\" = 'M'");
+        jdbcSupport.refreshCached(Category.class, x -> x == medium);
+        Category mediumTall = wrap(medium).addChild("Medium Tall", "MT", null);
+        assertNestedWithin(mediumTall, medium);
+
+        // when
+        Category mediumShort = wrap(medium).addChild("Medium Short", "MS", null);
+
+        // then
+        assertThat(medium.getRgt() - medium.getLft()).isGreaterThan(3);
+        assertNestedWithin(mediumTall, medium);
+        assertNestedWithin(mediumShort, medium);
+        assertThat(mediumShort.getLft()).isGreaterThan(mediumTall.getRgt());
+    }
+
+    @Test
+    public void only_subtree_renumbered_when_no_space_left() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+        Category larger = categoryRepository.findByReference("XL");
+        Category medium = categoryRepository.findByReference("M");
+        final long mediumLft = medium.getLft();
+        final long mediumRgt = medium.getRgt();
+        jdbcSupport.executeUpdate(
+                "UPDATE \"incodeClassification\".\"Category\" SET \"rgt\" = \"lft\" + 3 WHERE \"reference\" = 'XL'");
+        jdbcSupport.refreshCached(Category.class, x -> x == larger);
+        Category largerTall = wrap(larger).addChild("Larger Tall", "XLT", null);
+
+        // when
+        Category largerShort = wrap(larger).addChild("Larger Short", "XLS", null);
+
+        // then
+        assertThat(larger.getRgt() - larger.getLft()).isGreaterThan(3);
+        assertNestedWithin(larger, large);
+        assertNestedWithin(largerTall, larger);
+        assertNestedWithin(largerShort, larger);
+        assertThat(largerShort.getLft()).isGreaterThan(largerTall.getRgt());
+        assertThat(categoryRepository.findDescendants(large)).extracting(Category::getReference)
+                .containsOnly("XXL", "XL", "XLT", "XLS", "L");
+
+        // and outside of the subtree, nothing was renumbered
+        assertThat(medium.getLft()).isEqualTo(mediumLft);
+        assertThat(medium.getRgt()).isEqualTo(mediumRgt);
+    }
+
+    @Test
+    public void many_children_appended_without_renumbering() {
+        // given
+        Category medium = categoryRepository.findByReference("M");
+        Category small = categoryRepository.findByReference("SML");
+        final long smallLft = small.getLft();
+
+        // when
+        Category previous = null;
+        for (int i = 0; i < 500; i++) {
+            final Category child = medium.addChild("Medium " + i, "M" + i, null);
+
+            // then
+            assertNestedWithin(child, medium);
+            if (previous != null) {
+                assertThat(child.getLft()).isGreaterThan(previous.getRgt());
+            }
+            previous = child;
+        }
+        assertThat(small.getLft()).isEqualTo(smallLft);
+    }
+
+    private static void assertNestedWithin(final Category category, final Category parent) {
+        assertThat(category.getLft()).isGreaterThan(parent.getLft());
+        assertThat(category.getRgt()).isLessThan(parent.getRgt());
+        assertThat(category.getLft()).isLessThan(category.getRgt());
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.wrapper.InvalidException;
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.FractionalKey;
+import org.incode.module.classification.dom.impl.category.OrdinalKey;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CategoryRepository_rebuildHierarchy_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    JdbcSupport jdbcSupport;
+    @Inject
+    TransactionService transactionService;
+
+    Taxonomy sizes;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+
+        // as if created before the derived values were introduced
+        final long sizesId = jdbcSupport.idOf(sizes);
+        jdbcSupport.executeUpdate(
+                "DELETE FROM \"incodeClassification\".\"CategoryAncestor\" WHERE \"descendantId\" IN ("
+                        + "    SELECT \"id\" FROM \"incodeClassification\".\"Category\" WHERE \"taxonomyId\" = ?)",
+                sizesId);
+        jdbcSupport.executeUpdate(
+                "UPDATE \"incodeClassification\".\"Category\" "
+                        + "SET \"path\" = NULL, \"lft\" = NULL, \"rgt\" = NULL, \"depth\" = NULL, \"leaf\" = NULL, "
+                        + "    \"fullyQualifiedNameHash\" = NULL, \"fullyQualifiedOrdinal\" = 'legacy.1', \"rank\" = NULL "
+                        + "WHERE \"taxonomyId\" = ?",
+                sizesId);
+        transactionService.nextTransaction();
+    }
+
+    @Test
+    public void descendants_found_before_rebuilt() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+        assertThat(large.getPath()).isNull();
+
+        // then
+        assertThat(categoryRepository.findByParentCascade(large)).extracting(Category::getReference)
+                .containsOnly("XXL", "XL", "L");
+        assertThat(categoryRepository.findDescendants(large)).hasSize(3);
+    }
+
+    @Test
+    public void cannot_rename_until_rebuilt() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+
+        // then
+        expectedException.expect(InvalidException.class);
+        expectedException.expectMessage("Category 'Sizes/Large' has no path; rebuild the hierarchy of its taxonomy first");
+
+        // when
+        wrap(large).setName("Big");
+    }
+
+    @Test
+    public void cannot_remove_until_rebuilt() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+
+        // then
+        expectedException.expect(InvalidException.class);
+        expectedException.expectMessage("Category 'Sizes/Large' has no path; rebuild the hierarchy of its taxonomy first");
+
+        // when
+        wrap(sizes).removeChild(large);
+    }
+
+    @Test
+    public void not_rebuilt_implicitly() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+
+        // when
+        IllegalStateException thrown = null;
+        try {
+            categoryRepository.createChild(large, "Huge", "HUGE", 4);
+        } catch (IllegalStateException ex) {
+            thrown = ex;
+        }
+
+        // then
+        assertThat(thrown).isNotNull();
+        assertThat(large.getPath()).isNull();
+        assertThat(categoryRepository.findByReference("HUGE")).isNull();
+    }
+
+    @Test
+    public void renamed_and_removed_once_rebuilt() {
+        // given
+        wrap(sizes).rebuildHierarchy();
+        transactionService.nextTransaction();
+        Category large = categoryRepository.findByReference("LGE");
+
+        // when
+        wrap(large).setName("Big");
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(categoryRepository.findByReference("XL").getFullyQualifiedName()).isEqualTo("Sizes/Big/Larger");
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Big/Larger").getReference()).isEqualTo("XL");
+
+        // and when
+        wrap(sizes).removeChild(large);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(categoryRepository.findByReference("LGE")).isNull();
+        assertThat(categoryRepository.findByReference("XL")).isNull();
+        assertThat(categoryRepository.findByParentCascade(sizes)).extracting(Category::getReference)
+                .containsOnly("M", "SML", "S", "XS", "XXS");
+    }
+
+    @Test
+    public void rebuilt_by_action() {
+        // when
+        wrap(sizes).rebuildHierarchy();
+        transactionService.nextTransaction();
+
+        // then
+        Category larger = categoryRepository.findByReference("XL");
+        assertThat(larger.getPath()).isNotNull();
+        assertThat(larger.getDepth()).isEqualTo(2);
+        assertThat(larger.getLft()).isNotNull();
+        assertThat(OrdinalKey.isEncoded(larger.getFullyQualifiedOrdinal())).isTrue();
+        assertThat(larger.getRank()).isEqualTo(FractionalKey.of(2));
+        assertThat(categoryRepository.isDescendantOf(larger, sizes)).isTrue();
+        assertThat(categoryRepository.findLeavesByTaxonomy(sizes)).hasSize(7);
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.wrapper.InvalidException;
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.classification.Classification;
+import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Category_mergeInto_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    ClassificationRepository classificationRepository;
+    @Inject
+    TransactionService transactionService;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+    }
+
+    @Test
+    public void children_are_reparented() {
+        // given
+        Taxonomy sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+        Category large = categoryRepository.findByReference("LGE");
+        Category small = categoryRepository.findByReference("SML");
+        Category smaller = categoryRepository.findByReference("XS");
+
+        // when
+        wrap(small).mergeInto(large);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(categoryRepository.findByReference("SML")).isNull();
+        assertThat(smaller.getParent()).isSameAs(large);
+        assertThat(smaller.getFullyQualifiedName()).isEqualTo("Sizes/Large/Smaller");
+        assertThat(smaller.getPath()).startsWith(large.getPath());
+        assertThat(smaller.getDepth()).isEqualTo(2);
+        assertThat(categoryRepository.isDescendantOf(smaller, large)).isTrue();
+        assertThat(categoryRepository.findByParent(sizes)).extracting(Category::getReference)
+                .containsExactly("LGE", "M");
+        assertThat(categoryRepository.findDescendants(large)).extracting(Category::getReference)
+                .containsOnly("XXL", "XL", "L", "S", "XS", "XXS");
+        assertThat(categoryRepository.findByTaxonomyAndPath(sizes, "Sizes/Large/Smallest").getReference())
+                .isEqualTo("XXS");
+        assertThat(classificationRepository.findByCategory(smaller)).hasSize(1);
+    }
+
+    @Test
+    public void classifications_are_repointed() {
+        // given
+        Category medium = categoryRepository.findByReference("M");
+        Category small = categoryRepository.findByReference("SML");
+        assertThat(classificationRepository.findByCategory(medium)).hasSize(1);
+
+        // when
+        wrap(medium).mergeInto(small);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(categoryRepository.findByReference("M")).isNull();
+        assertThat(classificationRepository.findByCategory(small)).hasSize(1);
+        assertThat(classificationRepository.findByCategoryOrDescendant(small)).extracting(Classification::getCategory)
+                .extracting(Category::getReference)
+                .containsOnly("SML", "XS");
+    }
+
+    @Test
+    public void cannot_merge_if_children_names_collide() {
+        // given "Large/Large" and "Small/Small"
+        Category large = categoryRepository.findByReference("LGE");
+        Category small = categoryRepository.findByReference("SML");
+        categoryRepository.findByReference("S").modifyName("Large");
+
+        // then
+        expectedException.expect(InvalidException.class);
+        expectedException.expectMessage("Both categories have children named 'Large'");
+
+        // when
+        wrap(small).mergeInto(large);
+    }
+
+    @Test
+    public void cannot_merge_into_own_subtree() {
+        // given
+        Category small = categoryRepository.findByReference("SML");
+        Category smaller = categoryRepository.findByReference("XS");
+
+        // then
+        expectedException.expect(InvalidException.class);
+        expectedException.expectMessage("Cannot merge a category into itself or one of its descendants");
+
+        // when
+        wrap(small).mergeInto(smaller);
+    }
+
+    @Test
+    public void cannot_merge_until_hierarchy_rebuilt() {
+        // given, as if created before paths were introduced
+        Category large = categoryRepository.findByReference("LGE");
+        Category small = categoryRepository.findByReference("SML");
+        large.setPath(null);
+
+        // then
+        expectedException.expect(InvalidException.class);
+        expectedException.expectMessage("Category 'Sizes/Large' has no path; rebuild the hierarchy of its taxonomy first");
+
+        // when
+        wrap(small).mergeInto(large);
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.wrapper.InvalidException;
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Category_moveTo_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    ClassificationRepository classificationRepository;
+    @Inject
+    TransactionService transactionService;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+    }
+
+    @Test
+    public void happy_case() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+        Category small = categoryRepository.findByReference("SML");
+        Category smaller = categoryRepository.findByReference("XS");
+        int classifiedBefore = classificationRepository.findByCategoryOrDescendant(small).size();
+        assertThat(classifiedBefore).isGreaterThan(0);
+
+        // when
+        wrap(small).moveTo(large);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(small.getParent()).isSameAs(large);
+        assertThat(smaller.getFullyQualifiedName()).isEqualTo("Sizes/Large/Small/Smaller");
+        assertThat(smaller.getPath()).startsWith(large.getPath());
+        assertThat(categoryRepository.isDescendantOf(smaller, large)).isTrue();
+        assertThat(categoryRepository.findByParentCascade(large)).extracting(Category::getReference)
+                .containsExactly("XXL", "XL", "L", "SML", "S", "XS", "XXS");
+        assertThat(categoryRepository.findDescendants(large)).extracting(Category::getReference)
+                .containsExactly("XXL", "XL", "L", "SML", "S", "XS", "XXS");
+        assertThat(classificationRepository.findByCategoryOrDescendant(large)).hasSize(classifiedBefore);
+    }
+
+    @Test
+    public void cannot_move_into_own_subtree() {
+        // given
+        Category small = categoryRepository.findByReference("SML");
+        Category smaller = categoryRepository.findByReference("XS");
+
+        // then
+        expectedException.expect(InvalidException.class);
+        expectedException.expectMessage("Cannot move a category under itself or one of its descendants");
+
+        // when
+        wrap(small).moveTo(smaller);
+    }
+
+    @Test
+    public void cannot_move_if_name_already_in_use() {
+        // given "Large/Large" and "Small/Small"
+        Category large = categoryRepository.findByReference("LGE");
+        Category small = categoryRepository.findByReference("S");
+        small.modifyName("Large");
+
+        // then
+        expectedException.expect(InvalidException.class);
+        expectedException.expectMessage("There is already a child classification with the name of 'Large'");
+
+        // when
+        wrap(small).moveTo(large);
+    }
+
+    @Test
+    public void auto_complete_by_reference_or_path() {
+        // given
+        Category small = categoryRepository.findByReference("SML");
+
+        // then
+        assertThat(small.autoComplete0MoveTo("LGE")).extracting(Category::getReference).containsExactly("LGE");
+        assertThat(small.autoComplete0MoveTo("Sizes/Large")).extracting(Category::getReference).containsExactly("LGE");
+        // not the current parent, nor within its own subtree
+        assertThat(small.autoComplete0MoveTo("SIZES")).isEmpty();
+        assertThat(small.autoComplete0MoveTo("Sizes/Small/Smaller")).isEmpty();
+    }
+
+    @Test
+    public void cannot_move_until_hierarchy_rebuilt() {
+        // given, as if created before paths were introduced
+        Category large = categoryRepository.findByReference("LGE");
+        Category small = categoryRepository.findByReference("SML");
+        small.setPath(null);
+
+        // then
+        expectedException.expect(InvalidException.class);
+        expectedException.expectMessage("Category 'Sizes/Small' has no path; rebuild the hierarchy of its taxonomy first");
+
+        // when
+        wrap(small).moveTo(large);
+    }
+
+}
@@ -84,6 +84,20 @@ public void fully_qualified_name_of_children_also_updated() {
         assertThat(large.getChildren()).allMatch(c -> c.getFullyQualifiedName().split("/")[1].equals("LRG"));
     }
 
+    @Test
+    public void fully_qualified_name_of_grandchildren_also_updated() {
+        // given
+        Category sizes = categoryRepository.findByReference("SIZES");
+
+        // when
+        sizes.modifyName("Dimensions");
+
+        // then
+        assertThat(categoryRepository.findByReference("LGE").getFullyQualifiedName()).isEqualTo("Dimensions/Large");
+        assertThat(categoryRepository.findByReference("XXL").getFullyQualifiedName()).isEqualTo("Dimensions/Large/Largest");
+        assertThat(categoryRepository.findByReference("XXS").getFullyQualifiedName()).isEqualTo("Dimensions/Small/Smallest");
+    }
+
     @Test
     public void cannot_rename_to_a_name_already_in_use() {
         // given
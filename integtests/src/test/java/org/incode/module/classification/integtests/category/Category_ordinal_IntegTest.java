@@ -16,19 +16,26 @@
  */
 package org.incode.module.classification.integtests.category;
 
+import java.util.List;
+
 import javax.inject.Inject;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import org.apache.isis.applib.services.xactn.TransactionService;
+
 import org.incode.module.classification.dom.impl.applicability.ApplicabilityRepository;
 import org.incode.module.classification.dom.impl.category.Category;
 import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.OrdinalKey;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
 import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
 import org.incode.module.classification.dom.spi.ApplicationTenancyService;
 import org.incode.module.classification.fixture.dom.demo.first.DemoObjectMenu;
 import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
 import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -46,6 +53,9 @@ public class Category_ordinal_IntegTest extends ClassificationModuleIntegTest {
     @Inject
     ApplicationTenancyService applicationTenancyService;
 
+    @Inject
+    TransactionService transactionService;
+
     @Before
     public void setUpData() throws Exception {
         fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
@@ -55,41 +65,85 @@ public void setUpData() throws Exception {
     public void happy_case() {
         // given
         Category medium = categoryRepository.findByReference("M");
-        assertThat(medium.getFullyQualifiedOrdinal()).isEqualTo("1.2");
+        assertThat(medium.getFullyQualifiedOrdinal()).isEqualTo(OrdinalKey.of(1, 2));
 
         // when
         medium.modifyOrdinal(99);
 
         // then
-        assertThat(medium.getFullyQualifiedOrdinal()).isEqualTo("1.99");
+        assertThat(medium.getFullyQualifiedOrdinal()).isEqualTo(OrdinalKey.of(1, 99));
     }
 
     @Test
     public void fully_qualified_name_of_children_also_updated() {
         // given
         Category large = categoryRepository.findByReference("LGE");
-        assertThat(large.getFullyQualifiedOrdinal()).isEqualTo("1.1");
-        assertThat(large.getChildren()).allMatch(c -> c.getFullyQualifiedOrdinal().split("\\.")[1].equals("1"));
+        assertThat(large.getFullyQualifiedOrdinal()).isEqualTo(OrdinalKey.of(1, 1));
+        assertThat(large.getChildren()).allMatch(c -> c.getFullyQualifiedOrdinal().startsWith(OrdinalKey.of(1, 1)));
 
         // when
         large.modifyOrdinal(99);
 
         // then
-        assertThat(large.getFullyQualifiedOrdinal()).isEqualTo("1.99");
-        assertThat(large.getChildren()).allMatch(c -> c.getFullyQualifiedOrdinal().split("\\.")[1].equals("99"));
+        assertThat(large.getFullyQualifiedOrdinal()).isEqualTo(OrdinalKey.of(1, 99));
+        assertThat(large.getChildren()).allMatch(c -> c.getFullyQualifiedOrdinal().startsWith(OrdinalKey.of(1, 99)));
     }
 
     @Test
     public void can_clear() {
         // given
         Category smallest = categoryRepository.findByReference("XXS");
-        assertThat(smallest.getFullyQualifiedOrdinal()).isEqualTo("1.3.3");
+        assertThat(smallest.getFullyQualifiedOrdinal()).isEqualTo(OrdinalKey.of(1, 3, 3));
 
         // when
         smallest.clearOrdinal();
 
         // then
-        assertThat(smallest.getFullyQualifiedOrdinal()).isEqualTo("1.3.0");
+        assertThat(smallest.getFullyQualifiedOrdinal()).isEqualTo(OrdinalKey.of(1, 3, 0));
+    }
+
+    @Test
+    public void subtree_updated_in_constant_number_of_statements() {
+        // given a subtree of 10,000 descendants (100 children, each with 99 children)
+        Taxonomy big = categoryRepository.createTaxonomy("Big");
+        Category root = big.addChild("Root", "ROOT", 1);
+        for (int i = 1; i <= 100; i++) {
+            Category child = root.addChild("Child " + i, null, i);
+            for (int j = 1; j <= 99; j++) {
+                child.addChild("Grandchild " + j, null, j);
+            }
+        }
+        transactionService.nextTransaction();
+
+        root = categoryRepository.findByReference("ROOT");
+        assertThat(root.getFullyQualifiedOrdinal()).isEqualTo(OrdinalKey.of(1, 1));
+
+        // when
+        final SqlStatementCounter counter = SqlStatementCounter.start();
+        root.modifyOrdinal(2);
+        final int statements = counter.stop();
+
+        // then
+        assertThat(statements).isLessThan(5);
+
+        final List<Category> descendants = categoryRepository.findByParentCascade(root);
+        assertThat(descendants).hasSize(10000);
+        assertThat(descendants).allMatch(c -> c.getFullyQualifiedOrdinal().startsWith(OrdinalKey.of(1, 2)));
+    }
+
+    @Test
+    public void siblings_sorted_numerically() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+        Category small = categoryRepository.findByReference("SML");
+
+        // when
+        small.modifyOrdinal(10);
+
+        // then
+        assertThat(categoryRepository.findByParent(large.getParent())).extracting(Category::getReference)
+                .containsExactly("LGE", "M", "SML");
+        assertThat(OrdinalKey.toString(small.getFullyQualifiedOrdinal())).isEqualTo("1.10");
     }
 
 }
\ No newline at end of file
@@ -72,6 +72,19 @@ public void happy_case() {
         assertThat(large.getChildren()).doesNotContain(largest);
     }
 
+    @Test
+    public void auto_complete_by_reference_name_or_prefix() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+
+        // then
+        assertThat(large.autoComplete0RemoveChild("XXL")).extracting(Category::getReference).containsExactly("XXL");
+        assertThat(large.autoComplete0RemoveChild("Larger")).extracting(Category::getReference).containsExactly("XL");
+        assertThat(large.autoComplete0RemoveChild("larg")).extracting(Category::getReference)
+                .containsOnly("XXL", "XL", "L");
+        assertThat(large.autoComplete0RemoveChild("Small")).isEmpty();
+    }
+
     @Test
     public void happy_case_cascading() {
         // given
@@ -89,6 +102,26 @@ public void happy_case_cascading() {
         assertThat(categoryRepository.findByReference("LGE")).isNull();
     }
 
+    @Test
+    public void removes_all_descendants() {
+        // given
+        Category sizes = categoryRepository.findByReference("SIZES");
+        Category large = categoryRepository.findByReference("LGE");
+        Category largest = categoryRepository.findByReference("XXL");
+        assertThat(largest.getParent()).isSameAs(large);
+
+        // when
+        wrap(sizes).removeChild(large);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(categoryRepository.findByReference("XXL")).isNull();
+        assertThat(categoryRepository.findByReference("XL")).isNull();
+        assertThat(categoryRepository.findByReference("L")).isNull();
+        assertThat(categoryRepository.findByParentCascade(sizes)).extracting(Category::getReference)
+                .containsOnly("M", "SML", "S", "XS", "XXS");
+    }
+
     @Test
     public void cannot_remove_if_has_classification() {
         // given
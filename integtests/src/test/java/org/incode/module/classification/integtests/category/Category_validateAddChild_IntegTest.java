@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.isis.applib.services.jdosupport.IsisJdoSupport;
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.TaxonomyBuilder;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The duplicate checks of {@link org.incode.module.classification.dom.impl.category.Category#addChild(String, String, Integer)}
+ * against a parent with 50,000 children.
+ */
+public class Category_validateAddChild_IntegTest extends ClassificationModuleIntegTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Category_validateAddChild_IntegTest.class);
+
+    private static final int CHILDREN = 50000;
+    private static final int VALIDATIONS = 200;
+
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    TransactionService transactionService;
+    @Inject
+    IsisJdoSupport isisJdoSupport;
+
+    Taxonomy brands;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+
+        TaxonomyBuilder builder = new TaxonomyBuilder("Brands");
+        for (int i = 0; i < CHILDREN; i++) {
+            builder.addChild("Brand " + i, "B" + i, null);
+        }
+        brands = categoryRepository.createTaxonomy(builder);
+        transactionService.nextTransaction();
+    }
+
+    @Test
+    public void name_and_reference_are_checked_by_query() {
+        // given
+        SqlStatementCounter counter = SqlStatementCounter.start();
+
+        // when
+        long start = System.nanoTime();
+        for (int i = 0; i < VALIDATIONS; i++) {
+            assertThat(brands.validate0AddChild("Brand " + (i * 97))).isNotNull();
+            assertThat(brands.validate1AddChild("B" + (i * 89))).isNotNull();
+            assertThat(brands.validate0AddChild("New brand " + i)).isNull();
+        }
+        long elapsedMicros = (System.nanoTime() - start) / 1000;
+
+        // then
+        int statements = counter.stop();
+        LOG.info("{} validations against {} children in {} ms ({} us per validation)",
+                3 * VALIDATIONS, CHILDREN, elapsedMicros / 1000, elapsedMicros / (3 * VALIDATIONS));
+
+        // one (indexed) query per validation, only the clashing children ever loaded
+        assertThat(statements).isLessThanOrEqualTo(3 * VALIDATIONS);
+        assertThat(isisJdoSupport.getJdoPersistenceManager().getManagedObjects()).hasSizeLessThan(3 * VALIDATIONS);
+    }
+
+}
@@ -0,0 +1,248 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category;
+
+import javax.inject.Inject;
+
+import com.google.common.io.CharSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryImporter;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.TaxonomyBuilder;
+import org.incode.module.classification.dom.impl.category.TaxonomySynchronizer;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshot;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshotService;
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaxonomySynchronizer_sync_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    TaxonomySynchronizer taxonomySynchronizer;
+    @Inject
+    CategoryImporter categoryImporter;
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    JdbcSupport jdbcSupport;
+    @Inject
+    TaxonomySnapshotService taxonomySnapshotService;
+    @Inject
+    TransactionService transactionService;
+
+    Taxonomy sizes;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+    }
+
+    private TaxonomyBuilder read(final String csv) {
+        return categoryImporter.readTree("Sizes", CharSource.wrap("path,reference,ordinal\n" + csv),
+                CategoryImporter.Format.CSV);
+    }
+
+    private static final String SIZES_CSV = ""
+            + "Large,LGE,1\n"
+            + "Large/Largest,XXL,1\n"
+            + "Large/Larger,XL,2\n"
+            + "Large/Large,L,3\n"
+            + "Medium,M,2\n"
+            + "Small,SML,3\n"
+            + "Small/Small,S,1\n"
+            + "Small/Smaller,XS,2\n"
+            + "Small/Smallest,XXS,3\n";
+
+    @Test
+    public void when_unchanged_then_nothing_written() {
+        // given
+        TaxonomyBuilder incoming = read(SIZES_CSV);
+        SqlStatementCounter counter = SqlStatementCounter.start();
+
+        // when
+        TaxonomySynchronizer.Result result = taxonomySynchronizer.sync(sizes, incoming);
+
+        // then
+        int statements = counter.stop();
+        assertThat(result.isUnchanged()).isTrue();
+        assertThat(statements).isLessThanOrEqualTo(2);     // reading the snapshot only
+    }
+
+    @Test
+    public void when_unchanged_then_cached_snapshot_only_revalidated() {
+        // given
+        transactionService.nextTransaction();
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+        TaxonomySnapshot cached = taxonomySnapshotService.snapshotOf(sizes);
+        TaxonomyBuilder incoming = read(SIZES_CSV);
+        SqlStatementCounter counter = SqlStatementCounter.start();
+
+        // when
+        TaxonomySynchronizer.Result result = taxonomySynchronizer.sync(sizes, incoming);
+
+        // then
+        int statements = counter.stop();
+        assertThat(result.isUnchanged()).isTrue();
+        assertThat(statements).isEqualTo(1);     // checking the version stamp only
+        assertThat(taxonomySnapshotService.snapshotOf(sizes)).isSameAs(cached);
+    }
+
+    @Test
+    public void stale_cached_snapshot_not_planned_from() {
+        // given
+        transactionService.nextTransaction();
+        taxonomySnapshotService.snapshotOf(sizes);
+        // renamed behind the cache's back
+        jdbcSupport.executeUpdate(
+                "UPDATE " + JdbcSupport.CATEGORY + " SET \"name\" = 'Mid', \"version\" = \"version\" + 1 "
+                        + "WHERE \"reference\" = 'M'");
+        transactionService.nextTransaction();
+
+        // when
+        TaxonomySynchronizer.Result result = taxonomySynchronizer.sync(sizes, read(SIZES_CSV));
+
+        // then
+        assertThat(result.getRenamed()).isEqualTo(1);
+        assertThat(categoryRepository.findByReference("M").getName()).isEqualTo("Medium");
+    }
+
+    @Test
+    public void inserts_moves_renames_reorders_and_removes() {
+        // given
+        TaxonomyBuilder incoming = read(""
+                + "Large,LGE,1\n"
+                + "Large/Largest,XXL,1\n"
+                + "Large/Bigger,XL,2\n"             // renamed
+                + "Medium,M,2\n"
+                + "Medium/Medium Large,L,1\n"       // moved (and renamed)
+                + "Small,SML,3\n"
+                + "Small/Smaller,XS,1\n"            // reordered
+                + "Small/Smallest,XXS,2\n"          // reordered
+                + "Small/Tiny,T,3\n");              // inserted; "S" removed
+
+        // when
+        TaxonomySynchronizer.Result result = taxonomySynchronizer.sync(sizes, incoming);
+
+        // then
+        assertThat(result.getInserted()).isEqualTo(1);
+        assertThat(result.getMoved()).isEqualTo(1);
+        assertThat(result.getRenamed()).isEqualTo(2);
+        assertThat(result.getReordered()).isEqualTo(2);
+        assertThat(result.getRemoved()).isEqualTo(1);
+        assertThat(result.getSkipped()).isEmpty();
+
+        Category medium = categoryRepository.findByReference("M");
+        Category mediumLarge = categoryRepository.findByReference("L");
+        assertThat(mediumLarge.getParent()).isSameAs(medium);
+        assertThat(mediumLarge.getFullyQualifiedName()).isEqualTo("Sizes/Medium/Medium Large");
+        assertThat(categoryRepository.isDescendantOf(mediumLarge, medium)).isTrue();
+        assertThat(categoryRepository.findByReference("XL").getFullyQualifiedName()).isEqualTo("Sizes/Large/Bigger");
+        assertThat(categoryRepository.findByReference("S")).isNull();
+        assertThat(categoryRepository.findByParent(categoryRepository.findByReference("SML")))
+                .extracting(Category::getReference)
+                .containsExactly("XS", "XXS", "T");
+
+        // and then syncing again changes nothing
+        assertThat(taxonomySynchronizer.sync(sizes, incoming).isUnchanged()).isTrue();
+    }
+
+    @Test
+    public void swaps_names() {
+        // given
+        TaxonomyBuilder incoming = read(SIZES_CSV
+                .replace("Large/Largest,XXL", "Large/Larger,XXL")
+                .replace("Large/Larger,XL", "Large/Largest,XL"));
+
+        // when
+        TaxonomySynchronizer.Result result = taxonomySynchronizer.sync(sizes, incoming);
+
+        // then
+        assertThat(result.getRenamed()).isEqualTo(2);
+        assertThat(categoryRepository.findByReference("XXL").getName()).isEqualTo("Larger");
+        assertThat(categoryRepository.findByReference("XL").getName()).isEqualTo("Largest");
+    }
+
+    @Test
+    public void temporary_names_do_not_clash() {
+        // given "Large/Large" is named as "Large/Largest" would be while it makes way for "Large/Larger"
+        String temporaryName = "~" + jdbcSupport.idOf(categoryRepository.findByReference("XXL"));
+        categoryRepository.findByReference("L").modifyName(temporaryName);
+        TaxonomyBuilder incoming = read(SIZES_CSV
+                .replace("Large/Largest,XXL", "Large/Larger,XXL")
+                .replace("Large/Larger,XL", "Large/Largest,XL")
+                .replace("Large/Large,L", "Large/" + temporaryName + ",L"));
+
+        // when
+        TaxonomySynchronizer.Result result = taxonomySynchronizer.sync(sizes, incoming);
+
+        // then
+        assertThat(result.getRenamed()).isEqualTo(2);
+        assertThat(categoryRepository.findByReference("XXL").getName()).isEqualTo("Larger");
+        assertThat(categoryRepository.findByReference("XL").getName()).isEqualTo("Largest");
+        assertThat(categoryRepository.findByReference("L").getName()).isEqualTo(temporaryName);
+    }
+
+    @Test
+    public void fails_when_persisted_references_not_unique() {
+        // given "Small/Smaller" has the same reference as "Large/Large" (allowed, having different parents)
+        categoryRepository.findByReference("XS").setReference("L");
+        TaxonomyBuilder incoming = read(SIZES_CSV);
+
+        // then
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage(
+                "Categories 'Sizes/Large/Large' and 'Sizes/Small/Smaller' both have the reference of 'L'");
+
+        // when
+        taxonomySynchronizer.sync(sizes, incoming);
+    }
+
+    @Test
+    public void does_not_remove_when_in_use() {
+        // given "Medium" and "Small/Smaller" are used to classify the demo objects
+        TaxonomyBuilder incoming = read(""
+                + "Large,LGE,1\n"
+                + "Large/Largest,XXL,1\n"
+                + "Large/Larger,XL,2\n"
+                + "Large/Large,L,3\n");
+
+        // when
+        TaxonomySynchronizer.Result result = taxonomySynchronizer.sync(sizes, incoming);
+
+        // then
+        assertThat(result.getSkipped()).hasSize(2);
+        assertThat(categoryRepository.findByReference("M")).isNotNull();
+        assertThat(categoryRepository.findByReference("SML")).isNotNull();
+        assertThat(categoryRepository.findByReference("XS")).isNotNull();
+    }
+
+}
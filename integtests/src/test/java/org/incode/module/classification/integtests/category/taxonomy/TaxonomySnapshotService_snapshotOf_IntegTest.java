@@ -0,0 +1,239 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.category.taxonomy;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshot;
+import org.incode.module.classification.dom.impl.category.taxonomy.TaxonomySnapshotService;
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaxonomySnapshotService_snapshotOf_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    TaxonomySnapshotService taxonomySnapshotService;
+    @Inject
+    JdbcSupport jdbcSupport;
+    @Inject
+    TransactionService transactionService;
+
+    Taxonomy sizes;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        transactionService.nextTransaction();
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+    }
+
+    @After
+    public void tearDown() {
+        taxonomySnapshotService.setRevalidateIntervalMillis(TaxonomySnapshotService.DEFAULT_REVALIDATE_INTERVAL_MILLIS);
+    }
+
+    @Test
+    public void depth_first_and_sorted() {
+        // when
+        TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(sizes);
+
+        // then
+        assertThat(snapshot.getNodes()).extracting(TaxonomySnapshot.Node::getFullyQualifiedName)
+                .containsExactly(
+                        "Sizes",
+                        "Sizes/Large",
+                        "Sizes/Large/Largest",
+                        "Sizes/Large/Larger",
+                        "Sizes/Large/Large",
+                        "Sizes/Medium",
+                        "Sizes/Small",
+                        "Sizes/Small/Small",
+                        "Sizes/Small/Smaller",
+                        "Sizes/Small/Smallest");
+
+        TaxonomySnapshot.Node large = snapshot.findByReference("LGE");
+        TaxonomySnapshot.Node largest = snapshot.findByReference("XXL");
+        assertThat(snapshot.getParent(largest)).isSameAs(large);
+        assertThat(snapshot.getChildren(large)).extracting(TaxonomySnapshot.Node::getReference)
+                .containsExactly("XXL", "XL", "L");
+        assertThat(snapshot.getDescendants(snapshot.getRoot())).hasSize(9);
+        assertThat(snapshot.isDescendantOf(largest, large)).isTrue();
+        assertThat(snapshot.isDescendantOf(largest, snapshot.findByReference("SML"))).isFalse();
+    }
+
+    @Test
+    public void siblings_in_same_order_as_findByParent() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+        Category largest = categoryRepository.findByReference("XXL");
+        Category larger = categoryRepository.findByReference("XL");
+
+        // when
+        categoryRepository.placeAfter(largest, larger);
+        transactionService.nextTransaction();
+
+        // then
+        large = categoryRepository.findByReference("LGE");
+        TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(sizes);
+        assertThat(snapshot.getChildren(snapshot.findByReference("LGE"))).extracting(TaxonomySnapshot.Node::getReference)
+                .containsExactly("XL", "XXL", "L")
+                .containsExactlyElementsOf(categoryRepository.findByParent(large).stream()
+                        .map(Category::getReference).collect(Collectors.toList()));
+        assertThat(categoryRepository.findByTaxonomy(sizes)).extracting(Category::getReference)
+                .containsExactly("SIZES", "LGE", "XL", "XXL", "L", "M", "SML", "S", "XS", "XXS");
+    }
+
+    @Test
+    public void categories_read_without_querying_once_loaded() {
+        // given
+        categoryRepository.findByTaxonomy(sizes);
+
+        // when
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        List<Category> categories = categoryRepository.findByTaxonomy(sizes);
+        int statements = counter.stop();
+
+        // then
+        assertThat(statements).isEqualTo(0);
+        assertThat(categories).hasSize(10);
+        assertThat(categories.get(0)).isSameAs(sizes);
+    }
+
+    @Test
+    public void cached_snapshot_read_without_querying() {
+        // given
+        TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(sizes);
+
+        // when
+        SqlStatementCounter counter = SqlStatementCounter.start();
+        TaxonomySnapshot snapshotAgain = taxonomySnapshotService.snapshotOf(sizes);
+        int statements = counter.stop();
+
+        // then
+        assertThat(snapshotAgain).isSameAs(snapshot);
+        assertThat(statements).isEqualTo(0);
+    }
+
+    @Test
+    public void rebuilt_when_child_added() {
+        // given
+        TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(sizes);
+        Category medium = categoryRepository.findByReference("M");
+
+        // when
+        wrap(medium).addChild("Medium Tall", "MT", null);
+
+        // then
+        TaxonomySnapshot snapshotAfter = taxonomySnapshotService.snapshotOf(sizes);
+        assertThat(snapshotAfter).isNotSameAs(snapshot);
+        assertThat(snapshotAfter.findByFullyQualifiedName("Sizes/Medium/Medium Tall")).isNotNull();
+        assertThat(snapshot.findByFullyQualifiedName("Sizes/Medium/Medium Tall")).isNull();
+    }
+
+    @Test
+    public void uncommitted_changes_not_cached() {
+        // given
+        Category medium = categoryRepository.findByReference("M");
+        wrap(medium).addChild("Medium Tall", "MT", null);
+        TaxonomySnapshot uncommitted = taxonomySnapshotService.snapshotOf(sizes);
+        assertThat(uncommitted.findByReference("MT")).isNotNull();
+
+        // when
+        transactionService.nextTransaction();
+
+        // then, built afresh after commit
+        TaxonomySnapshot committed = taxonomySnapshotService.snapshotOf(sizes);
+        assertThat(committed).isNotSameAs(uncommitted);
+        assertThat(committed.findByReference("MT")).isNotNull();
+        assertThat(taxonomySnapshotService.snapshotOf(sizes)).isSameAs(committed);
+    }
+
+    @Test
+    public void children_are_immutable() {
+        // given
+        TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(sizes);
+        TaxonomySnapshot.Node large = snapshot.findByReference("LGE");
+
+        // then
+        expectedException.expect(UnsupportedOperationException.class);
+
+        // when
+        snapshot.getChildren(large).clear();
+    }
+
+    @Test
+    public void revalidate_when_version_changed_elsewhere() {
+        // given
+        TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(sizes);
+        taxonomySnapshotService.revalidate(); // discard any left over from previous tests
+
+        // when (eg by another node of the cluster)
+        jdbcSupport.executeUpdate(
+                "UPDATE \"incodeClassification\".\"Category\" "
+                        + "SET \"name\" = 'Big', \"version\" = \"version\" + 1 "
+                        + "WHERE \"reference\" = 'LGE'");
+        int revalidated = taxonomySnapshotService.revalidate();
+
+        // then
+        assertThat(revalidated).isEqualTo(1);
+        TaxonomySnapshot snapshotAfter = taxonomySnapshotService.snapshotOf(sizes);
+        assertThat(snapshotAfter).isNotSameAs(snapshot);
+        assertThat(snapshotAfter.findByReference("LGE").getName()).isEqualTo("Big");
+    }
+
+    @Test
+    public void revalidated_on_lookup_once_interval_elapsed() {
+        // given
+        TaxonomySnapshot snapshot = taxonomySnapshotService.snapshotOf(sizes);
+        jdbcSupport.executeUpdate(
+                "UPDATE \"incodeClassification\".\"Category\" "
+                        + "SET \"name\" = 'Big', \"version\" = \"version\" + 1 "
+                        + "WHERE \"reference\" = 'LGE'");
+        assertThat(taxonomySnapshotService.snapshotOf(sizes)).isSameAs(snapshot);
+
+        // when
+        taxonomySnapshotService.setRevalidateIntervalMillis(0);
+        TaxonomySnapshot snapshotAfter = taxonomySnapshotService.snapshotOf(sizes);
+
+        // then
+        assertThat(snapshotAfter).isNotSameAs(snapshot);
+        assertThat(snapshotAfter.findByReference("LGE").getName()).isEqualTo("Big");
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.classification;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.classification.Classification;
+import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
+import org.incode.module.classification.dom.impl.classification.ClassificationRepository.Outcome;
+import org.incode.module.classification.dom.impl.jdbc.JdbcSupport;
+import org.incode.module.classification.fixture.app.classification.demo.ClassificationForDemoObject;
+import org.incode.module.classification.fixture.dom.demo.first.DemoObject;
+import org.incode.module.classification.fixture.dom.demo.first.DemoObjectMenu;
+import org.incode.module.classification.fixture.dom.demo.other.OtherObject;
+import org.incode.module.classification.fixture.dom.demo.other.OtherObjectMenu;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassificationRepository_classifyAll_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    ClassificationRepository classificationRepository;
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    DemoObjectMenu demoObjectMenu;
+    @Inject
+    OtherObjectMenu otherObjectMenu;
+    @Inject
+    TransactionService transactionService;
+    @Inject
+    JdbcSupport jdbcSupport;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+    }
+
+    @Test
+    public void outcome_per_object() {
+        // given
+        Category large = categoryRepository.findByReference("L");
+        List<DemoObject> demoObjects = demoObjectMenu.listAll();
+        List<OtherObject> otherObjects = otherObjectMenu.listAll();
+        DemoObject demoFoo = find(demoObjects, "Demo foo (in Italy)");  // already classified as 'Medium'
+        DemoObject demoBaz = find(demoObjects, "Demo baz (Global)");
+
+        List<Object> objects = Lists.newArrayList();
+        objects.add(demoFoo);
+        objects.add(demoBaz);
+        objects.add(demoBaz);
+        objects.add("not persistent");
+        objects.addAll(otherObjects);
+
+        // when
+        List<Outcome> outcomes = classificationRepository.classifyAll(large, objects);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(outcomes).hasSize(4 + otherObjects.size());
+        assertThat(outcomes.subList(0, 4)).containsExactly(
+                Outcome.ALREADY_CLASSIFIED, Outcome.CLASSIFIED, Outcome.ALREADY_CLASSIFIED, Outcome.NOT_CLASSIFIABLE);
+        assertThat(outcomes.subList(4, outcomes.size())).containsOnly(Outcome.CLASSIFIED);
+
+        List<Classification> classifications = classificationRepository.findByCategory(large);
+        assertThat(classifications).hasSize(1 + otherObjects.size());
+        assertThat(classifications).extracting(Classification::getClassified).contains(demoBaz);
+        assertThat(classifications).extracting(Classification::getClassified).containsAll(otherObjects);
+        assertThat(classificationRepository.findByClassified(demoFoo)).extracting(Classification::getCategory)
+                .extracting(Category::getReference)
+                .containsOnly("RED", "M");
+    }
+
+    @Test
+    public void with_batched_statements() {
+        // given
+        Category large = categoryRepository.findByReference("L");
+        List<DemoObject> demoObjects = Lists.newArrayList();
+        for (int i = 0; i < 2000; i++) {
+            demoObjects.add(demoObjectMenu.create("Demo " + i, "/"));
+        }
+        transactionService.nextTransaction();
+        SqlStatementCounter counter = SqlStatementCounter.start();
+
+        // when
+        List<Outcome> outcomes = classificationRepository.classifyAll(large, demoObjects);
+
+        // then
+        int statements = counter.stop();
+        assertThat(outcomes).containsOnly(Outcome.CLASSIFIED);
+        // nowhere near one (let alone two) statements per object
+        assertThat(statements).isLessThan(100);
+
+        transactionService.nextTransaction();
+        assertThat(classificationRepository.findByCategory(large)).hasSize(2000);
+        assertThat(classificationRepository.classifyAll(large, demoObjects)).containsOnly(Outcome.ALREADY_CLASSIFIED);
+    }
+
+    @Test
+    public void subtype_table_and_column_resolved_from_jdo_metadata() {
+        // when
+        JdbcSupport.Table table = jdbcSupport.tableOf(ClassificationForDemoObject.class);
+        String column = jdbcSupport.columnReferencing(ClassificationForDemoObject.class, DemoObject.class);
+
+        // then
+        assertThat(table.getQualifiedName()).isEqualToIgnoringCase("\"incodeClassificationDemo\".\"ClassificationForDemoObject\"");
+        assertThat(column).isEqualTo("demoObjectId");
+        assertThat(jdbcSupport.columnReferencing(ClassificationForDemoObject.class, OtherObject.class)).isNull();
+    }
+
+    private static DemoObject find(final List<DemoObject> demoObjects, final String name) {
+        return demoObjects.stream().filter(x -> x.getName().equals(name)).findFirst().get();
+    }
+
+}
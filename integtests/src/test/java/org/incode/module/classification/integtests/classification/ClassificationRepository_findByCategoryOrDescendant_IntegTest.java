@@ -0,0 +1,74 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.classification;
+
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.classification.Classification;
+import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassificationRepository_findByCategoryOrDescendant_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    ClassificationRepository classificationRepository;
+    @Inject
+    CategoryRepository categoryRepository;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+    }
+
+    @Test
+    public void when_descendants_classified() {
+        // given
+        Category sizes = categoryRepository.findByReference("SIZES");
+
+        // when
+        List<Classification> classifications = classificationRepository.findByCategoryOrDescendant(sizes);
+
+        // then
+        assertThat(classifications).extracting(Classification::getCategory).extracting(Category::getReference)
+                .containsOnly("M", "XS");
+    }
+
+    @Test
+    public void when_none_classified() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+
+        // when
+        List<Classification> classifications = classificationRepository.findByCategoryOrDescendant(large);
+
+        // then
+        assertThat(classifications).isEmpty();
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.classification;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.classification.Classification;
+import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassificationRepository_findFirstByCategoryOrDescendant_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    ClassificationRepository classificationRepository;
+    @Inject
+    CategoryRepository categoryRepository;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+    }
+
+    @Test
+    public void when_category_itself_classified() {
+        // given
+        Category medium = categoryRepository.findByReference("M");
+
+        // when
+        Classification classification = classificationRepository.findFirstByCategoryOrDescendant(medium);
+
+        // then
+        assertThat(classification).isNotNull();
+        assertThat(classification.getCategory()).isSameAs(medium);
+    }
+
+    @Test
+    public void when_descendant_classified() {
+        // given
+        Category sizes = categoryRepository.findByReference("SIZES");
+        Category smaller = categoryRepository.findByReference("XS");
+
+        // when
+        Classification classification = classificationRepository.findFirstByCategoryOrDescendant(sizes);
+
+        // then ordered by fully qualified name, so 'Sizes/Medium' comes before 'Sizes/Small/Smaller'
+        assertThat(classification).isNotNull();
+        assertThat(classification.getCategory()).isNotSameAs(smaller);
+        assertThat(classification.getCategory().getFullyQualifiedName()).isEqualTo("Sizes/Medium");
+    }
+
+    @Test
+    public void when_none_classified() {
+        // given
+        Category large = categoryRepository.findByReference("LGE");
+
+        // when
+        Classification classification = classificationRepository.findFirstByCategoryOrDescendant(large);
+
+        // then
+        assertThat(classification).isNull();
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2016 Dan Haywood
+ *
+ *  Licensed under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.incode.module.classification.integtests.classification;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.bookmark.BookmarkService;
+import org.apache.isis.applib.services.xactn.TransactionService;
+
+import org.incode.module.classification.dom.impl.category.Category;
+import org.incode.module.classification.dom.impl.category.CategoryRepository;
+import org.incode.module.classification.dom.impl.category.taxonomy.Taxonomy;
+import org.incode.module.classification.dom.impl.classification.Classification;
+import org.incode.module.classification.dom.impl.classification.ClassificationRepository;
+import org.incode.module.classification.fixture.dom.demo.first.DemoObject;
+import org.incode.module.classification.fixture.dom.demo.first.DemoObjectMenu;
+import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
+import org.incode.module.classification.fixture.scripts.teardown.ClassificationDemoAppTearDownFixture;
+import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClassificationRepository_removeBy_IntegTest extends ClassificationModuleIntegTest {
+
+    @Inject
+    ClassificationRepository classificationRepository;
+    @Inject
+    CategoryRepository categoryRepository;
+    @Inject
+    DemoObjectMenu demoObjectMenu;
+    @Inject
+    BookmarkService bookmarkService;
+    @Inject
+    TransactionService transactionService;
+
+    Taxonomy sizes;
+    Taxonomy italianColours;
+
+    @Before
+    public void setUpData() throws Exception {
+        fixtureScripts.runFixtureScript(new ClassificationDemoAppTearDownFixture(), null);
+        fixtureScripts.runFixtureScript(new ClassifiedDemoObjectsFixture(), null);
+
+        sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+        italianColours = categoryRepository.findByReference("RED").getTaxonomy();
+    }
+
+    @Test
+    public void by_category() {
+        // given
+        Category medium = categoryRepository.findByReference("M");
+        assertThat(classificationRepository.findByCategory(medium)).hasSize(1);
+
+        // when
+        int removed = classificationRepository.removeByCategory(medium);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(removed).isEqualTo(1);
+        assertThat(classificationRepository.findByCategory(medium)).isEmpty();
+        assertThat(classificationRepository.findByTaxonomy(sizes)).extracting(Classification::getCategory)
+                .extracting(Category::getReference)
+                .containsExactly("XS");
+    }
+
+    @Test
+    public void by_taxonomy() {
+        // when
+        int removed = classificationRepository.removeByTaxonomy(sizes);
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(removed).isEqualTo(2);
+        assertThat(classificationRepository.findByTaxonomy(sizes)).isEmpty();
+        assertThat(classificationRepository.findByTaxonomy(italianColours)).hasSize(1);
+    }
+
+    @Test
+    public void by_classified() {
+        // given
+        DemoObject demoFoo = demoObjectMenu.listAll().stream()
+                .filter(x -> x.getName().equals("Demo foo (in Italy)")).findFirst().get();
+        assertThat(classificationRepository.findByClassified(demoFoo)).hasSize(2);
+
+        // when
+        int removed = classificationRepository.removeByClassified(
+                Collections.singletonList(bookmarkService.bookmarkFor(demoFoo)));
+        transactionService.nextTransaction();
+
+        // then
+        assertThat(removed).isEqualTo(2);
+        assertThat(classificationRepository.findByClassified(demoFoo)).isEmpty();
+        assertThat(classificationRepository.findByTaxonomy(sizes)).hasSize(1);
+    }
+
+    @Test
+    public void many_with_constant_number_of_statements() {
+        // given
+        Category large = categoryRepository.findByReference("L");
+        List<DemoObject> demoObjects = Lists.newArrayList();
+        for (int i = 0; i < 2000; i++) {
+            demoObjects.add(demoObjectMenu.create("Demo " + i, "/"));
+        }
+        classificationRepository.classifyAll(large, demoObjects);
+        transactionService.nextTransaction();
+        SqlStatementCounter counter = SqlStatementCounter.start();
+
+        // when
+        int removed = classificationRepository.removeByTaxonomy(sizes);
+
+        // then
+        int statements = counter.stop();
+        assertThat(removed).isEqualTo(2002);
+        assertThat(statements).isLessThan(10);
+
+        transactionService.nextTransaction();
+        assertThat(classificationRepository.findByTaxonomy(sizes)).isEmpty();
+    }
+
+}
@@ -16,10 +16,15 @@
  */
 package org.incode.module.classification.integtests.classification;
 
+import java.util.List;
+
 import javax.inject.Inject;
 
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Test;
+
+import org.apache.isis.applib.services.xactn.TransactionService;
 
 import org.incode.module.classification.dom.impl.applicability.ApplicabilityRepository;
 import org.incode.module.classification.dom.impl.category.Category;
@@ -31,6 +36,7 @@
 import org.incode.module.classification.fixture.dom.demo.first.DemoObjectMenu;
 import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
 import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -47,6 +53,8 @@ public class Classification_category_IntegTest extends ClassificationModuleInteg
     DemoObjectMenu demoObjectMenu;
     @Inject
     ApplicationTenancyService applicationTenancyService;
+    @Inject
+    TransactionService transactionService;
 
     Object classified;
 
@@ -82,4 +90,30 @@ public void happy_case() {
                 .doesNotContain("Red");
     }
 
+    @Test
+    public void choices_served_from_snapshot_without_querying() {
+        // given
+        transactionService.nextTransaction();
+        DemoObject demoFooInItaly = demoObjectMenu.listAll().stream()
+                .filter(demoObject -> demoObject.getName().equals("Demo foo (in Italy)"))
+                .findFirst()
+                .get();
+        Classification italianClassificationRed = classificationRepository.findByClassified(demoFooInItaly)
+                .stream()
+                .filter(classification -> classification.getCategory().getName().equals("Red"))
+                .findFirst()
+                .get();
+        List<Category> choices = italianClassificationRed.choicesCategory();
+
+        // when
+        final SqlStatementCounter counter = SqlStatementCounter.start();
+        List<Category> choicesAgain = italianClassificationRed.choicesCategory();
+        final int statements = counter.stop();
+
+        // then
+        assertThat(statements).isEqualTo(0);
+        assertThat(choicesAgain).containsExactlyElementsOf(choices);
+        assertThat(choicesAgain).extracting(Category::getName).contains("Red", "Green").doesNotContain("Italian Colours");
+    }
+
 }
\ No newline at end of file
@@ -28,6 +28,7 @@
 import org.junit.rules.ExpectedException;
 
 import org.apache.isis.applib.services.factory.FactoryService;
+import org.apache.isis.applib.services.xactn.TransactionService;
 
 import org.incode.module.classification.dom.impl.applicability.ApplicabilityRepository;
 import org.incode.module.classification.dom.impl.category.Category;
@@ -44,6 +45,7 @@
 import org.incode.module.classification.fixture.dom.demo.other.OtherObjectMenu;
 import org.incode.module.classification.fixture.scripts.scenarios.ClassifiedDemoObjectsFixture;
 import org.incode.module.classification.integtests.ClassificationModuleIntegTest;
+import org.incode.module.classification.integtests.SqlStatementCounter;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -65,6 +67,8 @@ public class T_classify_IntegTest extends ClassificationModuleIntegTest {
     ApplicationTenancyService applicationTenancyService;
     @Inject
     FactoryService factoryService;
+    @Inject
+    TransactionService transactionService;
 
     @Rule
     public ExpectedException expectedException = ExpectedException.none();
@@ -106,6 +110,31 @@ public void when_applicability_and_no_classification() {
                 .containsOnlyElementsOf(categoryNames);
     }
 
+    @Test
+    public void category_choices_served_from_snapshot_without_querying() {
+        // given
+        transactionService.nextTransaction();
+        DemoObject demoBip = demoObjectMenu.listAll()
+                .stream()
+                .filter(demoObject -> demoObject.getName().equals("Demo bip (in Milan)"))
+                .findFirst()
+                .get();
+        final ClassificationForDemoObject._classify classification = factoryService.mixin(ClassificationForDemoObject._classify.class, demoBip);
+        Taxonomy sizes = (Taxonomy) categoryRepository.findByReference("SIZES");
+        Collection<Category> choices = classification.choices1Classify(sizes);
+
+        // when
+        final SqlStatementCounter counter = SqlStatementCounter.start();
+        Collection<Category> choicesAgain = classification.choices1Classify(sizes);
+        final int statements = counter.stop();
+
+        // then
+        assertThat(statements).isEqualTo(0);
+        assertThat(choicesAgain).containsExactlyElementsOf(choices);
+        assertThat(choicesAgain).extracting(Category::getReference)
+                .containsExactly("LGE", "XXL", "XL", "L", "M", "SML", "S", "XS", "XXS");
+    }
+
     @Test
     public void cannot_classify_when_applicability_but_classifications_already_defined() {
         // given